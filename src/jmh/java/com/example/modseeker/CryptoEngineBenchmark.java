@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The crypto work of one RSA-wrapped mod list response (RSA key unwrap, 8 KB
+ * AES-CBC decrypt, SHA256withRSA verify), through the per-thread instances of
+ * {@link CryptoEngine} and with a fresh getInstance/init per call
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoEngineBenchmark {
+
+    private KeyPair serverKeys;
+    private KeyPair clientKeys;
+    private CryptoEngine engine;
+    private byte[] wrappedKey;
+    // IV followed by the ciphertext, as in the response
+    private byte[] encrypted;
+    private byte[] signature;
+
+    @Setup
+    public void setup() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        serverKeys = generator.generateKeyPair();
+        clientKeys = generator.generateKeyPair();
+        engine = new CryptoEngine(serverKeys.getPrivate(), clientKeys.getPublic());
+
+        SecureRandom random = new SecureRandom();
+        byte[] aesKey = new byte[16];
+        byte[] iv = new byte[16];
+        byte[] payload = new byte[8192];
+        random.nextBytes(aesKey);
+        random.nextBytes(iv);
+        random.nextBytes(payload);
+
+        Cipher rsa = Cipher.getInstance("RSA/ECB/PKCS1Padding");
+        rsa.init(Cipher.ENCRYPT_MODE, serverKeys.getPublic());
+        wrappedKey = rsa.doFinal(aesKey);
+        Cipher aes = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        aes.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(aesKey, "AES"), new IvParameterSpec(iv));
+        byte[] ciphertext = aes.doFinal(payload);
+        encrypted = new byte[iv.length + ciphertext.length];
+        System.arraycopy(iv, 0, encrypted, 0, iv.length);
+        System.arraycopy(ciphertext, 0, encrypted, iv.length, ciphertext.length);
+        Signature signer = Signature.getInstance("SHA256withRSA");
+        signer.initSign(clientKeys.getPrivate());
+        signer.update(payload);
+        signature = signer.sign();
+    }
+
+    @Benchmark
+    public boolean engine() throws GeneralSecurityException {
+        byte[] key = engine.unwrapKey(wrappedKey, 0, wrappedKey.length);
+        byte[] plain = engine.decryptAes(key, encrypted, 0, 16, 16, encrypted.length - 16);
+        return engine.verify(plain, signature);
+    }
+
+    @Benchmark
+    public boolean perCall() throws GeneralSecurityException {
+        Cipher rsa = Cipher.getInstance("RSA/ECB/PKCS1Padding");
+        rsa.init(Cipher.DECRYPT_MODE, serverKeys.getPrivate());
+        byte[] key = rsa.doFinal(wrappedKey);
+        Cipher aes = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        aes.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(encrypted, 0, 16));
+        byte[] plain = aes.doFinal(encrypted, 16, encrypted.length - 16);
+        Signature verifier = Signature.getInstance("SHA256withRSA");
+        verifier.initVerify(clientKeys.getPublic());
+        verifier.update(plain);
+        return verifier.verify(signature);
+    }
+}
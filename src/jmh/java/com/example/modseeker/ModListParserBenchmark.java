@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a RESPONSE_MODLIST message, with and without reading every mod ID and
+ * version back out of the response afterwards
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModListParserBenchmark {
+
+    @Param({ "50", "500" })
+    public int mods;
+
+    private final ModListParser parser = new ModListParser();
+    private byte[] message;
+
+    @Setup
+    public void setup() {
+        StringBuilder json = new StringBuilder("{\"checkId\":\"hs-1a2b3c4d\",\"mods\":[");
+        for (int i = 0; i < mods; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("\"example-mod-").append(i).append(":1.").append(i % 20).append(".3+mc1.21.1\"");
+        }
+        json.append("],\"resourcePacks\":[\"Faithful 32x\"],\"shaderPacks\":[\"ComplementaryReimagined\"],");
+        json.append("\"signature\":\"").append("A".repeat(344)).append("\",\"timestamp\":1760000000000}");
+        message = json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ModListResponse parse() throws JsonTokenizer.MalformedJsonException {
+        return parser.parseResponse(message);
+    }
+
+    @Benchmark
+    public void parseAndReadMods(Blackhole blackhole) throws JsonTokenizer.MalformedJsonException {
+        ModListResponse response = parser.parseResponse(message);
+        List<String> modIds = response.modIds();
+        List<String> versions = response.versions();
+        for (int i = 0; i < modIds.size(); i++) {
+            blackhole.consume(modIds.get(i));
+            blackhole.consume(versions.get(i));
+        }
+    }
+}
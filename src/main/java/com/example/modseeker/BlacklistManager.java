@@ -22,53 +22,263 @@ import com.google.gson.GsonBuilder;
 import java.io.*;
 
 import java.util.*;
+import java.util.concurrent.Executor;
 
 /**
- * Manages blacklist functionality for ModSeeker plugin using Gson
+ * Manages blacklist functionality for ModSeeker plugin using Gson.
+ *
+ * The blacklist is published as an immutable {@link Snapshot} behind a volatile
+ * reference: joins read it without locking or copying, while commands and
+ * reloads compile a new snapshot on the compile executor and swap it in once
+ * it is ready. Until then, joins keep being checked against the previous one.
+ *
+ * For joins, the rules are also kept as bitsets over the {@link ModDictionary},
+ * so a mod list is checked with a word-wise AND and only the hits are looked
+ * at individually.
  */
 public class BlacklistManager {
 
+    /**
+     * An immutable, lowercased view of the blacklist and its compiled rules
+     */
+    public static final class Snapshot {
+        public final long version;
+        public final Set<String> rules;
+        public final Set<String> resourcePackRules;
+        public final Set<String> shaderPackRules;
+        final BlacklistMatcher matcher;
+        final VersionRangeIndex versionRanges;
+        final BlacklistMatcher resourcePackMatcher;
+        final BlacklistMatcher shaderPackMatcher;
+
+        private Snapshot(long version, Set<String> rules, Set<String> resourcePackRules,
+                Set<String> shaderPackRules, BlacklistMatcher matcher, VersionRangeIndex versionRanges,
+                BlacklistMatcher resourcePackMatcher, BlacklistMatcher shaderPackMatcher) {
+            this.version = version;
+            this.rules = rules;
+            this.resourcePackRules = resourcePackRules;
+            this.shaderPackRules = shaderPackRules;
+            this.matcher = matcher;
+            this.versionRanges = versionRanges;
+            this.resourcePackMatcher = resourcePackMatcher;
+            this.shaderPackMatcher = shaderPackMatcher;
+        }
+
+        /**
+         * @param pack The resource pack name, in any case
+         * @return true if a resource pack rule matches it
+         */
+        public boolean isResourcePackBlacklisted(String pack) {
+            return resourcePackMatcher.matches(pack);
+        }
+
+        /**
+         * @param pack The shader pack name, in any case
+         * @return true if a shader pack rule matches it
+         */
+        public boolean isShaderPackBlacklisted(String pack) {
+            return shaderPackMatcher.matches(pack);
+        }
+    }
+
     private final File blacklistFile;
-    private Set<String> blacklistedMods = new HashSet<>();
+    private final ModDictionary dictionary;
+
+    // Main thread only: dictionary IDs matched by the name rules / having version
+    // rules, for the snapshot version in maskVersion and the dictionary generation
+    // in maskGeneration, covering IDs below maskedUpTo
+    private final BitSet blacklistedIds = new BitSet();
+    private final BitSet versionRuledIds = new BitSet();
+    private long maskVersion = -1;
+    private long maskGeneration = -1;
+    private int maskedUpTo = 0;
+
+    private volatile Snapshot snapshot = new Snapshot(0, Collections.emptySet(), Collections.emptySet(),
+            Collections.emptySet(), BlacklistMatcher.compile(Collections.emptyList()),
+            VersionRangeIndex.compile(Collections.emptyList()), BlacklistMatcher.compile(Collections.emptyList()),
+            BlacklistMatcher.compile(Collections.emptyList()));
     private final Gson gson;
 
-    public BlacklistManager(File dataFolder) {
+    // Guarded by the lock: the rules last handed to publish, which the commands
+    // edit and save even while their snapshot is still compiling
+    private Set<String> pendingRules = Collections.emptySet();
+    private Set<String> pendingResourcePackRules = Collections.emptySet();
+    private Set<String> pendingShaderPackRules = Collections.emptySet();
+    private long requestedVersion = 0;
+    // Runs the compile; inline until the plugin hands over an async executor
+    private volatile Executor compiler = Runnable::run;
+
+    public BlacklistManager(File dataFolder, ModDictionary dictionary) {
         this.blacklistFile = new File(dataFolder, "modblacklist.json");
+        this.dictionary = dictionary;
         this.gson = new GsonBuilder().setPrettyPrinting().create();
         loadBlacklist();
     }
 
+    /**
+     * Compile later snapshots on this executor instead of the calling thread
+     *
+     * @param compiler Executor running the rule compilation off the main thread
+     */
+    public void setCompiler(Executor compiler) {
+        this.compiler = compiler;
+    }
+
     /**
      * Data structure for JSON serialization
      */
     private static class BlacklistData {
         String _comment1 = "ModSeeker Blacklist Configuration File";
         String _comment2 = "Add mod IDs to the blacklist array below to prevent players from joining with those mods";
+        String _comment3 = "Entries may be exact IDs, globs like \"wurst*\" or \"*freecam*\", or regexes like \"re:wurst(-plus)?\"";
+        String _comment4 = "To ban only some versions of a mod, use \"freecam@<1.2.0\" or \"xaerominimap@[24.0,24.3)\"";
+        String _comment5 = "resourcePacks and shaderPacks ban packs by name, using the same exact, glob or regex syntax";
         List<String> blacklist = new ArrayList<>();
+        List<String> resourcePacks = new ArrayList<>();
+        List<String> shaderPacks = new ArrayList<>();
     }
 
     /**
      * Method to load blacklist from file
      */
-    public void loadBlacklist() {
+    public synchronized void loadBlacklist() {
+        Set<String> rules = new LinkedHashSet<>();
+        Set<String> resourcePackRules = new LinkedHashSet<>();
+        Set<String> shaderPackRules = new LinkedHashSet<>();
         try {
             if (blacklistFile.exists()) {
                 try (Reader reader = new FileReader(blacklistFile)) {
                     BlacklistData data = gson.fromJson(reader, BlacklistData.class);
 
-                    blacklistedMods.clear();
                     if (data != null && data.blacklist != null) {
                         for (String mod : data.blacklist) {
-                            blacklistedMods.add(mod.toLowerCase());
+                            rules.add(mod.toLowerCase());
                         }
                     }
+                    if (data != null) {
+                        addLowercased(data.resourcePacks, resourcePackRules);
+                        addLowercased(data.shaderPacks, shaderPackRules);
+                    }
                 }
             } else {
                 createDefaultBlacklistFile();
             }
         } catch (Exception e) {
             e.printStackTrace();
-            blacklistedMods.clear();
+            rules.clear();
+            resourcePackRules.clear();
+            shaderPackRules.clear();
+        }
+
+        publish(rules, resourcePackRules, shaderPackRules);
+    }
+
+    /**
+     * Record the rules as pending and compile them on the compile executor, then
+     * swap them in as the new snapshot. A compile that finishes after a newer one
+     * is dropped. Must hold the lock, and the sets must not change afterwards.
+     *
+     * @param rules             The lowercased mod rules
+     * @param resourcePackRules The lowercased resource pack rules
+     * @param shaderPackRules   The lowercased shader pack rules
+     */
+    private void publish(Set<String> rules, Set<String> resourcePackRules, Set<String> shaderPackRules) {
+        pendingRules = Collections.unmodifiableSet(rules);
+        pendingResourcePackRules = Collections.unmodifiableSet(resourcePackRules);
+        pendingShaderPackRules = Collections.unmodifiableSet(shaderPackRules);
+        long version = ++requestedVersion;
+        Set<String> modRules = pendingRules;
+        Set<String> resourcePacks = pendingResourcePackRules;
+        Set<String> shaderPacks = pendingShaderPackRules;
+        compiler.execute(() -> {
+            long start = System.nanoTime();
+            Snapshot compiled = compile(version, modRules, resourcePacks, shaderPacks);
+            if (install(compiled)) {
+                UtilityHelper.logInfo("📂 Blacklist compiled → " + modRules.size() + " rules (version " + version
+                        + ") in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            }
+        });
+    }
+
+    /**
+     * Swap in a compiled snapshot unless a newer one is already active
+     */
+    private synchronized boolean install(Snapshot compiled) {
+        if (compiled.version <= snapshot.version) {
+            return false;
+        }
+        snapshot = compiled;
+        return true;
+    }
+
+    /**
+     * Compile a set of rules into a snapshot. Invalid rules are reported and
+     * skipped, but stay in the file so they can be fixed. Rules too complex for
+     * a single DFA are still enforced, through the matcher's fallbacks.
+     */
+    private static Snapshot compile(long version, Set<String> rules, Set<String> resourcePackRules,
+            Set<String> shaderPackRules) {
+        List<String> idRules = new ArrayList<>();
+        List<String> versionRules = new ArrayList<>();
+        for (String rule : rules) {
+            try {
+                validateRule(rule);
+                (VersionRangeIndex.isVersionRule(rule) ? versionRules : idRules).add(rule);
+            } catch (IllegalArgumentException e) {
+                UtilityHelper.logInfo("⚠️ Skipping invalid blacklist rule \"" + rule + "\": " + e.getMessage());
+            }
+        }
+        BlacklistMatcher matcher = BlacklistMatcher.compile(idRules);
+        reportFallbacks(matcher, "blacklist");
+        VersionRangeIndex versionRanges = VersionRangeIndex.compile(versionRules);
+        BlacklistMatcher resourcePackMatcher = compilePackRules(resourcePackRules, "resource pack");
+        BlacklistMatcher shaderPackMatcher = compilePackRules(shaderPackRules, "shader pack");
+        return new Snapshot(version, rules, resourcePackRules, shaderPackRules, matcher, versionRanges,
+                resourcePackMatcher, shaderPackMatcher);
+    }
+
+    private static BlacklistMatcher compilePackRules(Set<String> rules, String kind) {
+        List<String> valid = new ArrayList<>();
+        for (String rule : rules) {
+            try {
+                BlacklistMatcher.validate(rule);
+                valid.add(rule);
+            } catch (IllegalArgumentException e) {
+                UtilityHelper.logInfo("⚠️ Skipping invalid " + kind + " rule \"" + rule + "\": " + e.getMessage());
+            }
+        }
+        BlacklistMatcher matcher = BlacklistMatcher.compile(valid);
+        reportFallbacks(matcher, kind);
+        return matcher;
+    }
+
+    /**
+     * Log when rules didn't fit a single DFA, since matching them gets slower
+     */
+    private static void reportFallbacks(BlacklistMatcher matcher, String kind) {
+        if (matcher.getDfaCount() > 1) {
+            UtilityHelper.logInfo("⚠️ Too many complex " + kind + " rules for one automaton, split into "
+                    + matcher.getDfaCount());
+        }
+        for (String rule : matcher.getSimulatedRules()) {
+            UtilityHelper.logInfo("⚠️ The " + kind + " rule \"" + rule
+                    + "\" is too complex for an automaton and is matched more slowly");
+        }
+    }
+
+    private static void addLowercased(List<String> source, Set<String> target) {
+        if (source != null) {
+            for (String rule : source) {
+                target.add(rule.toLowerCase());
+            }
+        }
+    }
+
+    private static void validateRule(String rule) {
+        if (VersionRangeIndex.isVersionRule(rule)) {
+            VersionRangeIndex.validate(rule);
+        } else {
+            BlacklistMatcher.validate(rule);
         }
     }
 
@@ -89,12 +299,14 @@ public class BlacklistManager {
     }
 
     /**
-     * Save blacklist to file
+     * Save blacklist to file, including rules whose snapshot is still compiling
      */
-    public void saveBlacklist() {
+    public synchronized void saveBlacklist() {
         try {
             BlacklistData data = new BlacklistData();
-            data.blacklist = new ArrayList<>(blacklistedMods);
+            data.blacklist = new ArrayList<>(pendingRules);
+            data.resourcePacks = new ArrayList<>(pendingResourcePackRules);
+            data.shaderPacks = new ArrayList<>(pendingShaderPackRules);
 
             try (Writer writer = new FileWriter(blacklistFile)) {
                 gson.toJson(data, writer);
@@ -105,15 +317,33 @@ public class BlacklistManager {
     }
 
     /**
-     * Check for blacklisted mods in a mod list
+     * Check for blacklisted mods in a mod list. The list, already interned into
+     * the mod dictionary, is ANDed with the blacklist bitsets; only mods that hit
+     * are checked one by one, versions included. Main thread only.
      * 
-     * @param modList The list of mods to check
+     * @param modList  The list of mods to check
+     * @param versions The version of each mod, by index ("" if unknown)
+     * @param ids      The dictionary ID of each mod, by index (-1 if it wasn't
+     *                 interned)
      * @return List of blacklisted mods found
      */
-    public List<String> checkForBlacklistedMods(List<String> modList) {
+    public List<String> checkForBlacklistedMods(List<String> modList, List<String> versions, int[] ids) {
+        Snapshot current = snapshot;
+        refreshMasks(current);
+
+        BitSet present = ModDictionary.toBitSet(ids);
+        boolean overflow = ModDictionary.containsUninterned(ids);
         List<String> blacklistedFound = new ArrayList<>();
-        for (String mod : modList) {
-            if (blacklistedMods.contains(mod.toLowerCase())) {
+        if (!overflow && !present.intersects(blacklistedIds) && !present.intersects(versionRuledIds)) {
+            return blacklistedFound;
+        }
+
+        for (int i = 0; i < modList.size(); i++) {
+            String mod = modList.get(i);
+            int id = ids[i];
+            boolean nameHit = id >= 0 ? blacklistedIds.get(id) : current.matcher.matches(mod);
+            boolean versioned = id >= 0 ? versionRuledIds.get(id) : current.versionRanges.hasRules(mod);
+            if (nameHit || (versioned && current.versionRanges.matches(mod, versions.get(i)))) {
                 blacklistedFound.add(mod);
             }
         }
@@ -121,17 +351,53 @@ public class BlacklistManager {
     }
 
     /**
-     * Add a mod to the blacklist
+     * Bring the blacklist bitsets up to date with the snapshot and with IDs added
+     * to the dictionary since the last check
+     */
+    private void refreshMasks(Snapshot current) {
+        if (current.version != maskVersion || dictionary.generation() != maskGeneration) {
+            blacklistedIds.clear();
+            versionRuledIds.clear();
+            maskedUpTo = 0;
+            maskVersion = current.version;
+            maskGeneration = dictionary.generation();
+        }
+        int size = dictionary.size();
+        for (int id = maskedUpTo; id < size; id++) {
+            String name = dictionary.name(id);
+            if (current.matcher.matches(name)) {
+                blacklistedIds.set(id);
+            }
+            if (current.versionRanges.hasRules(name)) {
+                versionRuledIds.set(id);
+            }
+        }
+        maskedUpTo = size;
+    }
+
+    /**
+     * Add a mod (or a glob, regex or version range rule) to the blacklist
      * 
-     * @param modId The mod ID to add
+     * @param modId The mod ID or rule to add
      * @return true if the mod was added, false if it was already blacklisted
+     * @throws IllegalArgumentException if the rule is invalid, or too complex to
+     *                                  compile into an automaton
      */
-    public boolean addBlacklistedMod(String modId) {
-        boolean added = blacklistedMods.add(modId.toLowerCase());
-        if (added) {
-            saveBlacklist();
+    public synchronized boolean addBlacklistedMod(String modId) {
+        String rule = modId.toLowerCase();
+        validateRule(rule);
+        if (!VersionRangeIndex.isVersionRule(rule)) {
+            // The rules are split across automata as needed, so the combined set
+            // compiles exactly when each rule fits one on its own
+            BlacklistMatcher.validateComplexity(rule);
         }
-        return added;
+        Set<String> rules = new LinkedHashSet<>(pendingRules);
+        if (!rules.add(rule)) {
+            return false;
+        }
+        publish(rules, pendingResourcePackRules, pendingShaderPackRules);
+        saveBlacklist();
+        return true;
     }
 
     /**
@@ -140,30 +406,47 @@ public class BlacklistManager {
      * @param modId The mod ID to remove
      * @return true if the mod was removed, false if it wasn't in the blacklist
      */
-    public boolean removeBlacklistedMod(String modId) {
-        boolean removed = blacklistedMods.remove(modId.toLowerCase());
-        if (removed) {
-            saveBlacklist();
+    public synchronized boolean removeBlacklistedMod(String modId) {
+        Set<String> rules = new LinkedHashSet<>(pendingRules);
+        if (!rules.remove(modId.toLowerCase())) {
+            return false;
         }
-        return removed;
+        publish(rules, pendingResourcePackRules, pendingShaderPackRules);
+        saveBlacklist();
+        return true;
     }
 
     /**
-     * Get the current blacklist
+     * Get the current blacklist, including rules that are still compiling
      * 
-     * @return Set of blacklisted mod IDs
+     * @return Unmodifiable set of blacklisted mod IDs and rules, lowercased
+     */
+    public synchronized Set<String> getBlacklistedMods() {
+        return pendingRules;
+    }
+
+    /**
+     * @return The current snapshot, for reading the rules and their version
+     *         consistently
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return Version of the blacklist, increased every time it changes
      */
-    public Set<String> getBlacklistedMods() {
-        return new HashSet<>(blacklistedMods);
+    public long getVersion() {
+        return snapshot.version;
     }
 
     /**
-     * Check if a mod is blacklisted
+     * Check if a mod is blacklisted, whatever its version
      * 
      * @param modId The mod ID to check
      * @return true if the mod is blacklisted, false otherwise
      */
     public boolean isModBlacklisted(String modId) {
-        return blacklistedMods.contains(modId.toLowerCase());
+        return snapshot.matcher.matches(modId);
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,959 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All blacklist rules compiled into a DFA, so a mod ID is checked against every
+ * rule in one pass over its characters. Exact IDs and simple globs keep the DFA
+ * small however many there are, but some globs multiply its states (each
+ * {@code *x*y*} rule roughly doubles them). Rules whose combined DFA would be
+ * too large are split into several DFAs, and a rule too large on its own is
+ * matched by simulating its NFA, so a rule is never dropped for its size.
+ *
+ * Rule syntax (always matched against the whole, lowercased mod ID):
+ * <ul>
+ * <li>{@code wurst} — exact mod ID</li>
+ * <li>{@code wurst*}, {@code *wurst*}, {@code meteor?client} — glob, where
+ * {@code *} is any run of characters and {@code ?} a single character</li>
+ * <li>{@code re:wurst(-plus|client_.*)?} — regular expression using literals,
+ * {@code .}, {@code [...]} classes, groups, {@code |} and {@code * + ?}</li>
+ * </ul>
+ *
+ * Instances are immutable and safe to share between threads.
+ */
+public final class BlacklistMatcher {
+
+    public static final String REGEX_PREFIX = "re:";
+
+    // Largest DFA built for a group of rules; bigger groups are split
+    private static final int MAX_DFA_STATES = 20000;
+
+    // Character 128 stands for every non-ASCII character
+    private static final int ALPHABET = 129;
+    private static final int NON_ASCII = 128;
+
+    private static final int DEAD = 0;
+
+    private final List<String> rules;
+    // Each part matches the rules from its offset up to the next part's offset
+    private final Part[] parts;
+    private final int[] offsets;
+
+    /**
+     * Compile the given rules into one matcher
+     *
+     * @param rules The blacklist rules, already lowercased
+     * @throws IllegalArgumentException if a rule is invalid
+     */
+    public static BlacklistMatcher compile(List<String> rules) {
+        List<String> copy = new ArrayList<>(rules);
+        List<Part> parts = new ArrayList<>();
+        IntList offsets = new IntList();
+        compileRange(copy, 0, copy.size(), parts, offsets);
+        return new BlacklistMatcher(copy, parts.toArray(new Part[0]), offsets.toArray());
+    }
+
+    /**
+     * Compile rules [from, to) into one DFA, or halve the range until each half
+     * fits
+     */
+    private static void compileRange(List<String> rules, int from, int to, List<Part> parts, IntList offsets) {
+        if (from == to) {
+            return;
+        }
+        try {
+            parts.add(new Dfa(rules.subList(from, to)));
+            offsets.add(from);
+        } catch (TooComplexException e) {
+            if (to - from == 1) {
+                parts.add(new Simulation(rules.get(from)));
+                offsets.add(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            compileRange(rules, from, middle, parts, offsets);
+            compileRange(rules, middle, to, parts, offsets);
+        }
+    }
+
+    /**
+     * Check that a single rule can be compiled
+     *
+     * @throws IllegalArgumentException with the reason if it can't
+     */
+    public static void validate(String rule) {
+        new Nfa().addRule(rule, 0);
+    }
+
+    /**
+     * Check that a single rule fits a DFA of its own. A rule that doesn't is
+     * still matched, but by the slower NFA simulation.
+     *
+     * @throws IllegalArgumentException if the rule is invalid or too complex
+     */
+    public static void validateComplexity(String rule) {
+        try {
+            new Dfa(List.of(rule));
+        } catch (TooComplexException e) {
+            throw new IllegalArgumentException("Rule is too complex (more than " + MAX_DFA_STATES + " states)");
+        }
+    }
+
+    private BlacklistMatcher(List<String> rules, Part[] parts, int[] offsets) {
+        this.rules = rules;
+        this.parts = parts;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Find the rule matching a mod ID
+     *
+     * @param modId The mod ID, in any case
+     * @return Index of a matching rule, or -1 if none matches
+     */
+    public int match(String modId) {
+        for (int i = 0; i < parts.length; i++) {
+            int rule = parts[i].match(modId);
+            if (rule >= 0) {
+                return offsets[i] + rule;
+            }
+        }
+        return -1;
+    }
+
+    private static int symbol(char c) {
+        if (c >= NON_ASCII) {
+            return NON_ASCII;
+        } else if (c >= 'A' && c <= 'Z') {
+            return c + ('a' - 'A');
+        }
+        return c;
+    }
+
+    private static boolean allEqual(int[] row, int value) {
+        for (int target : row) {
+            if (target != value) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean matches(String modId) {
+        return match(modId) >= 0;
+    }
+
+    public String getRule(int index) {
+        return rules.get(index);
+    }
+
+    public List<String> getRules() {
+        return rules;
+    }
+
+    /**
+     * @return Total number of states of all DFAs
+     */
+    public int getStateCount() {
+        int states = 0;
+        for (Part part : parts) {
+            if (part instanceof Dfa) {
+                states += ((Dfa) part).acceptRule.length;
+            }
+        }
+        return states;
+    }
+
+    /**
+     * @return Number of DFAs the rules were split into
+     */
+    public int getDfaCount() {
+        int count = 0;
+        for (Part part : parts) {
+            if (part instanceof Dfa) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The rules too complex for a DFA, matched by NFA simulation
+     */
+    public List<String> getSimulatedRules() {
+        List<String> simulated = new ArrayList<>();
+        for (int i = 0; i < parts.length; i++) {
+            if (parts[i] instanceof Simulation) {
+                simulated.add(rules.get(offsets[i]));
+            }
+        }
+        return simulated;
+    }
+
+    /**
+     * A compiled group of rules
+     */
+    private interface Part {
+        /**
+         * @return Index of a matching rule within the group, or -1
+         */
+        int match(String modId);
+    }
+
+    /**
+     * Thrown while building a DFA that would exceed {@link #MAX_DFA_STATES}
+     */
+    private static final class TooComplexException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        TooComplexException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Rules compiled into a single DFA by subset construction
+     */
+    private static final class Dfa implements Part {
+        private final int[] charClasses = new int[ALPHABET];
+        private final int classCount;
+        private final int start;
+        private final int[] transitions;
+        private final int[] acceptRule;
+        private final boolean[] absorbing;
+
+        Dfa(List<String> rules) {
+            Nfa nfa = new Nfa();
+            for (int i = 0; i < rules.size(); i++) {
+                nfa.addRule(rules.get(i), i);
+            }
+            int nfaStart = nfa.unionStart();
+
+            // Split the alphabet into classes of characters no rule can tell apart
+            Map<BitSet, Integer> signatures = new HashMap<>();
+            int[] representative = new int[ALPHABET];
+            for (int c = 0; c < ALPHABET; c++) {
+                BitSet signature = new BitSet();
+                for (int set = 0; set < nfa.charSets.size(); set++) {
+                    if (nfa.charSets.get(set).get(c)) {
+                        signature.set(set);
+                    }
+                }
+                Integer cls = signatures.get(signature);
+                if (cls == null) {
+                    cls = signatures.size();
+                    signatures.put(signature, cls);
+                    representative[cls] = c;
+                }
+                charClasses[c] = cls;
+            }
+            this.classCount = signatures.size();
+
+            // Classes covered by each character set, so a DFA state is expanded in one pass
+            int[][] setClasses = new int[nfa.charSets.size()][];
+            for (int set = 0; set < setClasses.length; set++) {
+                IntList covered = new IntList();
+                for (int cls = 0; cls < classCount; cls++) {
+                    if (nfa.charSets.get(set).get(representative[cls])) {
+                        covered.add(cls);
+                    }
+                }
+                setClasses[set] = covered.toArray();
+            }
+
+            // Subset construction; DFA state 0 is the dead state
+            Map<StateKey, Integer> dfaStates = new HashMap<>();
+            List<int[]> dfaSets = new ArrayList<>();
+            dfaSets.add(new int[0]);
+            dfaStates.put(new StateKey(new int[0]), DEAD);
+
+            int[] startSet = nfa.closure(new int[] { nfaStart });
+            dfaStates.put(new StateKey(startSet), 1);
+            dfaSets.add(startSet);
+            this.start = 1;
+
+            List<int[]> rows = new ArrayList<>();
+            rows.add(new int[classCount]); // The dead state loops to itself
+            ArrayDeque<Integer> pending = new ArrayDeque<>();
+            pending.add(1);
+            rows.add(null);
+
+            while (!pending.isEmpty()) {
+                int dfaState = pending.poll();
+                int[] nfaStates = dfaSets.get(dfaState);
+                int[] row = new int[classCount];
+                int universalRule = nfa.universalRule(nfaStates);
+                if (universalRule >= 0) {
+                    // A rule like "wurst*" already matched; no need to track the rest of the ID
+                    dfaSets.set(dfaState, nfa.matchStateOf(universalRule));
+                    Arrays.fill(row, dfaState);
+                    rows.set(dfaState, row);
+                    continue;
+                }
+                int[][] moves = nfa.step(nfaStates, setClasses, classCount);
+                for (int cls = 0; cls < classCount; cls++) {
+                    int[] next = moves[cls];
+                    if (next.length == 0) {
+                        row[cls] = DEAD;
+                        continue;
+                    }
+                    StateKey key = new StateKey(next);
+                    Integer target = dfaStates.get(key);
+                    if (target == null) {
+                        target = dfaSets.size();
+                        if (target >= MAX_DFA_STATES) {
+                            throw new TooComplexException(
+                                    "Blacklist rules are too complex (more than " + MAX_DFA_STATES + " states)");
+                        }
+                        dfaStates.put(key, target);
+                        dfaSets.add(next);
+                        rows.add(null);
+                        pending.add(target);
+                    }
+                    row[cls] = target;
+                }
+                rows.set(dfaState, row);
+            }
+
+            this.transitions = new int[rows.size() * classCount];
+            this.acceptRule = new int[rows.size()];
+            this.absorbing = new boolean[rows.size()];
+            for (int state = 0; state < rows.size(); state++) {
+                System.arraycopy(rows.get(state), 0, transitions, state * classCount, classCount);
+                absorbing[state] = state != DEAD && rows.get(state)[0] == state && allEqual(rows.get(state), state);
+                int accept = -1;
+                for (int nfaState : dfaSets.get(state)) {
+                    int rule = nfa.matchRule.get(nfaState);
+                    if (rule >= 0 && (accept == -1 || rule < accept)) {
+                        accept = rule;
+                    }
+                }
+                acceptRule[state] = accept;
+            }
+        }
+
+        @Override
+        public int match(String modId) {
+            int state = start;
+            for (int i = 0; i < modId.length(); i++) {
+                state = transitions[state * classCount + charClasses[symbol(modId.charAt(i))]];
+                if (state == DEAD) {
+                    return -1;
+                }
+                if (absorbing[state]) {
+                    return acceptRule[state];
+                }
+            }
+            return acceptRule[state];
+        }
+    }
+
+    /**
+     * A single rule matched by stepping through its NFA state sets, for rules
+     * whose DFA would be too large
+     */
+    private static final class Simulation implements Part {
+        private final BitSet[] consumes;
+        private final int[][] follow;
+        private final int[] start;
+        private final boolean[] accepting;
+
+        Simulation(String rule) {
+            Nfa nfa = new Nfa();
+            nfa.addRule(rule, 0);
+            int nfaStart = nfa.unionStart();
+
+            int stateCount = nfa.charSet.size();
+            this.consumes = new BitSet[stateCount];
+            this.follow = new int[stateCount][];
+            this.accepting = new boolean[stateCount];
+            for (int state = 0; state < stateCount; state++) {
+                int set = nfa.charSet.get(state);
+                if (set != Nfa.EPSILON) {
+                    consumes[state] = nfa.charSets.get(set);
+                    follow[state] = nfa.closure(new int[] { nfa.out1.get(state) });
+                }
+                accepting[state] = nfa.matchRule.get(state) >= 0;
+            }
+            this.start = nfa.closure(new int[] { nfaStart });
+        }
+
+        @Override
+        public int match(String modId) {
+            int[] states = start;
+            BitSet next = new BitSet(follow.length);
+            for (int i = 0; i < modId.length(); i++) {
+                int symbol = symbol(modId.charAt(i));
+                next.clear();
+                for (int state : states) {
+                    if (consumes[state] != null && consumes[state].get(symbol)) {
+                        for (int target : follow[state]) {
+                            next.set(target);
+                        }
+                    }
+                }
+                if (next.isEmpty()) {
+                    return -1;
+                }
+                states = next.stream().toArray();
+            }
+            for (int state : states) {
+                if (accepting[state]) {
+                    return 0;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Sorted NFA state set used as a DFA state key
+     */
+    private static final class StateKey {
+        private final int[] states;
+        private final int hash;
+
+        StateKey(int[] states) {
+            this.states = states;
+            this.hash = Arrays.hashCode(states);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof StateKey && Arrays.equals(states, ((StateKey) other).states);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Thompson NFA built from all rules. Every rule fragment ends in an epsilon
+     * state whose out1 is patched when fragments are joined.
+     */
+    private static final class Nfa {
+        static final int EPSILON = -1;
+
+        final IntList charSet = new IntList();
+        final IntList out1 = new IntList();
+        final IntList out2 = new IntList();
+        final IntList matchRule = new IntList();
+        final List<BitSet> charSets = new ArrayList<>();
+        final Map<BitSet, Integer> charSetIds = new HashMap<>();
+        final int anyCharSet = charSetId(anyChar());
+
+        // "Any character" loops that lead straight to a match: once such a loop is
+        // reached, every continuation of the mod ID matches that rule
+        final Map<Integer, Integer> universalLoops = new HashMap<>();
+        final Map<Integer, Integer> matchStates = new HashMap<>();
+        private final List<int[]> loopCandidates = new ArrayList<>();
+
+        final IntList anchoredStarts = new IntList();
+        final IntList unanchoredStarts = new IntList();
+
+        // Epsilon closure after each character state, filled during subset construction
+        private int[][] followCache;
+
+        int newState(int set, int next) {
+            charSet.add(set);
+            out1.add(next);
+            out2.add(-1);
+            matchRule.add(-1);
+            return charSet.size() - 1;
+        }
+
+        int charSetId(BitSet set) {
+            Integer id = charSetIds.get(set);
+            if (id == null) {
+                id = charSets.size();
+                charSets.add(set);
+                charSetIds.put(set, id);
+            }
+            return id;
+        }
+
+        /**
+         * Add a rule; its start state goes to anchoredStarts, or to
+         * unanchoredStarts for globs with a leading '*' (which is left out)
+         */
+        void addRule(String rule, int ruleIndex) {
+            if (rule.isEmpty()) {
+                throw new IllegalArgumentException("Empty rule");
+            }
+            int[] fragment;
+            if (rule.startsWith(REGEX_PREFIX)) {
+                fragment = new RegexParser(this, rule.substring(REGEX_PREFIX.length())).parse();
+                anchoredStarts.add(fragment[0]);
+            } else if (rule.startsWith("*")) {
+                int body = 0;
+                while (body < rule.length() && rule.charAt(body) == '*') {
+                    body++;
+                }
+                fragment = glob(rule.substring(body));
+                unanchoredStarts.add(fragment[0]);
+            } else {
+                fragment = glob(rule);
+                anchoredStarts.add(fragment[0]);
+            }
+            int match = newState(EPSILON, -1);
+            matchRule.set(match, ruleIndex);
+            matchStates.put(ruleIndex, match);
+            out1.set(fragment[1], match);
+
+            for (int[] loop : loopCandidates) {
+                if (epsilonReaches(loop[1], match)) {
+                    universalLoops.put(loop[0], ruleIndex);
+                }
+            }
+            loopCandidates.clear();
+        }
+
+        /**
+         * Join every added rule under one start state
+         *
+         * @return The start state
+         */
+        int unionStart() {
+            int nfaStart = newState(EPSILON, -1);
+            // Union of all rules: one epsilon chain fanning out into every rule. Globs
+            // starting with '*' hang off one shared "any prefix" loop instead of each
+            // carrying their own
+            int tail = fanOut(nfaStart, anchoredStarts);
+            int sharedLoop = newState(EPSILON, -1);
+            int sharedAny = newState(anyCharSet, sharedLoop);
+            out1.set(tail, sharedLoop);
+            out2.set(sharedLoop, sharedAny);
+            out1.set(sharedLoop, newState(EPSILON, -1));
+            fanOut(out1.get(sharedLoop), unanchoredStarts);
+            return nfaStart;
+        }
+
+        /**
+         * Chain epsilon splits from a state into every start state
+         *
+         * @return The last state of the chain
+         */
+        int fanOut(int from, IntList starts) {
+            int tail = from;
+            for (int i = 0; i < starts.size(); i++) {
+                int split = newState(EPSILON, -1);
+                out1.set(tail, split);
+                out2.set(split, starts.get(i));
+                tail = split;
+            }
+            return tail;
+        }
+
+        /**
+         * @return The rule of the first universal loop in the set, or -1
+         */
+        int universalRule(int[] states) {
+            for (int state : states) {
+                Integer rule = universalLoops.get(state);
+                if (rule != null) {
+                    return rule;
+                }
+            }
+            return -1;
+        }
+
+        int[] matchStateOf(int rule) {
+            return new int[] { matchStates.get(rule) };
+        }
+
+        private boolean epsilonReaches(int from, int target) {
+            BitSet seen = new BitSet();
+            ArrayDeque<Integer> stack = new ArrayDeque<>();
+            stack.push(from);
+            while (!stack.isEmpty()) {
+                int state = stack.pop();
+                if (state == target) {
+                    return true;
+                }
+                if (state < 0 || seen.get(state) || charSet.get(state) != EPSILON) {
+                    continue;
+                }
+                seen.set(state);
+                stack.push(out1.get(state));
+                stack.push(out2.get(state));
+            }
+            return false;
+        }
+
+        int[] glob(String pattern) {
+            int[] result = empty();
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                int[] atom;
+                if (c == '*') {
+                    atom = star(literal(anyChar()));
+                } else if (c == '?') {
+                    atom = literal(anyChar());
+                } else {
+                    atom = literal(singleChar(c));
+                }
+                result = concat(result, atom);
+            }
+            return result;
+        }
+
+        // Fragment builders; a fragment is {start, end}
+
+        int[] empty() {
+            int state = newState(EPSILON, -1);
+            return new int[] { state, state };
+        }
+
+        int[] literal(BitSet set) {
+            int end = newState(EPSILON, -1);
+            int state = newState(charSetId(set), end);
+            return new int[] { state, end };
+        }
+
+        int[] concat(int[] a, int[] b) {
+            out1.set(a[1], b[0]);
+            return new int[] { a[0], b[1] };
+        }
+
+        int[] alternate(int[] a, int[] b) {
+            int end = newState(EPSILON, -1);
+            int split = newState(EPSILON, a[0]);
+            out2.set(split, b[0]);
+            out1.set(a[1], end);
+            out1.set(b[1], end);
+            return new int[] { split, end };
+        }
+
+        int[] star(int[] a) {
+            int end = newState(EPSILON, -1);
+            int split = newState(EPSILON, a[0]);
+            out2.set(split, end);
+            out1.set(a[1], split);
+            if (charSet.get(a[0]) == anyCharSet) {
+                loopCandidates.add(new int[] { a[0], end });
+            }
+            return new int[] { split, end };
+        }
+
+        int[] plus(int[] a) {
+            int end = newState(EPSILON, -1);
+            int split = newState(EPSILON, a[0]);
+            out2.set(split, end);
+            out1.set(a[1], split);
+            return new int[] { a[0], end };
+        }
+
+        int[] optional(int[] a) {
+            int end = newState(EPSILON, -1);
+            int split = newState(EPSILON, a[0]);
+            out2.set(split, end);
+            out1.set(a[1], end);
+            return new int[] { split, end };
+        }
+
+        static BitSet anyChar() {
+            BitSet set = new BitSet(ALPHABET);
+            set.set(0, ALPHABET);
+            return set;
+        }
+
+        static BitSet singleChar(char c) {
+            BitSet set = new BitSet(ALPHABET);
+            set.set(symbolOf(c));
+            return set;
+        }
+
+        static int symbolOf(char c) {
+            return c >= NON_ASCII ? NON_ASCII : Character.toLowerCase(c);
+        }
+
+        /**
+         * Epsilon closure, keeping only the states that consume a character or
+         * accept, sorted so equal sets compare equal
+         */
+        int[] closure(int[] states) {
+            BitSet seen = new BitSet();
+            BitSet kept = new BitSet();
+            ArrayDeque<Integer> stack = new ArrayDeque<>();
+            for (int state : states) {
+                stack.push(state);
+            }
+            while (!stack.isEmpty()) {
+                int state = stack.pop();
+                if (state < 0 || seen.get(state)) {
+                    continue;
+                }
+                seen.set(state);
+                if (charSet.get(state) != EPSILON || matchRule.get(state) >= 0) {
+                    kept.set(state);
+                }
+                if (charSet.get(state) == EPSILON) {
+                    stack.push(out1.get(state));
+                    stack.push(out2.get(state));
+                }
+            }
+            return kept.stream().toArray();
+        }
+
+        /**
+         * States reached from a state set by each character class, already
+         * epsilon-closed and sorted
+         */
+        private static int[] sortedUnique(int[] states) {
+            Arrays.sort(states);
+            int size = 0;
+            for (int i = 0; i < states.length; i++) {
+                if (size == 0 || states[size - 1] != states[i]) {
+                    states[size++] = states[i];
+                }
+            }
+            return size == states.length ? states : Arrays.copyOf(states, size);
+        }
+
+        int[][] step(int[] states, int[][] setClasses, int classCount) {
+            if (followCache == null) {
+                followCache = new int[charSet.size()][];
+            }
+            IntList[] buckets = new IntList[classCount];
+            for (int state : states) {
+                int set = charSet.get(state);
+                if (set == EPSILON) {
+                    continue;
+                }
+                int[] follow = followCache[state];
+                if (follow == null) {
+                    follow = closure(new int[] { out1.get(state) });
+                    followCache[state] = follow;
+                }
+                for (int cls : setClasses[set]) {
+                    IntList bucket = buckets[cls];
+                    if (bucket == null) {
+                        bucket = new IntList();
+                        buckets[cls] = bucket;
+                    }
+                    for (int target : follow) {
+                        bucket.add(target);
+                    }
+                }
+            }
+            int[][] result = new int[classCount][];
+            for (int cls = 0; cls < classCount; cls++) {
+                if (buckets[cls] == null) {
+                    result[cls] = new int[0];
+                } else {
+                    result[cls] = sortedUnique(buckets[cls].toArray());
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Recursive descent parser for the supported regular expression subset
+     */
+    private static final class RegexParser {
+        private final Nfa nfa;
+        private final String pattern;
+        private int pos = 0;
+
+        RegexParser(Nfa nfa, String pattern) {
+            this.nfa = nfa;
+            this.pattern = pattern;
+        }
+
+        int[] parse() {
+            // The whole mod ID is always matched, so anchors are redundant
+            if (pattern.startsWith("^")) {
+                pos++;
+            }
+            int[] result = alternation();
+            if (pos < pattern.length() && pattern.charAt(pos) == '$' && pos == pattern.length() - 1) {
+                pos++;
+            }
+            if (pos < pattern.length()) {
+                throw error("Unexpected '" + pattern.charAt(pos) + "'");
+            }
+            return result;
+        }
+
+        private int[] alternation() {
+            int[] result = sequence();
+            while (pos < pattern.length() && pattern.charAt(pos) == '|') {
+                pos++;
+                result = nfa.alternate(result, sequence());
+            }
+            return result;
+        }
+
+        private int[] sequence() {
+            int[] result = nfa.empty();
+            while (pos < pattern.length()) {
+                char c = pattern.charAt(pos);
+                if (c == '|' || c == ')' || (c == '$' && pos == pattern.length() - 1)) {
+                    break;
+                }
+                result = nfa.concat(result, repetition());
+            }
+            return result;
+        }
+
+        private int[] repetition() {
+            int[] result = atom();
+            while (pos < pattern.length()) {
+                char c = pattern.charAt(pos);
+                if (c == '*') {
+                    result = nfa.star(result);
+                } else if (c == '+') {
+                    result = nfa.plus(result);
+                } else if (c == '?') {
+                    result = nfa.optional(result);
+                } else if (c == '{') {
+                    throw error("Counted repetition {n,m} is not supported");
+                } else {
+                    break;
+                }
+                pos++;
+            }
+            return result;
+        }
+
+        private int[] atom() {
+            char c = pattern.charAt(pos++);
+            switch (c) {
+                case '(':
+                    if (pattern.startsWith("?:", pos)) {
+                        pos += 2;
+                    }
+                    int[] group = alternation();
+                    if (pos >= pattern.length() || pattern.charAt(pos) != ')') {
+                        throw error("Missing ')'");
+                    }
+                    pos++;
+                    return group;
+                case '[':
+                    return nfa.literal(charClass());
+                case '.':
+                    return nfa.literal(Nfa.anyChar());
+                case '\\':
+                    return nfa.literal(Nfa.singleChar(escaped()));
+                case '*':
+                case '+':
+                case '?':
+                    throw error("Nothing to repeat before '" + c + "'");
+                default:
+                    return nfa.literal(Nfa.singleChar(c));
+            }
+        }
+
+        private BitSet charClass() {
+            BitSet set = new BitSet(ALPHABET);
+            boolean negated = pos < pattern.length() && pattern.charAt(pos) == '^';
+            if (negated) {
+                pos++;
+            }
+            boolean first = true;
+            while (pos < pattern.length() && (pattern.charAt(pos) != ']' || first)) {
+                first = false;
+                char low = pattern.charAt(pos++);
+                if (low == '\\') {
+                    low = escaped();
+                }
+                char high = low;
+                if (pos + 1 < pattern.length() && pattern.charAt(pos) == '-' && pattern.charAt(pos + 1) != ']') {
+                    pos++;
+                    high = pattern.charAt(pos++);
+                    if (high == '\\') {
+                        high = escaped();
+                    }
+                    if (high < low) {
+                        throw error("Invalid range " + low + "-" + high);
+                    }
+                }
+                for (char ch = low; ch <= high && ch < NON_ASCII; ch++) {
+                    set.set(Nfa.symbolOf(ch));
+                }
+                if (high >= NON_ASCII) {
+                    set.set(NON_ASCII);
+                }
+            }
+            if (pos >= pattern.length()) {
+                throw error("Missing ']'");
+            }
+            pos++;
+            if (negated) {
+                set.flip(0, ALPHABET);
+            }
+            return set;
+        }
+
+        private char escaped() {
+            if (pos >= pattern.length()) {
+                throw error("Trailing '\\'");
+            }
+            char c = pattern.charAt(pos++);
+            if (Character.isLetterOrDigit(c)) {
+                throw error("Escape \\" + c + " is not supported");
+            }
+            return c;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " in regex '" + pattern + "'");
+        }
+    }
+
+    /**
+     * Minimal growable int list, to keep the NFA out of boxed collections
+     */
+    private static final class IntList {
+        private int[] values = new int[64];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        void set(int index, int value) {
+            values[index] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
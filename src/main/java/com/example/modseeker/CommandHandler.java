@@ -47,7 +47,8 @@ public class CommandHandler implements TabExecutor {
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if (command.getName().equalsIgnoreCase("modseeker")) {
             if (args.length < 1) {
-                sender.sendMessage(ChatColor.RED + "Usage: /modseeker <seek|modblacklist|whitelist|reload|status>");
+                sender.sendMessage(ChatColor.RED
+                        + "Usage: /modseeker <seek|modblacklist|whitelist|profile|reload|status>");
                 return true;
             }
 
@@ -60,18 +61,27 @@ public class CommandHandler implements TabExecutor {
                     return handleModBlacklistCommand(sender, args);
                 case "whitelist":
                     return handleWhitelistCommand(sender, args);
+                case "profile":
+                    return handleProfileCommand(sender, args);
                 case "reload":
                     configManager.loadConfig();
                     blacklistManager.loadBlacklist();
                     whitelistManager.loadWhitelist();
+                    plugin.getProfileManager().loadProfiles();
+                    List<String> policyErrors = plugin.getPolicyManager().loadPolicy();
                     sender.sendMessage(ChatColor.GREEN + "ModSeeker configuration and lists reloaded successfully.");
+                    if (!policyErrors.isEmpty()) {
+                        sender.sendMessage(ChatColor.RED + "policy.txt has errors, keeping the previous policy:");
+                        for (String error : policyErrors) {
+                            sender.sendMessage(ChatColor.RED + "  " + error);
+                        }
+                    }
                     return true;
                 case "status":
-                    sender.sendMessage(ChatColor.RED + "Status command not implemented yet.");
-                    return true;
+                    return handleStatusCommand(sender);
                 default:
                     sender.sendMessage(ChatColor.RED
-                            + "Unknown subcommand. Usage: /modseeker <seek|modblacklist|whitelist|reload|status>");
+                            + "Unknown subcommand. Usage: /modseeker <seek|modblacklist|whitelist|profile|reload|status>");
                     return true;
             }
         }
@@ -92,14 +102,13 @@ public class CommandHandler implements TabExecutor {
             return true;
         }
 
-        UUID playerId = targetPlayer.getUniqueId();
-        PlayerDataManager.PlayerModCheckData seekCheckData = new PlayerDataManager.PlayerModCheckData(playerId,
-                playerName);
-
-        seekCheckData.handshakeCompleted = false;
-        plugin.getSeekRequests().put(playerId, seekCheckData);
+        PlayerSession session = plugin.getPlayerDataManager().getSession(targetPlayer.getUniqueId());
+        if (session == null) {
+            sender.sendMessage(ChatColor.RED + "Player " + playerName + " has no active session.");
+            return true;
+        }
 
-        plugin.getMessageHandler().sendModListRequest(targetPlayer, seekCheckData);
+        plugin.getMessageHandler().sendModListRequest(targetPlayer, session, session.beginSeek());
         sender.sendMessage(ChatColor.GREEN + "Sent mod list request to " + playerName + ". Check chat for results.");
         return true;
     }
@@ -119,7 +128,14 @@ public class CommandHandler implements TabExecutor {
             }
 
             String modId = args[2].toLowerCase();
-            if (blacklistManager.addBlacklistedMod(modId)) {
+            boolean added;
+            try {
+                added = blacklistManager.addBlacklistedMod(modId);
+            } catch (IllegalArgumentException e) {
+                sender.sendMessage(ChatColor.RED + "Invalid blacklist rule " + modId + ": " + e.getMessage());
+                return true;
+            }
+            if (added) {
                 blacklistManager.saveBlacklist();
                 sender.sendMessage(ChatColor.GREEN + "Mod " + modId + " added to blacklist.");
             } else {
@@ -162,6 +178,158 @@ public class CommandHandler implements TabExecutor {
         }
     }
 
+    private boolean handleProfileCommand(CommandSender sender, String[] args) {
+        ProfileManager profileManager = plugin.getProfileManager();
+        String action = args.length < 2 ? "" : args[1].toLowerCase();
+
+        if (action.equals("capture")) {
+            if (args.length < 4) {
+                sender.sendMessage(ChatColor.RED + "Usage: /modseeker profile capture <name> <player>");
+                return true;
+            }
+            List<String> mods = getSessionMods(sender, args[3]);
+            if (mods == null) {
+                return true;
+            }
+            ProfileManager.Profile profile = profileManager.addProfile(args[2], mods);
+            if (profile == null) {
+                sender.sendMessage(ChatColor.RED + "A profile named " + args[2]
+                        + " or with the same mods already exists.");
+                return true;
+            }
+            plugin.logInfo("📦 Profile '" + profile.name + "' captured from " + args[3] + " (" + profile.mods.size()
+                    + " mods)");
+            sender.sendMessage(ChatColor.GREEN + "Profile " + profile.name + " saved with " + profile.mods.size()
+                    + " mods from " + args[3] + ".");
+            return true;
+        } else if (action.equals("remove")) {
+            if (args.length < 3) {
+                sender.sendMessage(ChatColor.RED + "Usage: /modseeker profile remove <name>");
+                return true;
+            }
+            if (profileManager.removeProfile(args[2])) {
+                sender.sendMessage(ChatColor.GREEN + "Profile " + args[2] + " removed.");
+            } else {
+                sender.sendMessage(ChatColor.RED + "No profile named " + args[2] + ".");
+            }
+            return true;
+        } else if (action.equals("list")) {
+            if (profileManager.getProfiles().isEmpty()) {
+                sender.sendMessage(ChatColor.RED + "No modpack profiles are registered.");
+                return true;
+            }
+            sender.sendMessage(ChatColor.GREEN + "Modpack profiles (" + profileManager.getProfiles().size() + "):");
+            for (ProfileManager.Profile profile : profileManager.getProfiles()) {
+                sender.sendMessage("   " + profile.name + " — " + profile.mods.size() + " mods");
+            }
+            return true;
+        } else if (action.equals("show")) {
+            if (args.length < 3) {
+                sender.sendMessage(ChatColor.RED + "Usage: /modseeker profile show <name>");
+                return true;
+            }
+            ProfileManager.Profile profile = profileManager.getProfile(args[2]);
+            if (profile == null) {
+                sender.sendMessage(ChatColor.RED + "No profile named " + args[2] + ".");
+                return true;
+            }
+            sender.sendMessage(ChatColor.GREEN + "Profile " + profile.name + " (" + profile.mods.size() + " mods, hash "
+                    + profile.hash + "):");
+            sender.sendMessage("   " + String.join(", ", profile.mods));
+            return true;
+        } else if (action.equals("diff")) {
+            if (args.length < 4) {
+                sender.sendMessage(ChatColor.RED + "Usage: /modseeker profile diff <name> <player>");
+                return true;
+            }
+            ProfileManager.Profile profile = profileManager.getProfile(args[2]);
+            if (profile == null) {
+                sender.sendMessage(ChatColor.RED + "No profile named " + args[2] + ".");
+                return true;
+            }
+            List<String> mods = getSessionMods(sender, args[3]);
+            if (mods == null) {
+                return true;
+            }
+            ProfileManager.Diff diff = ProfileManager.diff(profile,
+                    new HashSet<>(ProfileManager.canonicalMods(mods)));
+            if (diff.size() == 0) {
+                sender.sendMessage(ChatColor.GREEN + args[3] + " matches profile " + profile.name + " exactly.");
+                return true;
+            }
+            sender.sendMessage(ChatColor.GREEN + args[3] + " differs from profile " + profile.name + " by "
+                    + diff.size() + " mods:");
+            if (!diff.extraMods.isEmpty()) {
+                sender.sendMessage(ChatColor.YELLOW + "   Extra: " + String.join(", ", diff.extraMods));
+            }
+            if (!diff.missingMods.isEmpty()) {
+                sender.sendMessage(ChatColor.YELLOW + "   Missing: " + String.join(", ", diff.missingMods));
+            }
+            return true;
+        } else {
+            sender.sendMessage(ChatColor.RED + "Usage: /modseeker profile <capture|remove|list|show|diff>");
+            return true;
+        }
+    }
+
+    /**
+     * @return The mods last reported by an online player, or null (after
+     *         telling the sender why) if there are none
+     */
+    private List<String> getSessionMods(CommandSender sender, String playerName) {
+        Player targetPlayer = Bukkit.getPlayer(playerName);
+        PlayerSession session = targetPlayer == null ? null
+                : plugin.getPlayerDataManager().getSession(targetPlayer.getUniqueId());
+        if (session == null || (session.detectedMods.isEmpty() && session.uninternedMods.isEmpty())) {
+            sender.sendMessage(ChatColor.RED + "No mod list for " + playerName
+                    + ". Run /modseeker seek mod " + playerName + " first.");
+            return null;
+        }
+        List<String> mods = plugin.getModDictionary().names(session.detectedMods);
+        mods.addAll(session.uninternedMods);
+        return mods;
+    }
+
+    private boolean handleStatusCommand(CommandSender sender) {
+        Map<PlayerSession.State, Integer> states = new EnumMap<>(PlayerSession.State.class);
+        for (PlayerSession session : plugin.getPlayerDataManager().getSessions().values()) {
+            states.merge(session.getState(), 1, Integer::sum);
+        }
+        int verifying = states.getOrDefault(PlayerSession.State.AWAITING_PRESENCE, 0)
+                + states.getOrDefault(PlayerSession.State.AWAITING_MODLIST, 0)
+                + states.getOrDefault(PlayerSession.State.VERIFYING, 0);
+
+        VerdictCache verdictCache = plugin.getVerificationService().getVerdictCache();
+        CryptoWorker cryptoWorker = plugin.getCryptoWorker();
+
+        sender.sendMessage(ChatColor.GREEN + "ModSeeker status:");
+        sender.sendMessage("   Sessions: " + states.getOrDefault(PlayerSession.State.APPROVED, 0) + " approved, "
+                + verifying + " verifying, " + states.getOrDefault(PlayerSession.State.REJECTED, 0) + " rejected");
+        BlacklistManager.Snapshot blacklist = blacklistManager.getSnapshot();
+        sender.sendMessage("   Blacklist: " + blacklist.rules.size() + " rules (version " + blacklist.version + ")");
+        sender.sendMessage("   Policy: " + plugin.getPolicyManager().getRules().getRuleCount() + " rules (version "
+                + plugin.getPolicyManager().getVersion() + ")");
+        sender.sendMessage(String.format("   Verdict cache: %d/%d modpacks, %d hits, %d misses (%.1f%% hit rate)",
+                verdictCache.getSize(), verdictCache.getMaxSize(), verdictCache.getHits(), verdictCache.getMisses(),
+                verdictCache.getHitRate()));
+        sender.sendMessage("   Crypto worker: " + cryptoWorker.getActiveJobs() + " active, "
+                + cryptoWorker.getQueuedJobs() + " queued, " + cryptoWorker.getRejectedJobs() + " rejected");
+        FingerprintTable fingerprintTable = plugin.getFingerprintTable();
+        sender.sendMessage("   Known modpacks: " + fingerprintTable.getSize() + " (digests: "
+                + fingerprintTable.getKnownDigests() + " known, " + fingerprintTable.getUnknownDigests() + " unknown)");
+        ReplayCache replayCache = plugin.getReplayCache();
+        MessageHandler messageHandler = plugin.getMessageHandler();
+        sender.sendMessage("   Replay cache: " + replayCache.getSize() + " answered check IDs, "
+                + replayCache.getRejected() + " replays rejected, "
+                + messageHandler.getDuplicateResponses() + " duplicates dropped");
+        sender.sendMessage("   Rate limits: " + messageHandler.getRateLimitedMessages() + " messages rejected, "
+                + messageHandler.getDecryptBudgetDrops() + " decrypts over budget, "
+                + messageHandler.getRateLimitKicks() + " players kicked");
+        sender.sendMessage("   Timeouts: " + plugin.getTimeoutWheel().getPendingCount() + " pending, "
+                + plugin.getTimeoutWheel().getExpiredCount() + " expired");
+        return true;
+    }
+
     private boolean handleWhitelistCommand(CommandSender sender, String[] args) {
         if (args.length < 2) {
             sender.sendMessage(ChatColor.RED + "Usage: /modseeker whitelist <add|remove|show>");
@@ -231,6 +399,7 @@ public class CommandHandler implements TabExecutor {
                 completions.add("seek");
                 completions.add("modblacklist");
                 completions.add("whitelist");
+                completions.add("profile");
                 completions.add("reload");
                 completions.add("status");
             } else if (args.length == 2) {
@@ -242,16 +411,34 @@ public class CommandHandler implements TabExecutor {
                     completions.add("add");
                     completions.add("remove");
                     completions.add("show");
+                } else if (args[0].equalsIgnoreCase("profile")) {
+                    completions.add("capture");
+                    completions.add("remove");
+                    completions.add("list");
+                    completions.add("show");
+                    completions.add("diff");
                 }
             } else if (args.length == 3) {
                 if (args[0].equalsIgnoreCase("seek") && args[1].equalsIgnoreCase("mod")) {
                     for (Player player : Bukkit.getOnlinePlayers()) {
                         completions.add(player.getName());
                     }
+                } else if (args[0].equalsIgnoreCase("profile") && !args[1].equalsIgnoreCase("capture")
+                        && !args[1].equalsIgnoreCase("list")) {
+                    for (ProfileManager.Profile profile : plugin.getProfileManager().getProfiles()) {
+                        completions.add(profile.name);
+                    }
+                }
+            } else if (args.length == 4) {
+                if (args[0].equalsIgnoreCase("profile")
+                        && (args[1].equalsIgnoreCase("capture") || args[1].equalsIgnoreCase("diff"))) {
+                    for (Player player : Bukkit.getOnlinePlayers()) {
+                        completions.add(player.getName());
+                    }
                 }
             }
         }
 
         return completions;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -29,6 +29,16 @@ import java.util.*;
  */
 public class ConfigManager {
 
+    /**
+     * Which mods players may join with
+     */
+    public enum EnforcementMode {
+        // Anything not blacklisted
+        DENYLIST,
+        // Only the mods in allowedMods (the blacklist still applies)
+        ALLOWLIST
+    }
+
     private File configFile;
     private FileConfiguration config;
 
@@ -42,11 +52,34 @@ public class ConfigManager {
     private String welcomeMessage = "Welcome To The Server";
     private boolean enableModCountThreshold = false;
     private int maxModCount = 50;
+    private EnforcementMode enforcementMode = EnforcementMode.DENYLIST;
+    private Set<String> allowedMods = Collections.emptySet();
+    private Set<String> requiredMods = Collections.emptySet();
     private boolean SHOW_MOD_LIST = true;
     private boolean ONE_MOD_PER_LINE = false;
     private boolean HIGHLIGHT_MODS = true;
     private boolean HIGHLIGHT_BLACKLISTED_MODS = true;
     private boolean allowFloodgate = true;
+    private int cryptoWorkerThreads = 2;
+    private int cryptoQueueDepth = 256;
+    private boolean pipelinedHandshake = true;
+    private boolean preLoginChecks = true;
+    private int rejectedLoginMemorySeconds = 30;
+    private int channelRegisterGraceSeconds = 3;
+    private int verdictCacheSize = 128;
+    // Also read from the async pre-login thread
+    private volatile long configVersion = 0;
+    private String pipelinedHandshakeMinVersion = ProtocolConstants.PIPELINED_HANDSHAKE_MIN_VERSION;
+    private boolean digestExchange = true;
+    private String digestExchangeMinVersion = ProtocolConstants.DIGEST_EXCHANGE_MIN_VERSION;
+    private boolean secureChannel = true;
+    private String secureChannelMinVersion = ProtocolConstants.SECURE_CHANNEL_MIN_VERSION;
+    private int sessionKeyTtlSeconds = 1800;
+    private int maxMessageBytes = 65536;
+    private int playerMessagesPerSecond = 2;
+    private int playerMessageBurst = 10;
+    private int globalDecryptsPerSecond = 100;
+    private int rateLimitKickAfter = 20;
 
     public ConfigManager(File dataFolder) {
         this.configFile = new File(dataFolder, "config.yml");
@@ -68,11 +101,11 @@ public class ConfigManager {
             HANDSHAKE_TIMEOUT_SECONDS = config.getInt("handshakeTimeoutSeconds", 10);
             TIMEOUT_SECONDS = config.getInt("modlistTimeoutSeconds", 15);
 
-            // Load mod list filter
+            // Load mod list filter, lowercased like the mod IDs it is matched against
             modlistFilter.clear();
             List<String> filterList = config.getStringList("modlistFilter");
             if (filterList != null && !filterList.isEmpty()) {
-                modlistFilter.addAll(filterList);
+                modlistFilter.addAll(lowercased(filterList));
             } else {
                 modlistFilter.addAll(Arrays.asList("java", "minecraft", "fabricloader"));
             }
@@ -89,6 +122,10 @@ public class ConfigManager {
             ensureKickMessage("modlistTimeout", "Player Verification Failed");
             ensureKickMessage("modlistRequestFailed", "Player verification failed - unable to send mod list request.");
             ensureKickMessage("modCountExceeded", "You have too many mods installed. Maximum allowed: {maxMods}");
+            ensureKickMessage("disallowedMods", "Please Remove {mods} Mod{plural} Not Allowed On This Server");
+            ensureKickMessage("missingRequiredMods", "Please Install {mods} To Join The Server");
+            ensureKickMessage("blacklistedPacks", "Please Disable {packs} To Join The Server");
+            ensureKickMessage("rateLimited", "Too many verification messages");
 
             whitelist.clear();
             List<String> whitelistList = config.getStringList("whitelist");
@@ -102,6 +139,11 @@ public class ConfigManager {
             enableModCountThreshold = config.getBoolean("enableModCountThreshold", false);
             maxModCount = config.getInt("maxModCount", 50);
 
+            // Load enforcement mode; the lists are lowercased once here so joins only do lookups
+            enforcementMode = parseEnforcementMode(config.getString("enforcementMode", "denylist"));
+            allowedMods = Collections.unmodifiableSet(lowercased(config.getStringList("allowedMods")));
+            requiredMods = Collections.unmodifiableSet(lowercased(config.getStringList("requiredMods")));
+
             SHOW_MOD_LIST = config.getBoolean("showModList", true);
             ONE_MOD_PER_LINE = config.getBoolean("oneModPerLine", false);
             HIGHLIGHT_MODS = config.getBoolean("highlightMods", true);
@@ -110,6 +152,36 @@ public class ConfigManager {
             // Load floodgate settings
             allowFloodgate = config.getBoolean("allowFloodgate", true);
 
+            // Load crypto worker settings
+            cryptoWorkerThreads = Math.max(1, config.getInt("cryptoWorkerThreads", 2));
+            cryptoQueueDepth = Math.max(1, config.getInt("cryptoQueueDepth", 256));
+
+            // Load handshake settings
+            pipelinedHandshake = config.getBoolean("pipelinedHandshake", true);
+            pipelinedHandshakeMinVersion = config.getString("pipelinedHandshakeMinVersion",
+                    ProtocolConstants.PIPELINED_HANDSHAKE_MIN_VERSION);
+            digestExchange = config.getBoolean("digestExchange", true);
+            digestExchangeMinVersion = config.getString("digestExchangeMinVersion",
+                    ProtocolConstants.DIGEST_EXCHANGE_MIN_VERSION);
+            secureChannel = config.getBoolean("secureChannel", true);
+            secureChannelMinVersion = config.getString("secureChannelMinVersion",
+                    ProtocolConstants.SECURE_CHANNEL_MIN_VERSION);
+            sessionKeyTtlSeconds = Math.max(0, config.getInt("sessionKeyTtlSeconds", 1800));
+            // earlyVerification is the old name of preLoginChecks
+            preLoginChecks = config.getBoolean("preLoginChecks", config.getBoolean("earlyVerification", true));
+            rejectedLoginMemorySeconds = Math.max(0, config.getInt("rejectedLoginMemorySeconds", 30));
+            channelRegisterGraceSeconds = config.getInt("channelRegisterGraceSeconds", 3);
+
+            // Load rate limits
+            maxMessageBytes = Math.max(0, config.getInt("maxMessageBytes", 65536));
+            playerMessagesPerSecond = Math.max(0, config.getInt("playerMessagesPerSecond", 2));
+            playerMessageBurst = Math.max(1, config.getInt("playerMessageBurst", 10));
+            globalDecryptsPerSecond = Math.max(0, config.getInt("globalDecryptsPerSecond", 100));
+            rateLimitKickAfter = Math.max(0, config.getInt("rateLimitKickAfter", 20));
+
+            // Load verdict cache settings
+            verdictCacheSize = Math.max(0, config.getInt("verdictCacheSize", 128));
+
         } catch (Exception e) {
             e.printStackTrace();
             // Use default values on error
@@ -120,8 +192,49 @@ public class ConfigManager {
             HIGHLIGHT_MODS = true;
             HIGHLIGHT_BLACKLISTED_MODS = true;
             allowFloodgate = true;
+            cryptoWorkerThreads = 2;
+            cryptoQueueDepth = 256;
+            pipelinedHandshake = true;
+            pipelinedHandshakeMinVersion = ProtocolConstants.PIPELINED_HANDSHAKE_MIN_VERSION;
+            digestExchange = true;
+            digestExchangeMinVersion = ProtocolConstants.DIGEST_EXCHANGE_MIN_VERSION;
+            secureChannel = true;
+            secureChannelMinVersion = ProtocolConstants.SECURE_CHANNEL_MIN_VERSION;
+            sessionKeyTtlSeconds = 1800;
+            preLoginChecks = true;
+            rejectedLoginMemorySeconds = 30;
+            channelRegisterGraceSeconds = 3;
+            maxMessageBytes = 65536;
+            playerMessagesPerSecond = 2;
+            playerMessageBurst = 10;
+            globalDecryptsPerSecond = 100;
+            rateLimitKickAfter = 20;
+            verdictCacheSize = 128;
+            enforcementMode = EnforcementMode.DENYLIST;
+            allowedMods = Collections.emptySet();
+            requiredMods = Collections.emptySet();
             modlistFilter.addAll(Arrays.asList("java", "minecraft", "fabricloader"));
         }
+        configVersion++;
+    }
+
+    private static EnforcementMode parseEnforcementMode(String value) {
+        try {
+            return EnforcementMode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            UtilityHelper.logInfo("⚠️ Unknown enforcementMode \"" + value + "\", using denylist");
+            return EnforcementMode.DENYLIST;
+        }
+    }
+
+    private static Set<String> lowercased(List<String> mods) {
+        Set<String> result = new LinkedHashSet<>();
+        if (mods != null) {
+            for (String mod : mods) {
+                result.add(mod.toLowerCase());
+            }
+        }
+        return result;
     }
 
     private void ensureKickMessage(String key, String defaultMsg) {
@@ -161,7 +274,7 @@ public class ConfigManager {
                     "# ---------------------------------------------------------------\n" +
                     "# Kick Messages\n" +
                     "# Customize kick messages for different violation types\n" +
-                    "# Available placeholders: {player}, {mods}, {plural}\n" +
+                    "# Available placeholders: {player}, {mods}, {packs}, {plural}\n" +
                     "# ---------------------------------------------------------------\n" +
                     "kickMessages:\n" +
                     "  missingHidder: \"Please Install Hidder Mod To Enter The Server\"\n" +
@@ -169,6 +282,10 @@ public class ConfigManager {
                     "  modlistTimeout: \"Player Verification Failed\"\n" +
                     "  modlistRequestFailed: \"Player verification failed - unable to send mod list request.\"\n" +
                     "  modCountExceeded: \"You have too many mods installed. Maximum allowed: {maxMods}\"\n" +
+                    "  disallowedMods: \"Please Remove {mods} Mod{plural} Not Allowed On This Server\"\n" +
+                    "  missingRequiredMods: \"Please Install {mods} To Join The Server\"\n" +
+                    "  blacklistedPacks: \"Please Disable {packs} To Join The Server\"\n" +
+                    "  rateLimited: \"Too many verification messages\"\n" +
                     "# ---------------------------------------------------------------\n" +
                     "# Player Notification\n" +
                     "# Enable/disable welcome messages and customize the message\n" +
@@ -183,6 +300,17 @@ public class ConfigManager {
                     "# ---------------------------------------------------------------\n" +
                     "enableModCountThreshold: false\n" +
                     "maxModCount: 50\n" +
+                    "\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "# Enforcement Mode\n" +
+                    "# - denylist: Players may join with any mod that isn't blacklisted\n" +
+                    "# - allowlist: Players may only join with the mods in allowedMods\n" +
+                    "#   (mods filtered by modlistFilter are always allowed; the blacklist still applies)\n" +
+                    "# - requiredMods: Mods every player must have installed, in either mode\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "enforcementMode: denylist\n" +
+                    "allowedMods: []\n" +
+                    "requiredMods: []\n" +
                     "# ---------------------------------------------------------------\n" +
                     "# Mod List Display Settings\n" +
                     "# Configure how mod lists are displayed in the console\n" +
@@ -201,7 +329,101 @@ public class ConfigManager {
                     "# If set to true, Bedrock players (Floodgate) bypass all mod checks\n" +
                     "# Recommended: true for Geyser/Floodgate servers\n" +
                     "# ---------------------------------------------------------------\n" +
-                    "allowFloodgate: true\n";
+                    "allowFloodgate: true\n" +
+                    "\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "# Crypto Worker\n" +
+                    "# Mod list decryption and signature checks run on a dedicated worker pool\n" +
+                    "# instead of the server main thread\n" +
+                    "# - cryptoWorkerThreads: Number of worker threads\n" +
+                    "# - cryptoQueueDepth: Maximum pending responses before new ones are dropped\n" +
+                    "#   (dropped responses are re-requested by the modlist timeout)\n" +
+                    "# Changes require a server restart\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "cryptoWorkerThreads: 2\n" +
+                    "cryptoQueueDepth: 256\n" +
+                    "\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "# Pipelined Handshake\n" +
+                    "# Send the presence acknowledgement and the modlist request in one message,\n" +
+                    "# so the client can answer straight away\n" +
+                    "# - pipelinedHandshakeMinVersion: Oldest Hidder version that supports it\n" +
+                    "#   (older clients keep the separate acknowledgement and request)\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "pipelinedHandshake: true\n" +
+                    "pipelinedHandshakeMinVersion: \"" + ProtocolConstants.PIPELINED_HANDSHAKE_MIN_VERSION + "\"\n" +
+                    "\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "# Digest Exchange\n" +
+                    "# Ask clients for a signed digest of their mod list first; the full list is\n" +
+                    "# only transferred for modpacks the server hasn't seen before\n" +
+                    "# - digestExchangeMinVersion: Oldest Hidder version that supports it\n" +
+                    "#   (older clients always send the full list)\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "digestExchange: true\n" +
+                    "digestExchangeMinVersion: \"" + ProtocolConstants.DIGEST_EXCHANGE_MIN_VERSION + "\"\n" +
+                    "\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "# Secure Channel\n" +
+                    "# Agree on a per-session key with ephemeral X25519 and receive mod lists\n" +
+                    "# sealed with AES-GCM, instead of an RSA key unwrap for every mod list\n" +
+                    "# - secureChannelMinVersion: Oldest Hidder version that supports it\n" +
+                    "#   (older clients keep the RSA-encrypted responses)\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "secureChannel: true\n" +
+                    "secureChannelMinVersion: \"" + ProtocolConstants.SECURE_CHANNEL_MIN_VERSION + "\"\n" +
+                    "\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "# Session Keys\n" +
+                    "# Keep the AES key of a player's first RSA-encrypted mod list, so seeks and\n" +
+                    "# re-requests can reuse it by key ID and skip the RSA unwrap. Keys are\n" +
+                    "# forgotten after this many seconds or when the player quits\n" +
+                    "# Set to 0 to unwrap a new key for every mod list\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "sessionKeyTtlSeconds: 1800\n" +
+                    "\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "# Pre-login Checks\n" +
+                    "# Decide whitelist/Floodgate bypasses and prepare the player session during\n" +
+                    "# the async pre-login. Players whose mods were rejected (or who had no Hidder)\n" +
+                    "# within the last rejectedLoginMemorySeconds are refused there, before they\n" +
+                    "# enter the world, unless the rules have changed since. The handshake itself\n" +
+                    "# still runs after join. Set rejectedLoginMemorySeconds to 0 to turn that off\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "preLoginChecks: true\n" +
+                    "rejectedLoginMemorySeconds: 30\n" +
+                    "\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "# Channel Registration\n" +
+                    "# The handshake starts as soon as the client registers the ModSeeker channel.\n" +
+                    "# Players who joined without registering it are kicked after this many seconds\n" +
+                    "# Set to 0 to start the handshake at join without waiting for registration\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "channelRegisterGraceSeconds: 3\n" +
+                    "\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "# Rate Limiting\n" +
+                    "# Limits on inbound ModSeeker messages, checked before anything is decoded\n" +
+                    "# - maxMessageBytes: Larger messages are dropped unread\n" +
+                    "# - playerMessagesPerSecond / playerMessageBurst: Token bucket per player\n" +
+                    "# - globalDecryptsPerSecond: Encrypted mod lists decrypted per second, all\n" +
+                    "#   players together; the rest are dropped and requested again\n" +
+                    "# - rateLimitKickAfter: Kick a player after this many rejected messages\n" +
+                    "# Set any of them to 0 to disable it\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "maxMessageBytes: 65536\n" +
+                    "playerMessagesPerSecond: 2\n" +
+                    "playerMessageBurst: 10\n" +
+                    "globalDecryptsPerSecond: 100\n" +
+                    "rateLimitKickAfter: 20\n" +
+                    "\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "# Verdict Cache\n" +
+                    "# Remember the verdict for recently seen modpacks, so players joining with\n" +
+                    "# the same mod list skip the rule checks. Cleared whenever the config or\n" +
+                    "# blacklist changes. Set to 0 to disable\n" +
+                    "# ---------------------------------------------------------------\n" +
+                    "verdictCacheSize: 128\n";
 
             Files.write(configFile.toPath(), defaultContent.getBytes());
         } catch (IOException e) {
@@ -236,6 +458,9 @@ public class ConfigManager {
         return HANDSHAKE_TIMEOUT_SECONDS;
     }
 
+    /**
+     * @return Set of mod IDs left out of checks and logs, lowercased
+     */
     public Set<String> getModlistFilter() {
         return modlistFilter;
     }
@@ -264,6 +489,24 @@ public class ConfigManager {
         return maxModCount;
     }
 
+    public EnforcementMode getEnforcementMode() {
+        return enforcementMode;
+    }
+
+    /**
+     * @return Unmodifiable set of allowed mod IDs, lowercased
+     */
+    public Set<String> getAllowedMods() {
+        return allowedMods;
+    }
+
+    /**
+     * @return Unmodifiable set of required mod IDs, lowercased, in config order
+     */
+    public Set<String> getRequiredMods() {
+        return requiredMods;
+    }
+
     public boolean isSHOW_MOD_LIST() {
         return SHOW_MOD_LIST;
     }
@@ -283,4 +526,83 @@ public class ConfigManager {
     public boolean isAllowFloodgate() {
         return allowFloodgate;
     }
-}
\ No newline at end of file
+
+    public int getCryptoWorkerThreads() {
+        return cryptoWorkerThreads;
+    }
+
+    public int getCryptoQueueDepth() {
+        return cryptoQueueDepth;
+    }
+
+    public boolean isPipelinedHandshake() {
+        return pipelinedHandshake;
+    }
+
+    public String getPipelinedHandshakeMinVersion() {
+        return pipelinedHandshakeMinVersion;
+    }
+
+    public boolean isDigestExchange() {
+        return digestExchange;
+    }
+
+    public String getDigestExchangeMinVersion() {
+        return digestExchangeMinVersion;
+    }
+
+    public boolean isSecureChannel() {
+        return secureChannel;
+    }
+
+    public String getSecureChannelMinVersion() {
+        return secureChannelMinVersion;
+    }
+
+    public int getSessionKeyTtlSeconds() {
+        return sessionKeyTtlSeconds;
+    }
+
+    public boolean isPreLoginChecks() {
+        return preLoginChecks;
+    }
+
+    public int getRejectedLoginMemorySeconds() {
+        return rejectedLoginMemorySeconds;
+    }
+
+    public int getChannelRegisterGraceSeconds() {
+        return channelRegisterGraceSeconds;
+    }
+
+    public int getMaxMessageBytes() {
+        return maxMessageBytes;
+    }
+
+    public int getPlayerMessagesPerSecond() {
+        return playerMessagesPerSecond;
+    }
+
+    public int getPlayerMessageBurst() {
+        return playerMessageBurst;
+    }
+
+    public int getGlobalDecryptsPerSecond() {
+        return globalDecryptsPerSecond;
+    }
+
+    public int getRateLimitKickAfter() {
+        return rateLimitKickAfter;
+    }
+
+    public int getVerdictCacheSize() {
+        return verdictCacheSize;
+    }
+
+    /**
+     * @return Version of the loaded configuration, increased on every (re)load
+     */
+    public long getConfigVersion() {
+        return configVersion;
+    }
+}
\ No newline at end of file
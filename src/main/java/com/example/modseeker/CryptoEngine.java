@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Arrays;
+
+/**
+ * Owns per-thread, pre-initialised Cipher and Signature instances bound to the
+ * loaded server keys, so the crypto workers skip provider lookups and key setup
+ * on every message.
+ */
+public class CryptoEngine {
+
+    private static final String RSA_TRANSFORMATION = "RSA/ECB/PKCS1Padding";
+    private static final String AES_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+    private static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    // HKDF with an empty salt uses a block of zeros as the HMAC key
+    private static final SecretKeySpec HKDF_EMPTY_SALT = new SecretKeySpec(new byte[32], HMAC_ALGORITHM);
+
+    private final ThreadLocal<Cipher> rsaCipher;
+    private final ThreadLocal<Cipher> aesCipher;
+    private final ThreadLocal<Signature> verifier;
+    private final ThreadLocal<Cipher> gcmCipher = withInitial(GCM_TRANSFORMATION,
+            () -> Cipher.getInstance(GCM_TRANSFORMATION));
+    private final ThreadLocal<KeyAgreement> keyAgreement = withInitial("X25519",
+            () -> KeyAgreement.getInstance("X25519"));
+    private final ThreadLocal<Mac> hmac = withInitial(HMAC_ALGORITHM, () -> Mac.getInstance(HMAC_ALGORITHM));
+
+    public CryptoEngine(PrivateKey privateKey, PublicKey publicKey) {
+        // RSA and Signature stay initialised with their key between calls;
+        // doFinal()/verify() reset them to that state
+        this.rsaCipher = withInitial(RSA_TRANSFORMATION, () -> {
+            Cipher cipher = Cipher.getInstance(RSA_TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, privateKey);
+            return cipher;
+        });
+        this.aesCipher = withInitial(AES_TRANSFORMATION, () -> Cipher.getInstance(AES_TRANSFORMATION));
+        this.verifier = withInitial(SIGNATURE_ALGORITHM, () -> {
+            Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
+            signature.initVerify(publicKey);
+            return signature;
+        });
+    }
+
+    /**
+     * Unwrap an RSA-encrypted AES session key with the server private key
+     *
+     * @param input  Buffer holding the RSA-encrypted key bytes
+     * @param offset Offset of the key in the buffer
+     * @param length Length of the key
+     * @return The raw AES key
+     */
+    public byte[] unwrapKey(byte[] input, int offset, int length) throws GeneralSecurityException {
+        try {
+            return rsaCipher.get().doFinal(input, offset, length);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            // Drop the instance so a failed call can't leave it in a bad state
+            rsaCipher.remove();
+            throw e;
+        }
+    }
+
+    /**
+     * Decrypt an AES-CBC payload
+     *
+     * @param key        The raw AES key
+     * @param input      Buffer holding the IV and the ciphertext
+     * @param ivOffset   Offset of the initialisation vector
+     * @param ivLength   Length of the initialisation vector
+     * @param dataOffset Offset of the ciphertext
+     * @param dataLength Length of the ciphertext
+     * @return The plaintext bytes
+     */
+    public byte[] decryptAes(byte[] key, byte[] input, int ivOffset, int ivLength, int dataOffset, int dataLength)
+            throws GeneralSecurityException {
+        Cipher cipher = aesCipher.get();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"),
+                    new IvParameterSpec(input, ivOffset, ivLength));
+            return cipher.doFinal(input, dataOffset, dataLength);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            aesCipher.remove();
+            throw e;
+        }
+    }
+
+    /**
+     * Run the X25519 agreement of a secure channel and derive its AES-256 key
+     * with HKDF-SHA256
+     *
+     * @param channel The negotiated channel
+     * @return The raw AES key
+     */
+    public byte[] deriveChannelKey(SecureChannel channel) throws GeneralSecurityException {
+        byte[] sharedSecret = null;
+        try {
+            KeyAgreement agreement = keyAgreement.get();
+            agreement.init(channel.serverPrivateKey);
+            agreement.doPhase(channel.clientPublicKey, true);
+            sharedSecret = agreement.generateSecret();
+
+            // HKDF-Extract, then a single HKDF-Expand block (32 bytes)
+            Mac mac = hmac.get();
+            mac.init(HKDF_EMPTY_SALT);
+            byte[] prk = mac.doFinal(sharedSecret);
+            mac.init(new SecretKeySpec(prk, HMAC_ALGORITHM));
+            mac.update(channel.kdfInfo);
+            mac.update((byte) 1);
+            byte[] key = mac.doFinal();
+            Arrays.fill(prk, (byte) 0);
+            return key;
+        } catch (GeneralSecurityException | RuntimeException e) {
+            keyAgreement.remove();
+            hmac.remove();
+            throw e;
+        } finally {
+            if (sharedSecret != null) {
+                Arrays.fill(sharedSecret, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Decrypt and authenticate an AES-GCM payload
+     *
+     * @param key         The raw AES key
+     * @param input       Buffer holding the nonce and the ciphertext with its tag
+     * @param nonceOffset Offset of the nonce
+     * @param nonceLength Length of the nonce
+     * @param dataOffset  Offset of the ciphertext
+     * @param dataLength  Length of the ciphertext, tag included
+     * @param aad         Additional authenticated data
+     * @return The plaintext bytes
+     * @throws javax.crypto.AEADBadTagException if the payload was tampered with
+     */
+    public byte[] decryptGcm(byte[] key, byte[] input, int nonceOffset, int nonceLength, int dataOffset,
+            int dataLength, byte[] aad) throws GeneralSecurityException {
+        Cipher cipher = gcmCipher.get();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"),
+                    new GCMParameterSpec(SecureChannel.TAG_BITS, input, nonceOffset, nonceLength));
+            cipher.updateAAD(aad);
+            return cipher.doFinal(input, dataOffset, dataLength);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            gcmCipher.remove();
+            throw e;
+        }
+    }
+
+    /**
+     * Verify a SHA256withRSA signature with the client identity public key
+     *
+     * @param data           The signed bytes
+     * @param signatureBytes The signature
+     * @return true if the signature is valid
+     */
+    public boolean verify(byte[] data, byte[] signatureBytes) throws GeneralSecurityException {
+        Signature signature = verifier.get();
+        try {
+            signature.update(data);
+            return signature.verify(signatureBytes);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            verifier.remove();
+            throw e;
+        }
+    }
+
+    private interface Factory<T> {
+        T create() throws GeneralSecurityException;
+    }
+
+    private static <T> ThreadLocal<T> withInitial(String algorithm, Factory<T> factory) {
+        return ThreadLocal.withInitial(() -> {
+            try {
+                return factory.create();
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(algorithm + " unavailable: " + e.getMessage(), e);
+            }
+        });
+    }
+}
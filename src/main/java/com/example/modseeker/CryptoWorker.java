@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Bounded worker stage that runs decoding, decryption and signature checks off
+ * the server main thread. Only the completion callback is scheduled back onto
+ * the main thread.
+ */
+public class CryptoWorker {
+
+    private final ModSeekerPlugin plugin;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong rejectedJobs = new AtomicLong();
+
+    public CryptoWorker(ModSeekerPlugin plugin, int parallelism, int queueDepth) {
+        this.plugin = plugin;
+
+        int threads = Math.max(1, parallelism);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueDepth)), runnable -> {
+                    Thread thread = new Thread(runnable, "ModSeeker-Crypto-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Run a job on the crypto workers and hand its result back to the main
+     * thread. A job that throws completes with null, so the caller can roll its
+     * session back. The completion is skipped if the player has left in the
+     * meantime.
+     *
+     * @param player     The player the job belongs to
+     * @param work       The off-thread work (decode, decrypt, verify)
+     * @param completion The main-thread continuation receiving the result, or
+     *                   null if the work failed
+     * @return true if the job was queued, false if the stage is saturated
+     */
+    public <T> boolean submit(Player player, Callable<T> work, BiConsumer<Player, T> completion) {
+        try {
+            executor.execute(() -> {
+                T outcome;
+                try {
+                    outcome = work.call();
+                } catch (Exception e) {
+                    plugin.logInfo("❌ Crypto worker error for " + player.getName() + ": " + e.getMessage());
+                    outcome = null;
+                }
+                T result = outcome;
+
+                if (!plugin.isEnabled()) {
+                    return;
+                }
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    if (player.isOnline()) {
+                        completion.accept(player, result);
+                    }
+                });
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejectedJobs.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Stop accepting work and wait briefly for in-flight jobs to finish
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(2, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getParallelism() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public int getQueuedJobs() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveJobs() {
+        return executor.getActiveCount();
+    }
+
+    public long getRejectedJobs() {
+        return rejectedJobs.get();
+    }
+}
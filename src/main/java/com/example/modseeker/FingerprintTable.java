@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Mod lists the server has already received in full, keyed by their
+ * {@link ModListResponse#fingerprint() fingerprint}. A client that negotiated
+ * the digest exchange first sends only the fingerprint; if it is in this table
+ * the full list never has to be transferred, decrypted or parsed again.
+ *
+ * The table is bounded, keeps the most recently seen modpacks and is persisted
+ * to fingerprints.json in the plugin data folder. Only use from the server main
+ * thread.
+ */
+public class FingerprintTable {
+
+    private static final int MAX_ENTRIES = 256;
+    private static final long SAVE_INTERVAL_TICKS = 6000L; // 5 minutes
+
+    /**
+     * A known mod list, as stored in fingerprints.json
+     */
+    public static class Entry {
+        public String digest;
+        public List<String> mods = new ArrayList<>();
+        public List<String> resourcePacks = new ArrayList<>();
+        public List<String> shaderPacks = new ArrayList<>();
+        public long lastSeen;
+    }
+
+    private final ModSeekerPlugin plugin;
+    private final ModListParser modListParser;
+    private final File fingerprintFile;
+    private final Gson gson;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private boolean dirty = false;
+    private long knownDigests = 0;
+    private long unknownDigests = 0;
+    private BukkitTask saveTask;
+
+    public FingerprintTable(ModSeekerPlugin plugin, File dataFolder, ModListParser modListParser) {
+        this.plugin = plugin;
+        this.modListParser = modListParser;
+        this.fingerprintFile = new File(dataFolder, "fingerprints.json");
+        this.gson = new GsonBuilder().setPrettyPrinting().create();
+        loadFingerprints();
+    }
+
+    /**
+     * Load the table, dropping entries whose stored list no longer matches their
+     * digest
+     */
+    public void loadFingerprints() {
+        entries.clear();
+        if (!fingerprintFile.exists()) {
+            return;
+        }
+
+        try (Reader reader = new InputStreamReader(new FileInputStream(fingerprintFile), StandardCharsets.UTF_8)) {
+            Entry[] stored = gson.fromJson(reader, Entry[].class);
+            if (stored == null) {
+                return;
+            }
+            // Oldest first, so the access order ends up matching lastSeen
+            Arrays.sort(stored, Comparator.comparingLong(entry -> entry.lastSeen));
+            for (Entry entry : stored) {
+                if (entry.digest == null || entry.mods == null) {
+                    continue;
+                }
+                if (entry.resourcePacks == null) {
+                    entry.resourcePacks = new ArrayList<>();
+                }
+                if (entry.shaderPacks == null) {
+                    entry.shaderPacks = new ArrayList<>();
+                }
+                if (entry.digest.equals(toResponse(entry, null, null, -1).fingerprint())) {
+                    entries.put(entry.digest, entry);
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Start the periodic task that writes the table out when it changed
+     */
+    public void startAutoSave() {
+        if (saveTask != null) {
+            return;
+        }
+        saveTask = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
+            if (!dirty) {
+                return;
+            }
+            // Serialize on the main thread, write the file off it
+            String json = toJson();
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> write(json));
+        }, SAVE_INTERVAL_TICKS, SAVE_INTERVAL_TICKS);
+    }
+
+    /**
+     * Stop the periodic task and write the table out if it changed
+     */
+    public void shutdown() {
+        if (saveTask != null) {
+            saveTask.cancel();
+            saveTask = null;
+        }
+        if (dirty) {
+            write(toJson());
+        }
+    }
+
+    /**
+     * Recall the mod list for a digest sent by a client
+     *
+     * @return The stored mod list as a response carrying the digest's check ID,
+     *         signature and timestamp, or null if the digest is unknown
+     */
+    public ModListResponse lookup(ModListDigest digest) {
+        Entry entry = entries.get(digest.digest());
+        if (entry == null) {
+            unknownDigests++;
+            return null;
+        }
+        knownDigests++;
+        entry.lastSeen = System.currentTimeMillis();
+        dirty = true;
+        return toResponse(entry, digest.checkId(), digest.signature(), digest.timestamp());
+    }
+
+    /**
+     * Remember a mod list that was received in full and passed the security
+     * checks
+     *
+     * @param fingerprint The response's fingerprint
+     * @param response    The verified response
+     */
+    public void record(String fingerprint, ModListResponse response) {
+        Entry entry = entries.get(fingerprint);
+        if (entry == null) {
+            entry = new Entry();
+            entry.digest = fingerprint;
+            entry.mods = new ArrayList<>(response.rawEntries());
+            entry.resourcePacks = new ArrayList<>(response.resourcePacks());
+            entry.shaderPacks = new ArrayList<>(response.shaderPacks());
+            entries.put(fingerprint, entry);
+        }
+        entry.lastSeen = System.currentTimeMillis();
+        dirty = true;
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    public long getKnownDigests() {
+        return knownDigests;
+    }
+
+    public long getUnknownDigests() {
+        return unknownDigests;
+    }
+
+    private ModListResponse toResponse(Entry entry, String checkId, String signature, long timestamp) {
+        return modListParser.fromEntries(checkId, entry.mods, entry.resourcePacks, entry.shaderPacks, signature,
+                timestamp);
+    }
+
+    private String toJson() {
+        dirty = false;
+        return gson.toJson(new ArrayList<>(entries.values()));
+    }
+
+    private synchronized void write(String json) {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(fingerprintFile), StandardCharsets.UTF_8)) {
+            writer.write(json);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
\ No newline at end of file
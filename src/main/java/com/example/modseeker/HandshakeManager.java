@@ -19,7 +19,6 @@ package com.example.modseeker;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.UUID;
 
@@ -46,159 +45,285 @@ public class HandshakeManager {
         this.verificationService = verificationService;
     }
 
+    /**
+     * Starts the handshake once the client has registered the ModSeeker channel.
+     * Clients that already registered it start right away; the others get a short
+     * grace period before they are kicked.
+     * 
+     * @param player  The player who joined.
+     * @param session The player's session, in the AWAITING_PRESENCE state.
+     */
+    public void startWhenChannelRegistered(Player player, PlayerSession session) {
+        int graceSeconds = configManager.getChannelRegisterGraceSeconds();
+        if (graceSeconds <= 0 || player.getListeningPluginChannels().contains(ProtocolConstants.PLUGIN_CHANNEL)) {
+            startHandshake(player, session);
+            return;
+        }
+
+        plugin.getTimeoutWheel().arm(session.playerId, TimeoutWheel.Kind.CHANNEL_REGISTER, graceSeconds * 20L,
+                () -> {
+                    if (!session.transition(PlayerSession.State.AWAITING_PRESENCE, PlayerSession.State.REJECTED)) {
+                        return;
+                    }
+                    Player currentPlayer = Bukkit.getPlayer(session.playerId);
+                    if (currentPlayer == null || !currentPlayer.isOnline()) {
+                        playerDataManager.removeSession(session);
+                        return;
+                    }
+
+                    plugin.logInfo("⚠️ " + session.playerName + " never registered " + ProtocolConstants.PLUGIN_CHANNEL);
+                    handleHandshakeTimeout(currentPlayer, session);
+                });
+    }
+
+    /**
+     * Called when a client registers a plugin channel; starts the pending
+     * handshake if it is the ModSeeker channel.
+     * 
+     * @param player  The player who registered the channel.
+     * @param channel The registered channel.
+     */
+    public void handleChannelRegistered(Player player, String channel) {
+        if (!ProtocolConstants.PLUGIN_CHANNEL.equals(channel)) {
+            return;
+        }
+        PlayerSession session = playerDataManager.getSession(player.getUniqueId());
+        // Only sessions that joined and are still waiting for the channel have the deadline armed;
+        // registrations before the join are picked up by startWhenChannelRegistered
+        if (session == null
+                || !plugin.getTimeoutWheel().cancel(session.playerId, TimeoutWheel.Kind.CHANNEL_REGISTER)) {
+            return;
+        }
+        startHandshake(player, session);
+    }
+
     /**
      * Starts the handshake process for a player.
      * 
-     * @param player The player to handshake with.
+     * @param player  The player to handshake with.
+     * @param session The player's session, in the AWAITING_PRESENCE state.
      */
-    public void startHandshake(Player player) {
+    public void startHandshake(Player player, PlayerSession session) {
         UUID playerId = player.getUniqueId();
         String playerName = player.getName();
 
-        PlayerDataManager.HandshakeData handshakeData = new PlayerDataManager.HandshakeData(playerId, playerName);
-        playerDataManager.getPlayerHandshakes().put(playerId, handshakeData);
-
         String playerIP = player.getAddress() != null ? player.getAddress().getAddress().getHostAddress() : "unknown";
         plugin.logInfo("🌍 Player Join: " + playerName + " (UUID: " + playerId.toString() + ", IP: " + playerIP + ")");
-        plugin.logInfo("🤝 Handshake started [ID: " + handshakeData.handshakeId + "]");
+        plugin.logInfo("🤝 Handshake started [ID: " + session.sessionId + "]");
 
-        messageHandler.sendHandshakeRequest(player);
+        messageHandler.sendHandshakeRequest(player, session);
 
-        startHandshakeTimeoutTimer(player, handshakeData);
+        startHandshakeTimeoutTimer(session);
     }
 
     /**
      * Handles the ANNOUNCE_PRESENCE message from the client.
      * 
      * @param player      The player who sent the message.
+     * @param session     The player's session.
      * @param messageJson The JSON message content.
      */
-    public void handleAnnouncePresence(Player player, String messageJson) {
-        UUID playerId = player.getUniqueId();
-        String playerName = player.getName();
-        PlayerDataManager.HandshakeData handshakeData = playerDataManager.getPlayerHandshakes().get(playerId);
-
-        if (handshakeData == null) {
-            return;
+    public void handleAnnouncePresence(Player player, PlayerSession session, String messageJson) {
+        if (session.getState() != PlayerSession.State.AWAITING_PRESENCE) {
+            return; // Duplicate or late announcement
         }
 
-        handshakeData.presenceAnnounced = true;
-        handshakeData.presenceMessage = messageJson;
-
         if (messageJson.contains("\"modId\":\"" + ProtocolConstants.HIDDER_MOD_ID + "\"")) {
+            if (!session.transition(PlayerSession.State.AWAITING_PRESENCE, PlayerSession.State.AWAITING_MODLIST)) {
+                return;
+            }
+            session.presenceMessage = messageJson;
             plugin.logInfo("✅ Hidder presence confirmed");
 
             String version = modListParser.extractModVersion(messageJson);
             if (version != null) {
-                handshakeData.modVersion = version;
+                session.modVersion = version;
             }
 
-            sendAcknowledgePresence(player, handshakeData);
+            sendAcknowledgePresence(player, session);
 
         } else {
             // Log invalid mod detection but don't log the full kick sequence
             // That will be handled by the timeout logic
-            plugin.logInfo("❌ Invalid mod detected for player " + playerName);
-            // Set a flag to indicate that we've detected an invalid mod
-            handshakeData.presenceAnnounced = false; // This will trigger the timeout
-            // Don't kick here, let the timeout handler do it
+            plugin.logInfo("❌ Invalid mod detected for player " + player.getName());
+            // The session stays in AWAITING_PRESENCE, so the timeout kicks the player
         }
     }
 
-    private void sendAcknowledgePresence(Player player, PlayerDataManager.HandshakeData handshakeData) {
-        try {
-            if (handshakeData.timeoutTaskId != -1) {
-                Bukkit.getScheduler().cancelTask(handshakeData.timeoutTaskId);
-                handshakeData.timeoutTaskId = -1;
+    private void sendAcknowledgePresence(Player player, PlayerSession session) {
+        plugin.getTimeoutWheel().cancel(session.playerId, TimeoutWheel.Kind.PRESENCE);
+        // The acknowledgement may wait on the crypto workers, which drop it if the
+        // job fails, so the modlist deadline starts now rather than once it is sent
+        startAcknowledgeTimeoutTimer(session);
+
+        // Clients that understand it send a digest of their mod list before the full list
+        session.digestFirst = supportsDigestExchange(session.modVersion);
+        // Clients that echo the check ID and nonce in every envelope must always do so
+        session.echoesNonce = session.modVersion != null && UtilityHelper.compareVersions(session.modVersion,
+                ProtocolConstants.REPLAY_NONCE_MIN_VERSION) >= 0;
+        // Clients that also sign or encrypt the nonce with the mod list must always do so
+        session.bindsNonce = session.modVersion != null && UtilityHelper.compareVersions(session.modVersion,
+                ProtocolConstants.BOUND_NONCE_MIN_VERSION) >= 0;
+
+        String clientKey = secureChannelOffer(session);
+        if (clientKey != null) {
+            // Generating the server key pair is an X25519 scalar multiplication, so it
+            // runs on the crypto workers and the acknowledgement follows from there
+            boolean queued = plugin.getCryptoWorker().submit(player,
+                    () -> negotiateSecureChannel(session.playerName, clientKey), (target, channel) -> {
+                        session.secureChannel = channel;
+                        sendAcknowledgement(target, session);
+                    });
+            if (queued) {
+                return;
             }
+            plugin.logInfo("⚠️ Crypto queue full - no secure channel for " + session.playerName);
+        }
+        sendAcknowledgement(player, session);
+    }
 
-            if (handshakeData.presenceTimeoutTaskId != -1) {
-                Bukkit.getScheduler().cancelTask(handshakeData.presenceTimeoutTaskId);
-                handshakeData.presenceTimeoutTaskId = -1;
+    private void sendAcknowledgement(Player player, PlayerSession session) {
+        try {
+            if (supportsPipelinedHandshake(session.modVersion)) {
+                // ACK and REQUEST_MODLIST in one message; the client answers without another round trip
+                session.pipelined = true;
+                messageHandler.sendAcknowledgeWithModListRequest(player, session);
+                return;
             }
 
             String ackJson = "{\"messageType\":\"" + ProtocolConstants.MSG_ACKNOWLEDGE_PRESENCE
-                    + "\",\"status\":\"ready\",\"serverId\":\"" + ProtocolConstants.PLUGIN_VERSION + "\"}";
+                    + "\",\"status\":\"ready\",\"serverId\":\"" + ProtocolConstants.PLUGIN_VERSION + "\""
+                    + messageHandler.channelKeyField(session) + "}";
 
             messageHandler.sendPluginMessage(player, ackJson);
 
-            handshakeData.acknowledgmentSent = true;
-
-            verificationService.startModCheckAfterHandshake(player, handshakeData);
+            verificationService.startModCheckAfterHandshake(player, session);
 
         } catch (Exception e) {
-            plugin.logInfo("❌ FAILED TO SEND ACKNOWLEDGMENT to " + handshakeData.playerName + ": " + e.getMessage());
+            plugin.logInfo("❌ FAILED TO SEND ACKNOWLEDGMENT to " + session.playerName + ": " + e.getMessage());
+            session.transition(PlayerSession.State.AWAITING_MODLIST, PlayerSession.State.REJECTED);
             player.kickPlayer(ChatColor.RED + "Handshake failed.");
         }
     }
 
-    private void startHandshakeTimeoutTimer(Player player, PlayerDataManager.HandshakeData handshakeData) {
-        BukkitRunnable timeoutTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                // Check if player is still in handshake process and hasn't announced presence
-                if (playerDataManager.getPlayerHandshakes().containsKey(handshakeData.playerId)
-                        && !handshakeData.presenceAnnounced) {
-                    // Try to get the player object again in case the original reference is invalid
-                    Player currentPlayer = Bukkit.getPlayer(handshakeData.playerId);
+    /**
+     * Whether the Hidder version from ANNOUNCE_PRESENCE understands the combined
+     * acknowledgement and modlist request
+     */
+    private boolean supportsPipelinedHandshake(String clientVersion) {
+        if (!configManager.isPipelinedHandshake() || clientVersion == null) {
+            return false;
+        }
+        return UtilityHelper.compareVersions(clientVersion, configManager.getPipelinedHandshakeMinVersion()) >= 0;
+    }
+
+    /**
+     * Whether the Hidder version from ANNOUNCE_PRESENCE can answer a modlist
+     * request with a digest first
+     */
+    private boolean supportsDigestExchange(String clientVersion) {
+        if (!configManager.isDigestExchange() || clientVersion == null) {
+            return false;
+        }
+        return UtilityHelper.compareVersions(clientVersion, configManager.getDigestExchangeMinVersion()) >= 0;
+    }
+
+    /**
+     * The ephemeral key the client offered in ANNOUNCE_PRESENCE, if its Hidder
+     * version supports the secure channel
+     *
+     * @return The Base64 client key, or null to stay on the RSA-wrapped responses
+     */
+    private String secureChannelOffer(PlayerSession session) {
+        if (!configManager.isSecureChannel() || session.modVersion == null || UtilityHelper
+                .compareVersions(session.modVersion, configManager.getSecureChannelMinVersion()) < 0) {
+            return null;
+        }
+        return modListParser.extractChannelKey(session.presenceMessage);
+    }
+
+    /**
+     * Answer the client's key with a fresh server key pair. Runs on the crypto
+     * workers.
+     *
+     * @return The channel, or null to fall back to the RSA-wrapped responses
+     */
+    private SecureChannel negotiateSecureChannel(String playerName, String clientKey) {
+        try {
+            return SecureChannel.negotiate(clientKey);
+        } catch (Exception e) {
+            plugin.logInfo("⚠️ Secure channel rejected for " + playerName + ": " + e.getMessage()
+                    + " — falling back to RSA");
+            return null;
+        }
+    }
+
+    /**
+     * Arm the modlist deadline for a session whose acknowledgement is still
+     * being prepared. Sending the modlist request replaces it with the regular
+     * modlist timeout.
+     */
+    private void startAcknowledgeTimeoutTimer(PlayerSession session) {
+        plugin.getTimeoutWheel().arm(session.playerId, TimeoutWheel.Kind.MODLIST,
+                configManager.getTIMEOUT_SECONDS() * 20L, () -> {
+                    if (session.modListRequest.attemptCount > 0) {
+                        return; // The request went out and has its own deadline
+                    }
+                    if (!session.transition(PlayerSession.State.AWAITING_MODLIST, PlayerSession.State.REJECTED)) {
+                        return;
+                    }
+                    plugin.logInfo("❌ Acknowledgement never sent to " + session.playerName + " — access denied");
+                    Player currentPlayer = Bukkit.getPlayer(session.playerId);
                     if (currentPlayer != null && currentPlayer.isOnline()) {
-                        handleHandshakeTimeout(currentPlayer, handshakeData);
+                        String kickMessage = configManager.getKickMessages().getOrDefault("modlistTimeout",
+                                "Player Verification Failed");
+                        currentPlayer.kickPlayer(ChatColor.RED + kickMessage);
                     } else {
-                        handleHandshakeTimeoutOffline(handshakeData);
+                        playerDataManager.removeSession(session);
                     }
-                }
-            }
-        };
+                });
+    }
 
-        handshakeData.presenceTimeoutTaskId = timeoutTask
-                .runTaskLater(plugin, configManager.getHANDSHAKE_TIMEOUT_SECONDS() * 20L).getTaskId();
+    /**
+     * Arm the single deadline for the presence announcement. It kicks the player
+     * and remembers the rejection for the pre-login check.
+     */
+    private void startHandshakeTimeoutTimer(PlayerSession session) {
+        plugin.getTimeoutWheel().arm(session.playerId, TimeoutWheel.Kind.PRESENCE,
+                configManager.getHANDSHAKE_TIMEOUT_SECONDS() * 20L, () -> {
+                    // Only the first of a timeout or a presence announcement wins the session
+                    if (!session.transition(PlayerSession.State.AWAITING_PRESENCE, PlayerSession.State.REJECTED)) {
+                        return;
+                    }
+                    // Look the player up again rather than holding on to the Player object
+                    Player currentPlayer = Bukkit.getPlayer(session.playerId);
+                    if (currentPlayer != null && currentPlayer.isOnline()) {
+                        handleHandshakeTimeout(currentPlayer, session);
+                    } else {
+                        handleHandshakeTimeoutOffline(session);
+                    }
+                });
     }
 
-    private void handleHandshakeTimeoutOffline(PlayerDataManager.HandshakeData handshakeData) {
-        // Remove the handshake data to prevent further processing
-        playerDataManager.getPlayerHandshakes().remove(handshakeData.playerId);
+    private void handleHandshakeTimeoutOffline(PlayerSession session) {
+        // Remove the session to prevent further processing
+        playerDataManager.removeSession(session);
 
         // Log handshake timeout scenario
         plugin.logInfo("⚠️ Hidder presence unable to confirmed");
         plugin.logInfo("❌Player verification incomplete — access denied");
-        plugin.logInfo("🦵 " + handshakeData.playerName + " has been kicked from the server for not having Hidder");
+        plugin.logInfo("🦵 " + session.playerName + " has been kicked from the server for not having Hidder");
     }
 
-    private void handleHandshakeTimeout(Player player, PlayerDataManager.HandshakeData handshakeData) {
-        // Check if the player is still in the handshake process
-        if (!playerDataManager.getPlayerHandshakes().containsKey(handshakeData.playerId)) {
-            return; // Player already completed handshake or left the game
-        }
-
-        // Remove the handshake data to prevent further processing
-        playerDataManager.getPlayerHandshakes().remove(handshakeData.playerId);
-
+    private void handleHandshakeTimeout(Player player, PlayerSession session) {
         // Log handshake timeout scenario
         plugin.logInfo("⚠️ Hidder presence unable to confirmed");
         plugin.logInfo("❌Player verification incomplete — access denied");
-        plugin.logInfo("🦵 " + handshakeData.playerName + " has been kicked from the server for not having Hidder");
+        plugin.logInfo("🦵 " + session.playerName + " has been kicked from the server for not having Hidder");
 
         String kickMessage = configManager.getKickMessages().getOrDefault("missingGCOptimizer",
                 "Please Install Hidder Mod To Enter The Server");
+        plugin.rememberRejection(session.playerId, ChatColor.RED + kickMessage);
         player.kickPlayer(ChatColor.RED + kickMessage);
     }
-
-    /**
-     * Cleans up handshake data for a player.
-     * 
-     * @param playerId The UUID of the player.
-     * @return The handshake data that was removed, or null if none existed.
-     */
-    public PlayerDataManager.HandshakeData cleanupHandshakeData(UUID playerId) {
-        PlayerDataManager.HandshakeData data = playerDataManager.getPlayerHandshakes().remove(playerId);
-        if (data != null) {
-            if (data.timeoutTaskId != -1) {
-                Bukkit.getScheduler().cancelTask(data.timeoutTaskId);
-            }
-            if (data.presenceTimeoutTaskId != -1) {
-                Bukkit.getScheduler().cancelTask(data.presenceTimeoutTaskId);
-            }
-        }
-        return data;
-    }
-}
+}
\ No newline at end of file
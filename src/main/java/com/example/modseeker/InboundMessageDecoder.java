@@ -0,0 +1,331 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes inbound plugin messages directly from the raw bytes, without turning
+ * the whole payload into a String first.
+ */
+public final class InboundMessageDecoder {
+
+    // Prevent instantiation
+    private InboundMessageDecoder() {
+    }
+
+    /**
+     * Message types understood on the plugin channel
+     */
+    public enum MessageType {
+        ANNOUNCE_PRESENCE,
+        RESPONSE_MODLIST,
+        RESPONSE_MODLIST_ENCRYPTED,
+        RESPONSE_MODLIST_DIGEST,
+        RESPONSE_MODLIST_SEALED,
+        UNKNOWN
+    }
+
+    private static final byte[] KEY_MESSAGE_TYPE = quoted(ProtocolConstants.KEY_MESSAGE_TYPE);
+    private static final byte[] KEY_CIPHERTEXT = quoted("ciphertext");
+    private static final byte[] KEY_KEY_ID = quoted(ProtocolConstants.KEY_KEY_ID);
+    private static final byte[] KEY_CHECK_ID = quoted(ProtocolConstants.KEY_CHECK_ID);
+    private static final byte[] KEY_NONCE = quoted(ProtocolConstants.KEY_NONCE);
+    private static final MessageType[] KNOWN_TYPES = {
+            MessageType.ANNOUNCE_PRESENCE, MessageType.RESPONSE_MODLIST, MessageType.RESPONSE_MODLIST_ENCRYPTED,
+            MessageType.RESPONSE_MODLIST_DIGEST, MessageType.RESPONSE_MODLIST_SEALED };
+    private static final byte[][] KNOWN_TYPE_NAMES = {
+            MessageType.ANNOUNCE_PRESENCE.name().getBytes(StandardCharsets.US_ASCII),
+            MessageType.RESPONSE_MODLIST.name().getBytes(StandardCharsets.US_ASCII),
+            MessageType.RESPONSE_MODLIST_ENCRYPTED.name().getBytes(StandardCharsets.US_ASCII),
+            MessageType.RESPONSE_MODLIST_DIGEST.name().getBytes(StandardCharsets.US_ASCII),
+            MessageType.RESPONSE_MODLIST_SEALED.name().getBytes(StandardCharsets.US_ASCII) };
+
+    // Standard Base64 alphabet; everything else is skipped like the MIME decoder does
+    private static final byte[] BASE64_VALUES = new byte[256];
+
+    static {
+        java.util.Arrays.fill(BASE64_VALUES, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    // Decode buffers are reused per crypto worker thread
+    private static final ThreadLocal<EncryptedPayload> SCRATCH = ThreadLocal.withInitial(EncryptedPayload::new);
+
+    /**
+     * Decoded segments of an encrypted response: key|iv|data for RSA-wrapped
+     * responses, nonce|data for sealed ones and iv|data for responses under a
+     * cached session key. All segments share one buffer, which is reused
+     * between calls on the same thread.
+     */
+    public static final class EncryptedPayload {
+        public byte[] buffer = new byte[4096];
+        public int segmentCount;
+        public final int[] offsets = new int[3];
+        public final int[] lengths = new int[3];
+
+        public int keyOffset() {
+            return offsets[0];
+        }
+
+        public int keyLength() {
+            return lengths[0];
+        }
+
+        public int ivOffset() {
+            return offsets[1];
+        }
+
+        public int ivLength() {
+            return lengths[1];
+        }
+
+        public int dataOffset() {
+            return offsets[2];
+        }
+
+        public int dataLength() {
+            return lengths[2];
+        }
+
+        public int sealedNonceOffset() {
+            return offsets[0];
+        }
+
+        public int sealedNonceLength() {
+            return lengths[0];
+        }
+
+        public int sealedDataOffset() {
+            return offsets[1];
+        }
+
+        public int sealedDataLength() {
+            return lengths[1];
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (buffer.length < capacity) {
+                buffer = new byte[Math.max(capacity, buffer.length * 2)];
+            }
+        }
+    }
+
+    /**
+     * Find the message type with a single scan for the messageType key
+     *
+     * @param message The raw message bytes
+     * @return The message type, or UNKNOWN if missing or unrecognised
+     */
+    public static MessageType peekMessageType(byte[] message) {
+        int start = findStringValue(message, KEY_MESSAGE_TYPE, 0);
+        if (start == -1) {
+            return MessageType.UNKNOWN;
+        }
+
+        for (int t = 0; t < KNOWN_TYPE_NAMES.length; t++) {
+            byte[] name = KNOWN_TYPE_NAMES[t];
+            int end = start + name.length;
+            if (end < message.length && message[end] == '"' && regionMatches(message, start, name)) {
+                return KNOWN_TYPES[t];
+            }
+        }
+        return MessageType.UNKNOWN;
+    }
+
+    /**
+     * Read the session key ID of an encrypted response that refers to a key
+     * the server already holds instead of wrapping a new one
+     *
+     * @param message The raw RESPONSE_MODLIST_ENCRYPTED message bytes
+     * @return The key ID, or null if there is none
+     */
+    public static String peekKeyId(byte[] message) {
+        return peekString(message, KEY_KEY_ID);
+    }
+
+    /**
+     * Read the check ID from the envelope of a mod list response or digest,
+     * without decoding or decrypting the payload
+     *
+     * @return The check ID, or null if the envelope doesn't carry one
+     */
+    public static String peekCheckId(byte[] message) {
+        return peekString(message, KEY_CHECK_ID);
+    }
+
+    /**
+     * Read the request nonce echoed in the envelope of a mod list response or
+     * digest
+     *
+     * @return The nonce, or null if the envelope doesn't carry one
+     */
+    public static String peekNonce(byte[] message) {
+        return peekString(message, KEY_NONCE);
+    }
+
+    private static String peekString(byte[] message, byte[] quotedKey) {
+        int start = findStringValue(message, quotedKey, 0);
+        if (start == -1) {
+            return null;
+        }
+        for (int end = start; end < message.length; end++) {
+            if (message[end] == '"') {
+                return new String(message, start, end - start, StandardCharsets.US_ASCII);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Base64-decode the segments of the ciphertext field in one pass.
+     * The returned payload is owned by the calling thread and is overwritten by
+     * the next call.
+     *
+     * @param message The raw RESPONSE_MODLIST_ENCRYPTED or RESPONSE_MODLIST_SEALED
+     *                message bytes
+     * @return The decoded payload, or null if there is no ciphertext field
+     */
+    public static EncryptedPayload decodeEncrypted(byte[] message) {
+        int pos = findStringValue(message, KEY_CIPHERTEXT, 0);
+        if (pos == -1) {
+            return null;
+        }
+
+        EncryptedPayload payload = SCRATCH.get();
+        // Base64 output is never longer than 3/4 of the input
+        payload.ensureCapacity((message.length - pos) / 4 * 3 + 3);
+        byte[] out = payload.buffer;
+
+        int segment = 0;
+        int written = 0;
+        int bits = 0;
+        int sextets = 0;
+        boolean padded = false;
+        payload.offsets[0] = 0;
+
+        for (; pos < message.length; pos++) {
+            int b = message[pos] & 0xFF;
+            if (b == '"' || b == '|') {
+                // Flush the last partial group of the segment
+                if (sextets == 2) {
+                    out[written++] = (byte) (bits >> 4);
+                } else if (sextets == 3) {
+                    out[written++] = (byte) (bits >> 10);
+                    out[written++] = (byte) (bits >> 2);
+                }
+                if (segment < 3) {
+                    payload.lengths[segment] = written - payload.offsets[segment];
+                }
+                segment++;
+                if (b == '"') {
+                    payload.segmentCount = segment;
+                    return payload;
+                }
+                if (segment < 3) {
+                    payload.offsets[segment] = written;
+                }
+                bits = 0;
+                sextets = 0;
+                padded = false;
+                continue;
+            }
+
+            if (segment >= 3 || padded) {
+                continue;
+            }
+            if (b == '=') {
+                padded = true;
+                continue;
+            }
+
+            int value = BASE64_VALUES[b];
+            if (value < 0) {
+                continue;
+            }
+            bits = (bits << 6) | value;
+            if (++sextets == 4) {
+                out[written++] = (byte) (bits >> 16);
+                out[written++] = (byte) (bits >> 8);
+                out[written++] = (byte) bits;
+                bits = 0;
+                sextets = 0;
+            }
+        }
+
+        // Unterminated ciphertext string
+        return null;
+    }
+
+    /**
+     * Locate the start of a string value ("key":"value") in the raw bytes
+     *
+     * @return Index of the first byte after the opening quote, or -1
+     */
+    private static int findStringValue(byte[] message, byte[] quotedKey, int from) {
+        int index = indexOf(message, quotedKey, from);
+        while (index != -1) {
+            int pos = skipWhitespace(message, index + quotedKey.length);
+            if (pos < message.length && message[pos] == ':') {
+                pos = skipWhitespace(message, pos + 1);
+                if (pos < message.length && message[pos] == '"') {
+                    return pos + 1;
+                }
+            }
+            index = indexOf(message, quotedKey, index + 1);
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(byte[] message, int pos) {
+        while (pos < message.length && (message[pos] == ' ' || message[pos] == '\t' || message[pos] == '\n'
+                || message[pos] == '\r')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle, int from) {
+        int last = haystack.length - needle.length;
+        byte first = needle[0];
+        for (int i = from; i <= last; i++) {
+            if (haystack[i] == first && regionMatches(haystack, i, needle)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(byte[] data, int offset, byte[] expected) {
+        if (offset + expected.length > data.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (data[offset + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] quoted(String key) {
+        return ("\"" + key + "\"").getBytes(StandardCharsets.US_ASCII);
+    }
+}
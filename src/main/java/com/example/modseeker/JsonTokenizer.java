@@ -0,0 +1,507 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming pull tokenizer over raw UTF-8 JSON bytes. Strings and names are
+ * exposed as spans into the input buffer; a String is only created when the
+ * caller asks for one. Malformed input is reported with a
+ * {@link MalformedJsonException} instead of being silently ignored.
+ */
+public final class JsonTokenizer {
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int NONEMPTY_OBJECT = 5;
+    private static final int DANGLING_NAME = 6;
+
+    // Mod list payloads are flat; anything deeper is rejected rather than recursed into
+    private static final int MAX_DEPTH = 32;
+
+    private final byte[] data;
+    private final int limit;
+    private int pos;
+
+    private final int[] stack = new int[MAX_DEPTH + 1];
+    private int depth = 1;
+    private boolean separatorConsumed;
+
+    private int spanStart;
+    private int spanEnd;
+    private boolean spanEscaped;
+
+    /**
+     * Thrown when the input is not well-formed JSON
+     */
+    public static class MalformedJsonException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public MalformedJsonException(String message, int offset) {
+            super(message + " at byte " + offset);
+        }
+    }
+
+    public JsonTokenizer(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    public JsonTokenizer(byte[] data, int offset, int length) {
+        this.data = data;
+        this.pos = offset;
+        this.limit = offset + length;
+        this.stack[0] = EMPTY_DOCUMENT;
+    }
+
+    public void beginObject() throws MalformedJsonException {
+        beforeValue();
+        expect('{');
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() throws MalformedJsonException {
+        int scope = stack[depth - 1];
+        if (scope != EMPTY_OBJECT && scope != NONEMPTY_OBJECT) {
+            throw malformed("Unexpected end of object");
+        }
+        if (separatorConsumed) {
+            throw malformed("Trailing comma in object");
+        }
+        expect('}');
+        depth--;
+    }
+
+    public void beginArray() throws MalformedJsonException {
+        beforeValue();
+        expect('[');
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() throws MalformedJsonException {
+        int scope = stack[depth - 1];
+        if (scope != EMPTY_ARRAY && scope != NONEMPTY_ARRAY) {
+            throw malformed("Unexpected end of array");
+        }
+        if (separatorConsumed) {
+            throw malformed("Trailing comma in array");
+        }
+        expect(']');
+        depth--;
+    }
+
+    /**
+     * Check whether the current array or object has another element, consuming
+     * the separating comma if there is one.
+     */
+    public boolean hasNext() throws MalformedJsonException {
+        int scope = stack[depth - 1];
+        int c = peekNonWhitespace();
+
+        if (scope == EMPTY_ARRAY || scope == NONEMPTY_ARRAY) {
+            if (c == ']') {
+                return false;
+            }
+        } else if (scope == EMPTY_OBJECT || scope == NONEMPTY_OBJECT) {
+            if (c == '}') {
+                return false;
+            }
+        } else if (scope == DANGLING_NAME) {
+            throw malformed("Expected a value");
+        } else {
+            return c != -1;
+        }
+
+        if (c == -1) {
+            throw malformed("Unexpected end of input");
+        }
+        if ((scope == NONEMPTY_ARRAY || scope == NONEMPTY_OBJECT) && !separatorConsumed) {
+            if (c != ',') {
+                throw malformed("Expected ','");
+            }
+            pos++;
+            separatorConsumed = true;
+            if (peekNonWhitespace() == (scope == NONEMPTY_ARRAY ? ']' : '}')) {
+                throw malformed("Trailing comma");
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read the next object member name into the current span
+     */
+    public void nextName() throws MalformedJsonException {
+        int scope = stack[depth - 1];
+        if (scope != EMPTY_OBJECT && scope != NONEMPTY_OBJECT) {
+            throw malformed("Expected a value but found a name");
+        }
+        consumeSeparator(scope);
+        expect('"');
+        readStringSpan();
+        stack[depth - 1] = DANGLING_NAME;
+    }
+
+    /**
+     * Read the next string value into the current span
+     */
+    public void nextString() throws MalformedJsonException {
+        beforeValue();
+        expect('"');
+        readStringSpan();
+    }
+
+    /**
+     * Read the next value as an integral number. A number quoted as a string,
+     * e.g. {@code "timestamp":"1700000000000"}, is accepted too, since older
+     * clients send it that way.
+     */
+    public long nextLong() throws MalformedJsonException {
+        beforeValue();
+        boolean quoted = peekNonWhitespace() == '"';
+        if (quoted) {
+            pos++;
+        }
+
+        boolean negative = false;
+        if (pos < limit && data[pos] == '-') {
+            negative = true;
+            pos++;
+        }
+
+        int digitsStart = pos;
+        long value = 0;
+        while (pos < limit && data[pos] >= '0' && data[pos] <= '9') {
+            int digit = data[pos] - '0';
+            if (value > (Long.MAX_VALUE - digit) / 10) {
+                throw malformed("Number too large");
+            }
+            value = value * 10 + digit;
+            pos++;
+        }
+        if (pos == digitsStart) {
+            throw malformed("Expected a number");
+        }
+        if (pos < limit && (data[pos] == '.' || data[pos] == 'e' || data[pos] == 'E')) {
+            throw malformed("Expected an integer");
+        }
+        if (quoted) {
+            if (pos >= limit || data[pos] != '"') {
+                throw malformed("Expected an integer");
+            }
+            pos++;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Skip the next value, including any nested arrays or objects
+     */
+    public void skipValue() throws MalformedJsonException {
+        int c = peekValueStart();
+        switch (c) {
+            case '{':
+                beginObject();
+                while (hasNext()) {
+                    nextName();
+                    skipValue();
+                }
+                endObject();
+                break;
+            case '[':
+                beginArray();
+                while (hasNext()) {
+                    skipValue();
+                }
+                endArray();
+                break;
+            case '"':
+                nextString();
+                break;
+            case 't':
+                beforeValue();
+                expectLiteral("true");
+                break;
+            case 'f':
+                beforeValue();
+                expectLiteral("false");
+                break;
+            case 'n':
+                beforeValue();
+                expectLiteral("null");
+                break;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    beforeValue();
+                    while (pos < limit && isNumberByte(data[pos])) {
+                        pos++;
+                    }
+                } else if (c == -1) {
+                    throw malformed("Expected a value");
+                } else {
+                    throw malformed("Unexpected character");
+                }
+        }
+    }
+
+    /**
+     * Ensure nothing but whitespace follows the top-level value
+     */
+    public void endDocument() throws MalformedJsonException {
+        if (depth != 1 || peekNonWhitespace() != -1) {
+            throw malformed("Unexpected trailing data");
+        }
+    }
+
+    // ---------------------------------------------------------------
+    // Span access
+    // ---------------------------------------------------------------
+
+    public int spanStart() {
+        return spanStart;
+    }
+
+    public int spanEnd() {
+        return spanEnd;
+    }
+
+    public boolean spanHasEscapes() {
+        return spanEscaped;
+    }
+
+    /**
+     * Compare the current span with an ASCII constant without allocating
+     */
+    public boolean spanEquals(byte[] ascii) {
+        if (spanEscaped) {
+            return spanToString().equals(new String(ascii, StandardCharsets.US_ASCII));
+        }
+        if (spanEnd - spanStart != ascii.length) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length; i++) {
+            if (data[spanStart + i] != ascii[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decode the current span, resolving escape sequences
+     */
+    public String spanToString() {
+        return decode(data, spanStart, spanEnd, spanEscaped);
+    }
+
+    /**
+     * Decode a string span read earlier, e.g. one kept by offset in a
+     * {@link SpanList}
+     *
+     * @param hasEscapes Whether the span contains escape sequences
+     */
+    public static String decode(byte[] data, int spanStart, int spanEnd, boolean hasEscapes) {
+        if (!hasEscapes) {
+            return new String(data, spanStart, spanEnd - spanStart, StandardCharsets.UTF_8);
+        }
+
+        StringBuilder sb = new StringBuilder(spanEnd - spanStart);
+        int runStart = spanStart;
+        int i = spanStart;
+        while (i < spanEnd) {
+            if (data[i] != '\\') {
+                i++;
+                continue;
+            }
+            sb.append(new String(data, runStart, i - runStart, StandardCharsets.UTF_8));
+            byte escaped = data[i + 1];
+            switch (escaped) {
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    sb.append((char) Integer.parseInt(new String(data, i + 2, 4, StandardCharsets.US_ASCII), 16));
+                    i += 4;
+                    break;
+                default:
+                    // \" \\ \/
+                    sb.append((char) escaped);
+            }
+            i += 2;
+            runStart = i;
+        }
+        sb.append(new String(data, runStart, spanEnd - runStart, StandardCharsets.UTF_8));
+        return sb.toString();
+    }
+
+    // ---------------------------------------------------------------
+    // Internals
+    // ---------------------------------------------------------------
+
+    private void readStringSpan() throws MalformedJsonException {
+        spanStart = pos;
+        spanEscaped = false;
+        while (pos < limit) {
+            byte b = data[pos];
+            if (b == '"') {
+                spanEnd = pos;
+                pos++;
+                return;
+            }
+            if (b == '\\') {
+                spanEscaped = true;
+                if (pos + 1 >= limit) {
+                    break;
+                }
+                byte escaped = data[pos + 1];
+                if (escaped == 'u') {
+                    if (pos + 6 > limit) {
+                        break;
+                    }
+                    for (int i = pos + 2; i < pos + 6; i++) {
+                        if (Character.digit(data[i], 16) < 0) {
+                            throw malformed("Invalid unicode escape");
+                        }
+                    }
+                    pos += 6;
+                    continue;
+                }
+                if ("\"\\/bfnrt".indexOf(escaped) < 0) {
+                    throw malformed("Invalid escape sequence");
+                }
+                pos += 2;
+                continue;
+            }
+            if (b >= 0 && b < 0x20) {
+                throw malformed("Control character in string");
+            }
+            pos++;
+        }
+        throw malformed("Unterminated string");
+    }
+
+    private void beforeValue() throws MalformedJsonException {
+        int scope = stack[depth - 1];
+        switch (scope) {
+            case EMPTY_ARRAY:
+            case NONEMPTY_ARRAY:
+                consumeSeparator(scope);
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                break;
+            case DANGLING_NAME:
+                expect(':');
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                break;
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            case NONEMPTY_DOCUMENT:
+                throw malformed("Multiple top-level values");
+            default:
+                throw malformed("Expected a name but found a value");
+        }
+    }
+
+    private void consumeSeparator(int scope) throws MalformedJsonException {
+        if ((scope == NONEMPTY_ARRAY || scope == NONEMPTY_OBJECT) && !separatorConsumed) {
+            expect(',');
+        }
+        separatorConsumed = false;
+        if (scope == EMPTY_OBJECT) {
+            stack[depth - 1] = NONEMPTY_OBJECT;
+        }
+    }
+
+    /**
+     * Peek at the first byte of the next value without consuming anything,
+     * looking past a pending ',' or ':' separator
+     */
+    private int peekValueStart() {
+        int scope = stack[depth - 1];
+        int i = skipWhitespaceFrom(pos);
+        if ((scope == NONEMPTY_ARRAY && !separatorConsumed) || scope == DANGLING_NAME) {
+            if (i >= limit || data[i] != (scope == DANGLING_NAME ? ':' : ',')) {
+                return -1;
+            }
+            i = skipWhitespaceFrom(i + 1);
+        }
+        return i < limit ? data[i] & 0xFF : -1;
+    }
+
+    private void push(int scope) throws MalformedJsonException {
+        if (depth > MAX_DEPTH) {
+            throw malformed("Nesting too deep");
+        }
+        stack[depth++] = scope;
+    }
+
+    private int peekNonWhitespace() {
+        pos = skipWhitespaceFrom(pos);
+        return pos < limit ? data[pos] & 0xFF : -1;
+    }
+
+    private int skipWhitespaceFrom(int i) {
+        while (i < limit) {
+            byte b = data[i];
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private void expect(char c) throws MalformedJsonException {
+        if (peekNonWhitespace() != c) {
+            throw malformed("Expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    private void expectLiteral(String literal) throws MalformedJsonException {
+        peekNonWhitespace();
+        for (int i = 0; i < literal.length(); i++) {
+            if (pos >= limit || data[pos] != literal.charAt(i)) {
+                throw malformed("Expected " + literal);
+            }
+            pos++;
+        }
+    }
+
+    private static boolean isNumberByte(byte b) {
+        return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E';
+    }
+
+    private MalformedJsonException malformed(String message) {
+        return new MalformedJsonException(message, pos);
+    }
+}
@@ -16,11 +16,14 @@
  */
 package com.example.modseeker;
 
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.ChatColor;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.UUID;
+import java.util.function.BiConsumer;
 
 /**
  * Handles network communication and messaging for ModSeeker plugin
@@ -31,6 +34,12 @@ public class MessageHandler {
     private static final int MAX_RETRIES = 3;
 
     private final ModSeekerPlugin plugin;
+    private final TokenBucket decryptBudget = new TokenBucket();
+    private final RateLimitTable rateLimits = new RateLimitTable();
+    private long duplicateResponses = 0;
+    private long rateLimitedMessages = 0;
+    private long decryptBudgetDrops = 0;
+    private long rateLimitKicks = 0;
 
     public MessageHandler(ModSeekerPlugin plugin) {
         this.plugin = plugin;
@@ -44,18 +53,43 @@ public class MessageHandler {
             return;
         }
 
-        UUID playerId = player.getUniqueId();
         String playerName = player.getName();
+        PlayerSession session = plugin.getPlayerDataManager().getSession(player.getUniqueId());
+        if (session == null) {
+            return;
+        }
 
-        try {
-            String messageJson = new String(message, "UTF-8");
+        // Size and rate are checked before a single byte is looked at
+        ConfigManager config = plugin.getConfigManager();
+        RateLimitTable.Entry limits = rateLimits.get(session.playerId);
+        if (config.getMaxMessageBytes() > 0 && message.length > config.getMaxMessageBytes()) {
+            rejectOffender(player, session, limits, "message of " + message.length + " bytes");
+            return;
+        }
+        if (config.getPlayerMessagesPerSecond() > 0 && !limits.messageBudget
+                .tryAcquire(config.getPlayerMessagesPerSecond(), config.getPlayerMessageBurst())) {
+            rejectOffender(player, session, limits, "too many messages");
+            return;
+        }
 
-            if (messageJson.contains("\"messageType\":\"ANNOUNCE_PRESENCE\"")) {
-                plugin.handleAnnouncePresence(player, messageJson);
-            } else if (messageJson.contains("\"messageType\":\"RESPONSE_MODLIST\"")) {
-                plugin.handleModListResponse(player, messageJson);
-            } else if (messageJson.contains("\"messageType\":\"RESPONSE_MODLIST_ENCRYPTED\"")) {
-                plugin.getSecurityManager().handleEncryptedResponse(player, messageJson);
+        try {
+            // Only the message type is peeked from the raw bytes; encrypted payloads are
+            // never turned into a String here
+            InboundMessageDecoder.MessageType type = InboundMessageDecoder.peekMessageType(message);
+            switch (type) {
+                case ANNOUNCE_PRESENCE:
+                    plugin.handleAnnouncePresence(player, session, new String(message, StandardCharsets.UTF_8));
+                    break;
+                case RESPONSE_MODLIST:
+                case RESPONSE_MODLIST_ENCRYPTED:
+                case RESPONSE_MODLIST_SEALED:
+                    acceptModListResponse(player, session, message, type);
+                    break;
+                case RESPONSE_MODLIST_DIGEST:
+                    acceptModListDigest(player, session, message);
+                    break;
+                default:
+                    break;
             }
 
         } catch (Exception e) {
@@ -64,82 +98,493 @@ public class MessageHandler {
         }
     }
 
-    public void sendHandshakeRequest(Player player) {
-        UUID playerId = player.getUniqueId();
-        PlayerDataManager.HandshakeData handshakeData = plugin.getPlayerDataManager().getPlayerHandshakes()
-                .get(playerId);
-        if (handshakeData == null) {
+    /**
+     * Route a mod list response to the pending seek or the join check. Responses
+     * nobody is waiting for are dropped before any crypto work is done.
+     */
+    private void acceptModListResponse(Player player, PlayerSession session, byte[] message,
+            InboundMessageDecoder.MessageType type) {
+        SecureChannel channel = session.secureChannel;
+        SessionKeys keys = session.sessionKeys;
+        if (type == InboundMessageDecoder.MessageType.RESPONSE_MODLIST_SEALED && channel == null) {
+            plugin.logInfo("⚠️ Sealed mod list from " + player.getName()
+                    + " without a negotiated channel - dropped");
             return;
         }
 
-        handshakeData.retryCount++;
-        if (handshakeData.retryCount > MAX_RETRIES) {
-            plugin.logInfo("❌ Handshake failed for " + player.getName() + " (UUID: " + playerId.toString() + ")");
-            player.kickPlayer(plugin.getKickMessages().get("modlistRequestFailed"));
+        String checkId = InboundMessageDecoder.peekCheckId(message);
+        if (checkId != null && session.isAnswered(checkId)) {
+            dropDuplicate(player, checkId);
+            return;
+        }
+        if (rejectReplay(player, session, message, checkId)) {
             return;
         }
 
-        player.sendPluginMessage(plugin, PLUGIN_CHANNEL, new byte[0]);
+        // Route by the envelope check ID when there is one, otherwise a pending seek goes first
+        PlayerSession.ModListRequest seek = session.getSeekRequest();
+        if (seek != null && (checkId == null || checkId.equals(seek.checkId))) {
+            if (!session.claimSeek(seek)) {
+                dropDuplicate(player, seek.checkId);
+                return;
+            }
+            seek.answered = true;
+            boolean queued = submitModListResponse(player, session, message, type, channel, keys, seek,
+                    (target, verified) -> {
+                        if (verified != null) {
+                            plugin.handleSeekModListResponse(target, session, verified.response);
+                        } else {
+                            seek.answered = false;
+                            session.restoreSeek(seek);
+                        }
+                    });
+            if (!queued) {
+                seek.answered = false;
+                session.restoreSeek(seek);
+            }
+            return;
+        }
+
+        PlayerSession.ModListRequest request = session.modListRequest;
+        if (!session.transition(PlayerSession.State.AWAITING_MODLIST, PlayerSession.State.VERIFYING)) {
+            if (request.answered) {
+                dropDuplicate(player, request.checkId); // Older clients without the envelope check ID
+            }
+            return; // Duplicate or late response
+        }
+        request.answered = true;
+        boolean queued = submitModListResponse(player, session, message, type, channel, keys, request,
+                (target, verified) -> {
+                    if (verified != null) {
+                        plugin.handleModListResponse(target, session, verified.response, verified.securityFailure);
+                    } else {
+                        // Unreadable response; the modlist timeout re-requests the list
+                        request.answered = false;
+                        session.transition(PlayerSession.State.VERIFYING, PlayerSession.State.AWAITING_MODLIST);
+                    }
+                });
+        if (!queued) {
+            request.answered = false;
+            session.transition(PlayerSession.State.VERIFYING, PlayerSession.State.AWAITING_MODLIST);
+        }
+    }
+
+    /**
+     * Drop a message that broke the size or rate limit, and kick the player once
+     * they have done so too often. Only the first rejection is logged. The count
+     * carries over a quick reconnect, so a player kicked for flooding is kicked
+     * again on their next rejected message.
+     */
+    private void rejectOffender(Player player, PlayerSession session, RateLimitTable.Entry limits, String reason) {
+        rateLimitedMessages++;
+        limits.violations++;
+        if (limits.violations == 1) {
+            plugin.logInfo("⚠️ Rate limit: dropped " + reason + " from " + player.getName());
+        }
+
+        int kickAfter = plugin.getConfigManager().getRateLimitKickAfter();
+        if (kickAfter > 0 && limits.violations >= kickAfter && session.getState() != PlayerSession.State.REJECTED) {
+            rateLimitKicks++;
+            session.transition(session.getState(), PlayerSession.State.REJECTED);
+            plugin.logInfo("🦵 " + player.getName() + " has been kicked for flooding ModSeeker messages ("
+                    + kickAfter + " rejected)");
+            player.kickPlayer(ChatColor.RED + plugin.getKickMessages().getOrDefault("rateLimited",
+                    "Too many verification messages"));
+        }
+    }
+
+    /**
+     * Keep the player's rate limit state for a short while after they quit
+     */
+    public void releaseRateLimits(UUID playerId) {
+        rateLimits.release(playerId);
+    }
+
+    /**
+     * Take one decryption from the server-wide budget; plain mod lists don't need one
+     */
+    private boolean tryDecrypt(InboundMessageDecoder.MessageType type) {
+        int perSecond = plugin.getConfigManager().getGlobalDecryptsPerSecond();
+        if (perSecond <= 0 || type == InboundMessageDecoder.MessageType.RESPONSE_MODLIST) {
+            return true;
+        }
+        return decryptBudget.tryAcquire(perSecond, perSecond);
+    }
+
+    /**
+     * @return Messages dropped for breaking the size or per-player rate limit
+     */
+    public long getRateLimitedMessages() {
+        return rateLimitedMessages;
+    }
+
+    /**
+     * @return Encrypted mod lists dropped because the global decrypt budget was spent
+     */
+    public long getDecryptBudgetDrops() {
+        return decryptBudgetDrops;
+    }
+
+    /**
+     * @return Players kicked for repeatedly breaking the limits
+     */
+    public long getRateLimitKicks() {
+        return rateLimitKicks;
+    }
+
+    /**
+     * Drop another copy of a response that was already accepted, e.g. a slow
+     * client answering both the original and a retried request
+     */
+    private void dropDuplicate(Player player, String checkId) {
+        duplicateResponses++;
+        plugin.logInfo("🔁 Duplicate mod list from " + player.getName() + " (" + checkId + ") - dropped");
+    }
+
+    /**
+     * @return The number of duplicate mod list responses dropped since startup
+     */
+    public long getDuplicateResponses() {
+        return duplicateResponses;
+    }
+
+    /**
+     * Hand a mod list digest to the crypto worker for its signature check. Only
+     * sessions that negotiated the digest exchange accept one.
+     */
+    private void acceptModListDigest(Player player, PlayerSession session, byte[] message) {
+        if (!session.digestFirst) {
+            return; // Not negotiated
+        }
+        if (rejectReplay(player, session, message, InboundMessageDecoder.peekCheckId(message))
+                || !session.transition(PlayerSession.State.AWAITING_MODLIST, PlayerSession.State.VERIFYING)) {
+            return; // Replayed, duplicate or late
+        }
+
+        String playerName = player.getName();
+        String expectedCheckId = session.modListRequest.checkId;
+        String expectedNonce = session.bindsNonce ? session.modListRequest.nonce : null;
+        boolean queued = plugin.getCryptoWorker().submit(player, () -> {
+            ModListDigest digest;
+            try {
+                digest = plugin.getModListParser().parseDigest(message);
+            } catch (JsonTokenizer.MalformedJsonException e) {
+                // Dropped; the modlist timeout re-requests the list
+                plugin.logInfo("❌ Malformed mod list digest from " + playerName + ": " + e.getMessage());
+                return null;
+            }
+            if (!expectedCheckId.equals(digest.checkId())) {
+                plugin.logInfo("🚫 SECURITY: Mod list digest from " + playerName + " answers check ID "
+                        + digest.checkId() + " instead of " + expectedCheckId + " - dropped");
+                return null;
+            }
+            if (expectedNonce != null && !nonceMatches(expectedNonce, digest.nonce())) {
+                plugin.logInfo("🚫 SECURITY: Mod list digest from " + playerName + " without the signed nonce for "
+                        + expectedCheckId + " - dropped");
+                return null;
+            }
+            String securityFailure = plugin.getVerificationService().verifyDigestSignature(playerName, digest);
+            return new VerifiedDigest(digest, securityFailure);
+        }, (target, verified) -> {
+            if (verified != null) {
+                plugin.handleModListDigest(target, session, verified.digest, verified.securityFailure);
+            } else {
+                session.transition(PlayerSession.State.VERIFYING, PlayerSession.State.AWAITING_MODLIST);
+            }
+        });
+
+        if (!queued) {
+            plugin.logInfo("⚠️ Crypto queue full - dropped mod list digest from " + playerName);
+            session.transition(PlayerSession.State.VERIFYING, PlayerSession.State.AWAITING_MODLIST);
+        }
+    }
 
-        handshakeData.timeoutTaskId = new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (plugin.getPlayerDataManager().getPlayerHandshakes().containsKey(playerId)) {
-                    plugin.logInfo(
-                            "❌ Handshake timeout for " + player.getName() + " (UUID: " + playerId.toString() + ")");
-                    player.kickPlayer(plugin.getKickMessages().get("modlistRequestFailed"));
+    /**
+     * Drop a mod list response or digest that replays an answered check ID,
+     * answers a request this session doesn't have outstanding, or carries the
+     * wrong nonce. Only the envelope is peeked, so this costs no Base64 decoding
+     * or decryption. Clients older than
+     * {@link ProtocolConstants#REPLAY_NONCE_MIN_VERSION} may leave both fields
+     * out; their check ID is compared once the payload has been decrypted.
+     *
+     * @param checkId The check ID peeked from the envelope, or null
+     * @return true if the message must be dropped
+     */
+    private boolean rejectReplay(Player player, PlayerSession session, byte[] message, String checkId) {
+        if (checkId == null) {
+            if (session.echoesNonce) {
+                plugin.logInfo("🚫 SECURITY: Mod list from " + player.getName() + " without a check ID - dropped");
+                return true;
+            }
+            return false;
+        }
+
+        if (plugin.getReplayCache().isReplay(checkId)) {
+            plugin.logInfo("🚫 SECURITY: Replayed mod list from " + player.getName() + " (" + checkId
+                    + ") - dropped");
+            return true;
+        }
+
+        PlayerSession.ModListRequest request = session.findPendingRequest(checkId);
+        if (request == null) {
+            plugin.logInfo("🚫 SECURITY: Mod list from " + player.getName() + " for unknown check ID " + checkId
+                    + " - dropped");
+            return true;
+        }
+
+        String nonce = InboundMessageDecoder.peekNonce(message);
+        boolean nonceValid = nonce != null ? nonceMatches(request.nonce, nonce) : !session.echoesNonce;
+        if (!nonceValid) {
+            plugin.logInfo("🚫 SECURITY: Mod list from " + player.getName() + " with a wrong nonce for " + checkId
+                    + " - dropped");
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean nonceMatches(String expected, String actual) {
+        return actual != null && MessageDigest.isEqual(expected.getBytes(StandardCharsets.US_ASCII),
+                actual.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Whether an encrypted response uses the session key the request offered.
+     * Clients that bind the nonce must reuse an offered key, so a response
+     * wrapping a new one (a replayed ciphertext under a rewritten envelope) is
+     * dropped before the RSA unwrap.
+     */
+    private boolean usesOfferedKey(PlayerSession session, byte[] message, SessionKeys sessionKeys,
+            PlayerSession.ModListRequest request) {
+        String keyId = InboundMessageDecoder.peekKeyId(message);
+        if (keyId != null) {
+            return keyId.equals(sessionKeys.currentKeyId());
+        }
+        return !session.bindsNonce || request.offeredKeyId == null
+                || !request.offeredKeyId.equals(sessionKeys.currentKeyId());
+    }
+
+    /**
+     * Hand a mod list response to the crypto worker for decryption and signature
+     * checks. The verification decision is made back on the main thread.
+     *
+     * @param request The request the response must answer
+     * @return false if the response was dropped before reaching the crypto
+     *         worker, e.g. because its queue was full
+     */
+    private boolean submitModListResponse(Player player, PlayerSession session, byte[] message,
+            InboundMessageDecoder.MessageType type, SecureChannel channel, SessionKeys sessionKeys,
+            PlayerSession.ModListRequest request, BiConsumer<Player, VerifiedResponse> completion) {
+        String playerName = player.getName();
+        if (type == InboundMessageDecoder.MessageType.RESPONSE_MODLIST_ENCRYPTED
+                && !usesOfferedKey(session, message, sessionKeys, request)) {
+            plugin.logInfo("🚫 SECURITY: Mod list from " + playerName + " doesn't use the offered session key for "
+                    + request.checkId + " - dropped");
+            return false;
+        }
+        String expectedNonce = session.bindsNonce ? request.nonce : null;
+        if (!tryDecrypt(type)) {
+            // Like a full crypto queue: the modlist timeout requests the list again
+            decryptBudgetDrops++;
+            plugin.logInfo("⚠️ Decrypt budget spent - dropped mod list response from " + playerName);
+            return false;
+        }
+        boolean queued = plugin.getCryptoWorker().submit(player, () -> {
+            // The response is parsed exactly once here and handed through as-is
+            ModListResponse response;
+            if (type == InboundMessageDecoder.MessageType.RESPONSE_MODLIST_SEALED) {
+                response = plugin.getSecurityManager().decryptSealedResponse(playerName, message, channel);
+            } else if (type == InboundMessageDecoder.MessageType.RESPONSE_MODLIST_ENCRYPTED) {
+                // RSA-wrapped key, for Hidder builds without the secure channel
+                response = plugin.getSecurityManager().decryptResponse(playerName, message, sessionKeys);
+            } else {
+                try {
+                    response = plugin.getModListParser().parseResponse(message);
+                } catch (JsonTokenizer.MalformedJsonException e) {
+                    // Dropped; the modlist timeout re-requests the list
+                    plugin.logInfo("❌ Malformed mod list from " + playerName + ": " + e.getMessage());
+                    return null;
                 }
             }
-        }.runTaskLater(plugin, plugin.getHANDSHAKE_TIMEOUT_SECONDS() * 20L).getTaskId();
+            if (response == null) {
+                return null;
+            }
+            if (!request.checkId.equals(response.checkId())) {
+                // Old clients only carry the check ID inside the payload
+                plugin.logInfo("🚫 SECURITY: Mod list from " + playerName + " answers check ID "
+                        + response.checkId() + " instead of " + request.checkId + " - dropped");
+                return null;
+            }
+            if (expectedNonce != null && !nonceMatches(expectedNonce, response.nonce())) {
+                // The envelope nonce isn't authenticated; only the one in the payload counts
+                plugin.logInfo("🚫 SECURITY: Mod list from " + playerName + " without the signed nonce for "
+                        + request.checkId + " - dropped");
+                return null;
+            }
+            String securityFailure = plugin.getVerificationService().verifyResponseSignature(playerName, response);
+            return new VerifiedResponse(response, securityFailure);
+        }, (target, verified) -> {
+            if (verified != null) {
+                // Answered; any later copy of this response is a replay
+                plugin.getReplayCache().add(request.checkId);
+            }
+            completion.accept(target, verified);
+        });
+
+        if (!queued) {
+            // The modlist timeout re-requests the list, so dropping here only delays the player
+            plugin.logInfo("⚠️ Crypto queue full - dropped mod list response from " + playerName);
+        }
+        return queued;
     }
 
-    public void sendModListRequest(Player player) {
-        UUID playerId = player.getUniqueId();
-        PlayerDataManager.PlayerModCheckData checkData = plugin.getPlayerDataManager().getPlayerModChecks()
-                .get(playerId);
-        if (checkData == null) {
-            return;
+    /**
+     * Result of the off-thread stage for a single mod list response
+     */
+    private static final class VerifiedResponse {
+        final ModListResponse response;
+        final String securityFailure;
+
+        VerifiedResponse(ModListResponse response, String securityFailure) {
+            this.response = response;
+            this.securityFailure = securityFailure;
         }
+    }
 
-        checkData.retryCount++;
-        if (checkData.retryCount > MAX_RETRIES) {
-            plugin.logInfo(
-                    "❌ Mod list request failed for " + player.getName() + " (UUID: " + playerId.toString() + ")");
+    /**
+     * Result of the off-thread stage for a single mod list digest
+     */
+    private static final class VerifiedDigest {
+        final ModListDigest digest;
+        final String securityFailure;
+
+        VerifiedDigest(ModListDigest digest, String securityFailure) {
+            this.digest = digest;
+            this.securityFailure = securityFailure;
+        }
+    }
+
+    public void sendHandshakeRequest(Player player, PlayerSession session) {
+        UUID playerId = player.getUniqueId();
+
+        session.handshakeRetryCount++;
+        if (session.handshakeRetryCount > MAX_RETRIES) {
+            plugin.logInfo("❌ Handshake failed for " + player.getName() + " (UUID: " + playerId.toString() + ")");
             player.kickPlayer(plugin.getKickMessages().get("modlistRequestFailed"));
             return;
         }
 
+        // The presence deadline is armed by the HandshakeManager, which also
+        // remembers the rejection
         player.sendPluginMessage(plugin, PLUGIN_CHANNEL, new byte[0]);
-
-        checkData.timeoutTaskId = new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (plugin.getPlayerDataManager().getPlayerModChecks().containsKey(playerId)) {
-                    plugin.logInfo(
-                            "❌ Mod list timeout for " + player.getName() + " (UUID: " + playerId.toString() + ")");
-                    player.kickPlayer(plugin.getKickMessages().get("modlistTimeout"));
-                }
-            }
-        }.runTaskLater(plugin, plugin.getTIMEOUT_SECONDS() * 20L).getTaskId();
     }
 
-    public void sendModListRequest(Player player, PlayerDataManager.PlayerModCheckData checkData) {
+    public void sendModListRequest(Player player, PlayerSession session, PlayerSession.ModListRequest request) {
         try {
-            checkData.attemptCount++;
-            checkData.lastRequestTime = System.currentTimeMillis();
+            request.attemptCount++;
+            request.lastRequestTime = System.currentTimeMillis();
 
-            checkData.lastRequestTime = System.currentTimeMillis();
-            String requestJson = "{\"messageType\":\"REQUEST_MODLIST\",\"checkId\":\"" + checkData.checkId + "\"}";
+            String requestJson = "{\"messageType\":\"REQUEST_MODLIST\",\"checkId\":\"" + request.checkId + "\""
+                    + nonceField(request) + digestFirstField(session, request) + keyIdField(session, request)
+                    + "}";
             sendPluginMessage(player, requestJson);
-            startModCheckTimeoutTimer(player, checkData);
+            startModCheckTimeoutTimer(session, request);
 
         } catch (Exception e) {
             plugin.logInfo("❌ FAILED TO SEND MODLIST REQUEST to " + player.getName() + ": " + e.getMessage());
             // Retry or handle failure
-            handleRequestFailure(player, checkData);
+            handleRequestFailure(player, session, request);
         }
     }
 
+    /**
+     * Send ACKNOWLEDGE_PRESENCE with the join modlist request folded into it, for
+     * clients that negotiated the pipelined handshake. Failures are left to the
+     * caller, like a failed acknowledgement.
+     */
+    public void sendAcknowledgeWithModListRequest(Player player, PlayerSession session) {
+        PlayerSession.ModListRequest request = session.modListRequest;
+        request.attemptCount++;
+        request.lastRequestTime = System.currentTimeMillis();
+
+        String ackJson = "{\"messageType\":\"" + ProtocolConstants.MSG_ACKNOWLEDGE_PRESENCE
+                + "\",\"status\":\"ready\",\"serverId\":\"" + ProtocolConstants.PLUGIN_VERSION
+                + "\",\"" + ProtocolConstants.KEY_REQUEST_MODLIST + "\":true,\"" + ProtocolConstants.KEY_CHECK_ID
+                + "\":\"" + request.checkId + "\"" + nonceField(request) + digestFirstField(session, request)
+                + channelKeyField(session) + "}";
+        sendPluginMessage(player, ackJson);
+        // Retries after a timeout use the regular REQUEST_MODLIST message
+        startModCheckTimeoutTimer(session, request);
+    }
+
+    /**
+     * Answer a mod list digest: "known" ends the exchange, "unknown" asks the
+     * client for the full list under the same check ID
+     */
+    public void sendDigestResult(Player player, PlayerSession session, boolean known) {
+        PlayerSession.ModListRequest request = session.modListRequest;
+        if (!known) {
+            // The full list gets a fresh timeout; a lost message is re-requested like any other
+            startModCheckTimeoutTimer(session, request);
+        }
+
+        String resultJson = "{\"messageType\":\"" + ProtocolConstants.MSG_MODLIST_DIGEST_RESULT + "\",\""
+                + ProtocolConstants.KEY_CHECK_ID + "\":\"" + request.checkId + "\",\"" + ProtocolConstants.KEY_STATUS
+                + "\":\"" + (known ? ProtocolConstants.STATUS_KNOWN : ProtocolConstants.STATUS_UNKNOWN) + "\"}";
+        try {
+            sendPluginMessage(player, resultJson);
+        } catch (RuntimeException e) {
+            // Already logged; the modlist timeout takes over
+        }
+    }
+
+    /**
+     * Request field carrying the nonce the client must echo next to the check ID
+     */
+    private String nonceField(PlayerSession.ModListRequest request) {
+        return ",\"" + ProtocolConstants.KEY_NONCE + "\":\"" + request.nonce + "\"";
+    }
+
+    /**
+     * Extra request field asking the client for a digest first, for join checks
+     * of clients that negotiated the digest exchange
+     */
+    private String digestFirstField(PlayerSession session, PlayerSession.ModListRequest request) {
+        if (request.seek || !session.digestFirst) {
+            return "";
+        }
+        return ",\"" + ProtocolConstants.KEY_DIGEST_FIRST + "\":true";
+    }
+
+    /**
+     * Extra request field offering the session's cached AES key, so the client
+     * can encrypt under it instead of wrapping a new key. The offer is recorded
+     * on the request.
+     */
+    private String keyIdField(PlayerSession session, PlayerSession.ModListRequest request) {
+        request.offeredKeyId = null;
+        if (session.secureChannel != null) {
+            return ""; // Sealed responses never use the RSA path
+        }
+        String keyId = session.sessionKeys.currentKeyId();
+        if (keyId == null) {
+            return "";
+        }
+        request.offeredKeyId = keyId;
+        return ",\"" + ProtocolConstants.KEY_KEY_ID + "\":\"" + keyId + "\"";
+    }
+
+    /**
+     * Extra ACKNOWLEDGE_PRESENCE field carrying the server's ephemeral key, for
+     * clients that negotiated the secure channel
+     */
+    public String channelKeyField(PlayerSession session) {
+        SecureChannel channel = session.secureChannel;
+        if (channel == null) {
+            return "";
+        }
+        return ",\"" + ProtocolConstants.KEY_CHANNEL_KEY + "\":\"" + channel.getServerPublicKey() + "\"";
+    }
+
     public void sendPluginMessage(Player player, String messageJson) {
         try {
             // Convert the JSON message to bytes directly
@@ -154,90 +599,101 @@ public class MessageHandler {
         }
     }
 
-    private void startModCheckTimeoutTimer(Player player, PlayerDataManager.PlayerModCheckData checkData) {
-        BukkitRunnable timeoutTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (!checkData.modListReceived && player.isOnline()) {
-                    handleModCheckTimeout(player, checkData);
-                }
-            }
-        };
+    private void startModCheckTimeoutTimer(PlayerSession session, PlayerSession.ModListRequest request) {
+        // Seek requests get their own deadline so they never clobber a running verification
+        TimeoutWheel.Kind kind = request.seek ? TimeoutWheel.Kind.SEEK : TimeoutWheel.Kind.MODLIST;
 
-        checkData.timeoutTaskId = timeoutTask.runTaskLater(plugin, plugin.getTIMEOUT_SECONDS() * 20L).getTaskId();
+        plugin.getTimeoutWheel().arm(session.playerId, kind, plugin.getTIMEOUT_SECONDS() * 20L, () -> {
+            // Look the player up again rather than holding on to the Player object
+            Player current = Bukkit.getPlayer(session.playerId);
+            if (current != null && current.isOnline()) {
+                handleModCheckTimeout(current, session, request);
+            }
+        });
     }
 
-    private void handleModCheckTimeout(Player player, PlayerDataManager.PlayerModCheckData checkData) {
-        // Check if this is a seek request by looking in the seekRequests map
-        UUID playerId = player.getUniqueId();
-        PlayerDataManager.PlayerModCheckData seekCheckData = plugin.getSeekRequests().get(playerId);
-
-        if (seekCheckData != null && seekCheckData.checkId.equals(checkData.checkId)) {
-            // This is a seek request, handle it differently
-            if (checkData.attemptCount < MAX_RETRIES) {
+    private void handleModCheckTimeout(Player player, PlayerSession session, PlayerSession.ModListRequest request) {
+        if (request.seek) {
+            if (session.getSeekRequest() != request) {
+                return; // Answered or replaced by a newer seek
+            }
+            if (request.attemptCount < MAX_RETRIES) {
                 // Retry
-                plugin.logInfo("⏰ TIMEOUT for player " + checkData.playerName + " - retrying seek modlist request (#"
-                        + (checkData.attemptCount + 1) + ")");
-                sendModListRequest(player, checkData);
-            } else {
+                plugin.logInfo("⏰ TIMEOUT for player " + session.playerName + " - retrying seek modlist request (#"
+                        + (request.attemptCount + 1) + ")");
+                sendModListRequest(player, session, request);
+            } else if (session.claimSeek(request)) {
                 // Final timeout for seek request - just log and remove, don't kick
-                plugin.logInfo("⚠️ Seek request timeout for player " + checkData.playerName);
-                plugin.getSeekRequests().remove(playerId);
+                plugin.logInfo("⚠️ Seek request timeout for player " + session.playerName);
+            }
+            return;
+        }
+
+        PlayerSession.State state = session.getState();
+        if (state == PlayerSession.State.VERIFYING) {
+            if (request.attemptCount < MAX_RETRIES) {
+                // A response is still in the crypto stage; give it another timeout
+                // period, which counts as an attempt so a stuck stage can't hold the
+                // player forever
+                request.attemptCount++;
+                startModCheckTimeoutTimer(session, request);
+            } else if (session.transition(PlayerSession.State.VERIFYING, PlayerSession.State.REJECTED)) {
+                plugin.logInfo("⚠️ Mod list of " + session.playerName + " still not verified after " + MAX_RETRIES
+                        + " timeouts");
+                plugin.logInfo("❌Player verification incomplete — access denied");
+                String kickMessage = plugin.getKickMessages().getOrDefault("modlistTimeout",
+                        "Player Verification Failed");
+                player.kickPlayer(ChatColor.RED + kickMessage);
             }
             return;
         }
+        if (state != PlayerSession.State.AWAITING_MODLIST) {
+            return;
+        }
 
-        // Otherwise, this is a regular verification request
-        if (checkData.attemptCount < MAX_RETRIES) {
+        if (request.attemptCount < MAX_RETRIES) {
             // Retry
-            plugin.logInfo("⏰ TIMEOUT for player " + checkData.playerName + " - retrying modlist request (#"
-                    + (checkData.attemptCount + 1) + ")");
-            sendModListRequest(player, checkData);
-        } else {
+            plugin.logInfo("⏰ TIMEOUT for player " + session.playerName + " - retrying modlist request (#"
+                    + (request.attemptCount + 1) + ")");
+            sendModListRequest(player, session, request);
+        } else if (session.transition(PlayerSession.State.AWAITING_MODLIST, PlayerSession.State.REJECTED)) {
             // Final timeout - kick player
             plugin.logInfo("⚠️ Hidder failed to send modlist");
             plugin.logInfo("❌Player verification incomplete — access denied");
             plugin.logInfo(
-                    "🦵 " + checkData.playerName + " has been kicked from the server for failing to send modlist");
+                    "🦵 " + session.playerName + " has been kicked from the server for failing to send modlist");
             String kickMessage = plugin.getKickMessages().getOrDefault("modlistTimeout", "Player Verification Failed");
             player.kickPlayer(ChatColor.RED + kickMessage);
         }
     }
 
-    private void handleRequestFailure(Player player, PlayerDataManager.PlayerModCheckData checkData) {
-        // Check if this is a seek request by looking in the seekRequests map
-        UUID playerId = player.getUniqueId();
-        PlayerDataManager.PlayerModCheckData seekCheckData = plugin.getSeekRequests().get(playerId);
-
-        if (seekCheckData != null && seekCheckData.checkId.equals(checkData.checkId)) {
-            // This is a seek request, handle it differently
-            if (checkData.attemptCount < MAX_RETRIES) {
+    private void handleRequestFailure(Player player, PlayerSession session, PlayerSession.ModListRequest request) {
+        if (request.seek) {
+            if (request.attemptCount < MAX_RETRIES) {
                 // Retry
-                plugin.logInfo("🔄 RETRYING SEEK MODLIST REQUEST for player " + checkData.playerName + " (#"
-                        + (checkData.attemptCount + 1) + ")");
-                sendModListRequest(player, checkData);
-            } else {
+                plugin.logInfo("🔄 RETRYING SEEK MODLIST REQUEST for player " + session.playerName + " (#"
+                        + (request.attemptCount + 1) + ")");
+                sendModListRequest(player, session, request);
+            } else if (session.claimSeek(request)) {
                 // Final failure for seek request - just log and remove, don't kick
-                plugin.logInfo("❌ SEEK MODLIST REQUEST FAILED for player " + checkData.playerName + " after "
+                plugin.logInfo("❌ SEEK MODLIST REQUEST FAILED for player " + session.playerName + " after "
                         + MAX_RETRIES + " attempts");
-                plugin.getSeekRequests().remove(playerId);
             }
             return;
         }
 
-        // Otherwise, this is a regular verification request
-        if (checkData.attemptCount < MAX_RETRIES) {
+        if (request.attemptCount < MAX_RETRIES) {
             // Retry
-            plugin.logInfo("🔄 RETRYING MODLIST REQUEST for player " + checkData.playerName + " (#"
-                    + (checkData.attemptCount + 1) + ")");
-            sendModListRequest(player, checkData);
-        } else {
+            plugin.logInfo("🔄 RETRYING MODLIST REQUEST for player " + session.playerName + " (#"
+                    + (request.attemptCount + 1) + ")");
+            sendModListRequest(player, session, request);
+        } else if (session.transition(PlayerSession.State.AWAITING_MODLIST, PlayerSession.State.REJECTED)) {
             // Final failure - kick player
-            plugin.logInfo("❌ MODLIST REQUEST FAILED for player " + checkData.playerName + " after " + MAX_RETRIES
+            plugin.logInfo("❌ MODLIST REQUEST FAILED for player " + session.playerName + " after " + MAX_RETRIES
                     + " attempts");
             String kickMessage = plugin.getKickMessages().getOrDefault("modlistRequestFailed",
                     "Player verification failed - unable to send mod list request.");
             player.kickPlayer(ChatColor.RED + kickMessage);
         }
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns every mod ID the server has seen into a dense int, so mod sets can be
+ * stored as bitsets and the same ID String isn't held once per online player.
+ * IDs are lowercased on the way in.
+ *
+ * The dictionary holds up to {@link #MAX_SIZE} IDs; IDs seen after that are
+ * not interned and callers fall back to the plain String. Since the IDs come
+ * from clients, a full dictionary can be compacted down to the IDs still in use
+ * by online players, at most once per {@link #COMPACT_INTERVAL_MS}. Only use
+ * from the server main thread.
+ */
+public class ModDictionary {
+
+    public static final int MAX_SIZE = 65536;
+    public static final long COMPACT_INTERVAL_MS = 60_000;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    // Bumped whenever IDs are renumbered, so anything cached per ID is rebuilt
+    private long generation = 0;
+    private long lastCompaction = 0;
+
+    /**
+     * Get the ID of a mod, assigning the next free one if it is new
+     *
+     * @param modId The mod ID, in any case
+     * @return The dense ID, or -1 if the dictionary is full
+     */
+    public int intern(String modId) {
+        String key = modId.toLowerCase();
+        Integer id = ids.get(key);
+        if (id != null) {
+            return id;
+        }
+        if (names.size() >= MAX_SIZE) {
+            return -1;
+        }
+        id = names.size();
+        names.add(key);
+        ids.put(key, id);
+        return id;
+    }
+
+    /**
+     * Intern a whole mod list
+     *
+     * @return The dense ID of each mod, by index (-1 where the dictionary was
+     *         full)
+     */
+    public int[] internAll(List<String> modIds) {
+        int[] result = new int[modIds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = intern(modIds.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * @return true if any mod of an interned list didn't fit in the dictionary
+     */
+    public static boolean containsUninterned(int[] modIds) {
+        for (int id : modIds) {
+            if (id < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Build the bitset of a mod list, sized by its largest ID rather than the
+     * whole dictionary. Mods that could not be interned are left out; see
+     * {@link #uninterned(List, int[])}.
+     */
+    public static BitSet toBitSet(int[] modIds) {
+        int max = -1;
+        for (int id : modIds) {
+            max = Math.max(max, id);
+        }
+        BitSet set = new BitSet(max + 1);
+        for (int id : modIds) {
+            if (id >= 0) {
+                set.set(id);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * @return The mods of an interned list that didn't fit in the dictionary,
+     *         lowercased
+     */
+    public static List<String> uninterned(List<String> modIds, int[] ids) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] < 0) {
+                result.add(modIds.get(i).toLowerCase());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the dictionary is full and hasn't been compacted recently
+     */
+    public boolean canCompact() {
+        return names.size() >= MAX_SIZE && System.currentTimeMillis() - lastCompaction >= COMPACT_INTERVAL_MS;
+    }
+
+    /**
+     * Drop every ID not set in one of the live bitsets and renumber the rest
+     * densely, in their current order
+     *
+     * @param live The bitsets still in use
+     * @return The new ID of each old ID, or -1 where it was dropped; pass it to
+     *         {@link #remap(BitSet, int[])} for each live bitset
+     */
+    public int[] compact(Collection<BitSet> live) {
+        BitSet keep = new BitSet(names.size());
+        for (BitSet set : live) {
+            keep.or(set);
+        }
+
+        int[] remap = new int[names.size()];
+        List<String> kept = new ArrayList<>(keep.cardinality());
+        for (int id = 0; id < remap.length; id++) {
+            remap[id] = keep.get(id) ? kept.size() : -1;
+            if (remap[id] >= 0) {
+                kept.add(names.get(id));
+            }
+        }
+
+        ids.clear();
+        names.clear();
+        for (String name : kept) {
+            ids.put(name, names.size());
+            names.add(name);
+        }
+        generation++;
+        lastCompaction = System.currentTimeMillis();
+        return remap;
+    }
+
+    /**
+     * @return A bitset renumbered with the result of {@link #compact(Collection)}
+     */
+    public static BitSet remap(BitSet set, int[] remap) {
+        BitSet result = new BitSet(set.length());
+        for (int id = set.nextSetBit(0); id >= 0; id = set.nextSetBit(id + 1)) {
+            if (id < remap.length && remap[id] >= 0) {
+                result.set(remap[id]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The lowercased mod ID for a dense ID
+     */
+    public String name(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * @return The lowercased mod IDs in a bitset, in ID order
+     */
+    public List<String> names(BitSet set) {
+        List<String> result = new ArrayList<>(set.cardinality());
+        for (int id = set.nextSetBit(0); id >= 0; id = set.nextSetBit(id + 1)) {
+            result.add(names.get(id));
+        }
+        return result;
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public long generation() {
+        return generation;
+    }
+}
\ No newline at end of file
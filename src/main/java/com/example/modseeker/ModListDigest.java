@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+/**
+ * A RESPONSE_MODLIST_DIGEST message: the client's mod list reduced to its
+ * {@link ModListResponse#fingerprint() fingerprint}, sent instead of the full
+ * list when the digest exchange was negotiated.
+ *
+ * @param checkId   The check ID echoed by the client, or null if missing
+ * @param nonce     The request nonce, or null if missing
+ * @param digest    The Base64 fingerprint of the client's mod list
+ * @param signature The Base64 signature over {@code checkId|digest}, or
+ *                  {@code checkId|nonce|digest} when there is a nonce, or null
+ *                  if missing
+ * @param timestamp The client timestamp in milliseconds, or -1 if missing
+ */
+public record ModListDigest(String checkId, String nonce, String digest, String signature, long timestamp) {
+
+    public boolean hasTimestamp() {
+        return timestamp >= 0;
+    }
+}
\ No newline at end of file
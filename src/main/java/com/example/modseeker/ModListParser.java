@@ -16,6 +16,7 @@
  */
 package com.example.modseeker;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -24,116 +25,270 @@ import java.util.List;
  */
 public class ModListParser {
 
+    private static final byte[] KEY_CHECK_ID = "checkId".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY_MODS = "mods".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY_RESOURCE_PACKS = "resourcePacks".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY_SHADER_PACKS = "shaderPacks".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY_SIGNATURE = "signature".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY_TIMESTAMP = "timestamp".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY_DIGEST = ProtocolConstants.KEY_DIGEST.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY_NONCE = ProtocolConstants.KEY_NONCE.getBytes(StandardCharsets.US_ASCII);
+
     /**
-     * Parse mod list from response message using string parsing
-     * Returns only mod IDs (strips version info)
+     * Parse a RESPONSE_MODLIST message into a typed response. The raw bytes are
+     * tokenized in a single pass; unknown fields are skipped without allocating,
+     * and mod entries, IDs and versions are kept as spans into the message until
+     * they are read.
      * 
-     * @param messageJson The JSON message containing the mod list
-     * @return List of mod IDs
+     * @param message The raw UTF-8 JSON message containing the mod list
+     * @return The parsed response
+     * @throws JsonTokenizer.MalformedJsonException if the message is not valid
+     *                                              JSON or a field has the wrong
+     *                                              type
      */
-    public List<String> parseModList(String messageJson) {
-        return parseModListInternal(messageJson, false);
+    public ModListResponse parseResponse(byte[] message) throws JsonTokenizer.MalformedJsonException {
+        JsonTokenizer json = new JsonTokenizer(message);
+
+        String checkId = null;
+        String nonce = null;
+        String signature = null;
+        long timestamp = -1;
+        // Rough guess from the message size, to avoid most regrowing
+        int capacity = message.length / 24;
+        SpanList rawEntries = new SpanList(message, capacity);
+        SpanList modIds = new SpanList(message, capacity);
+        SpanList versions = new SpanList(message, capacity);
+        List<String> resourcePacks = new ArrayList<>();
+        List<String> shaderPacks = new ArrayList<>();
+
+        json.beginObject();
+        while (json.hasNext()) {
+            json.nextName();
+            if (json.spanEquals(KEY_MODS)) {
+                readModEntries(json, message, rawEntries, modIds, versions);
+            } else if (json.spanEquals(KEY_CHECK_ID)) {
+                json.nextString();
+                checkId = json.spanToString();
+            } else if (json.spanEquals(KEY_NONCE)) {
+                json.nextString();
+                nonce = json.spanToString();
+            } else if (json.spanEquals(KEY_SIGNATURE)) {
+                json.nextString();
+                signature = json.spanToString();
+            } else if (json.spanEquals(KEY_TIMESTAMP)) {
+                timestamp = json.nextLong();
+            } else if (json.spanEquals(KEY_RESOURCE_PACKS)) {
+                readStringArray(json, resourcePacks);
+            } else if (json.spanEquals(KEY_SHADER_PACKS)) {
+                readStringArray(json, shaderPacks);
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        json.endDocument();
+
+        return new ModListResponse(checkId, nonce, rawEntries, modIds, versions, resourcePacks, shaderPacks,
+                signature, timestamp);
     }
 
     /**
-     * Parse raw mod list from response message (keeping version info)
-     * Used for signature verification
+     * Parse a RESPONSE_MODLIST_DIGEST message
      * 
-     * @param messageJson The JSON message containing the mod list
-     * @return List of raw mod entries (e.g. "modid:version")
+     * @param message The raw UTF-8 JSON message
+     * @return The parsed digest
+     * @throws JsonTokenizer.MalformedJsonException if the message is not valid
+     *                                              JSON, a field has the wrong
+     *                                              type or the digest is missing
      */
-    public List<String> parseRawModList(String messageJson) {
-        return parseModListInternal(messageJson, true);
-    }
+    public ModListDigest parseDigest(byte[] message) throws JsonTokenizer.MalformedJsonException {
+        JsonTokenizer json = new JsonTokenizer(message);
 
-    private List<String> parseModListInternal(String messageJson, boolean keepRaw) {
-        List<String> modList = new ArrayList<>();
-        try {
-            // Look for the mods array in the JSON
-            int modsStart = messageJson.indexOf("\"mods\":[");
-            if (modsStart == -1) {
-                return modList; // No mods array found
-            }
+        String checkId = null;
+        String nonce = null;
+        String digest = null;
+        String signature = null;
+        long timestamp = -1;
 
-            int modsEnd = messageJson.indexOf("]", modsStart);
-            if (modsEnd == -1) {
-                return modList; // Malformed JSON
+        json.beginObject();
+        while (json.hasNext()) {
+            json.nextName();
+            if (json.spanEquals(KEY_DIGEST)) {
+                json.nextString();
+                digest = json.spanToString();
+            } else if (json.spanEquals(KEY_CHECK_ID)) {
+                json.nextString();
+                checkId = json.spanToString();
+            } else if (json.spanEquals(KEY_NONCE)) {
+                json.nextString();
+                nonce = json.spanToString();
+            } else if (json.spanEquals(KEY_SIGNATURE)) {
+                json.nextString();
+                signature = json.spanToString();
+            } else if (json.spanEquals(KEY_TIMESTAMP)) {
+                timestamp = json.nextLong();
+            } else {
+                json.skipValue();
             }
+        }
+        json.endObject();
+        json.endDocument();
 
-            // Extract the content between the brackets
-            String modsContent = messageJson.substring(modsStart + 8, modsEnd); // +8 to skip "\"mods\":["
+        if (digest == null || digest.isEmpty()) {
+            throw new JsonTokenizer.MalformedJsonException("Missing digest", message.length);
+        }
+        return new ModListDigest(checkId, nonce, digest, signature, timestamp);
+    }
 
-            // Handle empty array
-            if (modsContent.trim().isEmpty()) {
-                return modList;
+    /**
+     * Build a response from stored raw entries, e.g. a known modpack recalled by
+     * its digest
+     * 
+     * @param checkId       The check ID of the current request
+     * @param rawEntries    Mod entries as sent (e.g. "modid:version")
+     * @param resourcePacks Resource packs
+     * @param shaderPacks   Shader packs
+     * @param signature     The signature the entries were accepted with
+     * @param timestamp     The timestamp the entries were accepted with
+     * @return The response
+     */
+    public ModListResponse fromEntries(String checkId, List<String> rawEntries, List<String> resourcePacks,
+            List<String> shaderPacks, String signature, long timestamp) {
+        List<String> modIds = new ArrayList<>(rawEntries.size());
+        List<String> versions = new ArrayList<>(rawEntries.size());
+        splitEntries(rawEntries, modIds, versions);
+        return new ModListResponse(checkId, null, rawEntries, modIds, versions, resourcePacks, shaderPacks,
+                signature, timestamp);
+    }
+
+    /**
+     * Read the mods array into raw entries plus split mod IDs and versions, as
+     * spans into the message. Only entries with escape sequences are decoded
+     * here.
+     */
+    private void readModEntries(JsonTokenizer json, byte[] message, SpanList rawEntries, SpanList modIds,
+            SpanList versions) throws JsonTokenizer.MalformedJsonException {
+        json.beginArray();
+        while (json.hasNext()) {
+            json.nextString();
+            int start = json.spanStart();
+            int end = json.spanEnd();
+            if (start == end) {
+                continue;
             }
 
-            // Remove surrounding quotes if present and split by ","
-            modsContent = modsContent.trim();
-
-            // Handle the case where we have multiple mods
-            if (modsContent.startsWith("\"") && modsContent.endsWith("\"") && modsContent.contains("\",\"")) {
-                // Multiple mods case - split by ","
-                String[] modEntries = modsContent.split("\",\"");
-
-                // Process each mod entry
-                for (int i = 0; i < modEntries.length; i++) {
-                    String modEntry = modEntries[i];
-                    // Remove quotes
-                    if (i == 0 && modEntry.startsWith("\"")) {
-                        modEntry = modEntry.substring(1);
-                    }
-                    if (i == modEntries.length - 1 && modEntry.endsWith("\"")) {
-                        modEntry = modEntry.substring(0, modEntry.length() - 1);
-                    }
-
-                    addModEntry(modList, modEntry, keepRaw);
-                }
-            } else if (modsContent.startsWith("\"") && modsContent.endsWith("\"")) {
-                // Single mod case
-                String modEntry = modsContent.substring(1, modsContent.length() - 1);
-                addModEntry(modList, modEntry, keepRaw);
-            } else if (modsContent.contains("\"")) {
-                // Multiple quoted mods - more careful splitting
-                // Find all quoted strings
-                List<String> quotedStrings = new ArrayList<>();
-                int quoteStart = -1;
-                for (int i = 0; i < modsContent.length(); i++) {
-                    if (modsContent.charAt(i) == '"' && (i == 0 || modsContent.charAt(i - 1) != '\\')) {
-                        if (quoteStart == -1) {
-                            quoteStart = i;
-                        } else {
-                            quotedStrings.add(modsContent.substring(quoteStart + 1, i));
-                            quoteStart = -1;
-                        }
-                    }
+            if (json.spanHasEscapes()) {
+                String entry = json.spanToString();
+                rawEntries.addDecoded(entry);
+                String modId = extractModIdFromEntry(entry);
+                if (modId != null && !modId.isEmpty()) {
+                    modIds.addDecoded(modId);
+                    versions.addDecoded(modId.length() < entry.length() ? entry.substring(modId.length() + 1) : "");
                 }
+                continue;
+            }
 
-                // Add entries
-                for (String modEntry : quotedStrings) {
-                    addModEntry(modList, modEntry, keepRaw);
-                }
+            rawEntries.addSpan(start, end);
+            // ':' is ASCII, so it can't appear inside a multi-byte UTF-8 sequence
+            int colon = start;
+            while (colon < end && message[colon] != ':') {
+                colon++;
+            }
+            if (colon > start) {
+                modIds.addSpan(start, colon);
+                versions.addSpan(Math.min(colon + 1, end), end);
             }
-        } catch (Exception e) {
-            // Silent fail - return empty list
         }
-        return modList;
+        json.endArray();
     }
 
-    private void addModEntry(List<String> modList, String modEntry, boolean keepRaw) {
-        if (modEntry == null || modEntry.isEmpty())
-            return;
+    private void readStringArray(JsonTokenizer json, List<String> out) throws JsonTokenizer.MalformedJsonException {
+        json.beginArray();
+        while (json.hasNext()) {
+            json.nextString();
+            if (json.spanStart() != json.spanEnd()) {
+                out.add(json.spanToString());
+            }
+        }
+        json.endArray();
+    }
+
+    /**
+     * Parse the decrypted payload of an encrypted response
+     * (checkId=...|nonce=...|timestamp=...|mods=...|resourcePacks=...|shaderPacks=...)
+     * straight into a typed response, without going through JSON. Older clients
+     * leave out the nonce and timestamp.
+     * 
+     * @param decryptedData The decrypted payload
+     * @param receivedAt    The time the response was received, used as timestamp
+     *                      if the payload has none
+     * @return The parsed response
+     */
+    public ModListResponse parseDecryptedPayload(String decryptedData, long receivedAt) {
+        String checkId = "unknown";
+        String nonce = null;
+        long timestamp = receivedAt;
+        List<String> rawEntries = new ArrayList<>();
+        List<String> resourcePacks = new ArrayList<>();
+        List<String> shaderPacks = new ArrayList<>();
+
+        String[] fields = decryptedData.split("\\|");
+        for (String field : fields) {
+            if (field.startsWith("checkId="))
+                checkId = field.substring("checkId=".length());
+            else if (field.startsWith("nonce="))
+                nonce = field.substring("nonce=".length());
+            else if (field.startsWith("timestamp="))
+                timestamp = parseTimestamp(field.substring("timestamp=".length()), receivedAt);
+            else if (field.startsWith("mods="))
+                splitCommaList(field, "mods=".length(), rawEntries);
+            else if (field.startsWith("resourcePacks="))
+                splitCommaList(field, "resourcePacks=".length(), resourcePacks);
+            else if (field.startsWith("shaderPacks="))
+                splitCommaList(field, "shaderPacks=".length(), shaderPacks);
+        }
+
+        List<String> modIds = new ArrayList<>(rawEntries.size());
+        List<String> versions = new ArrayList<>(rawEntries.size());
+        splitEntries(rawEntries, modIds, versions);
+
+        return new ModListResponse(checkId, nonce, rawEntries, modIds, versions, resourcePacks, shaderPacks,
+                ModListResponse.ENCRYPTED_CHANNEL, timestamp);
+    }
+
+    private static long parseTimestamp(String value, long fallback) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
 
-        if (keepRaw) {
-            modList.add(modEntry);
-        } else {
-            String modId = extractModIdFromEntry(modEntry);
-            if (modId != null && !modId.isEmpty()) {
-                modList.add(modId);
+    private void splitCommaList(String field, int start, List<String> out) {
+        if (start >= field.length()) {
+            return;
+        }
+        for (String item : field.substring(start).split(",")) {
+            if (!item.isEmpty()) {
+                out.add(item);
             }
         }
     }
 
+    private void splitEntries(List<String> rawEntries, List<String> modIds, List<String> versions) {
+        for (String entry : rawEntries) {
+            addSplitEntry(entry, modIds, versions);
+        }
+    }
+
+    private void addSplitEntry(String entry, List<String> modIds, List<String> versions) {
+        String modId = extractModIdFromEntry(entry);
+        if (modId != null && !modId.isEmpty()) {
+            modIds.add(modId);
+            versions.add(modId.length() < entry.length() ? entry.substring(modId.length() + 1) : "");
+        }
+    }
+
     /**
      * Helper method to extract modId from a mod entry string (modId:version format)
      * 
@@ -162,11 +317,25 @@ public class ModListParser {
      * @return The version string or null if not found
      */
     public String extractModVersion(String messageJson) {
+        return extractStringField(messageJson, "version");
+    }
+
+    /**
+     * Extract the client's ephemeral X25519 key from an ANNOUNCE_PRESENCE message
+     *
+     * @return The Base64 key, or null if the client didn't offer a secure channel
+     */
+    public String extractChannelKey(String messageJson) {
+        return extractStringField(messageJson, ProtocolConstants.KEY_CHANNEL_KEY);
+    }
+
+    private String extractStringField(String messageJson, String key) {
         try {
-            // Simple extraction - look for version field
-            int versionIndex = messageJson.indexOf("\"version\":\"");
-            if (versionIndex != -1) {
-                int start = versionIndex + 11; // Length of "\"version\":\""
+            // Simple extraction - look for the field
+            String searchKey = "\"" + key + "\":\"";
+            int keyIndex = messageJson.indexOf(searchKey);
+            if (keyIndex != -1) {
+                int start = keyIndex + searchKey.length();
                 int end = messageJson.indexOf("\"", start);
                 if (end != -1) {
                     return messageJson.substring(start, end);
@@ -177,4 +346,4 @@ public class ModListParser {
         }
         return null;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A mod list response, parsed once by {@link ModListParser} and passed through
+ * the whole verification pipeline.
+ *
+ * @param checkId       The check ID echoed by the client, or null if missing
+ * @param nonce         The request nonce from inside the signed or encrypted
+ *                      payload, or null if missing
+ * @param rawEntries    Mod entries as sent (e.g. "modid:version"), used for the
+ *                      signature
+ * @param modIds        Mod IDs with the version suffix stripped
+ * @param versions      Versions matching {@code modIds} by index ("" if none)
+ * @param resourcePacks Resource packs reported by the client
+ * @param shaderPacks   Shader packs reported by the client
+ * @param signature     The Base64 signature, or null if missing
+ * @param timestamp     The client timestamp in milliseconds, or -1 if missing
+ */
+public record ModListResponse(String checkId, String nonce, List<String> rawEntries, List<String> modIds, List<String> versions,
+        List<String> resourcePacks, List<String> shaderPacks, String signature, long timestamp) {
+
+    /**
+     * Signature value used for responses that arrived over the encrypted channel
+     */
+    public static final String ENCRYPTED_CHANNEL = "ENCRYPTED_CHANNEL";
+
+    public ModListResponse {
+        rawEntries = freeze(rawEntries);
+        modIds = freeze(modIds);
+        versions = freeze(versions);
+        resourcePacks = List.copyOf(resourcePacks);
+        shaderPacks = List.copyOf(shaderPacks);
+    }
+
+    /**
+     * Copy a list, unless it is an already unmodifiable {@link SpanList} that
+     * copying would decode in full
+     */
+    private static List<String> freeze(List<String> list) {
+        return list instanceof SpanList ? list : List.copyOf(list);
+    }
+
+    public boolean hasTimestamp() {
+        return timestamp >= 0;
+    }
+
+    /**
+     * Canonical fingerprint of the reported mods and packs, independent of the
+     * order the client sent them in. This is also the digest Hidder sends in
+     * RESPONSE_MODLIST_DIGEST, so both sides must build it the same way:
+     * <ul>
+     * <li>one line per mod {@code m:<modid lowercased>:<version>}, per resource
+     * pack {@code r:<name>} and per shader pack {@code s:<name>}</li>
+     * <li>lines sorted by UTF-16 code unit, each terminated by {@code \n}</li>
+     * <li>SHA-256 of the UTF-8 bytes, Base64 encoded</li>
+     * </ul>
+     *
+     * @return The Base64 fingerprint
+     */
+    public String fingerprint() {
+        List<String> lines = new ArrayList<>(modIds.size() + resourcePacks.size() + shaderPacks.size());
+        for (int i = 0; i < modIds.size(); i++) {
+            lines.add("m:" + modIds.get(i).toLowerCase() + ":" + versions.get(i));
+        }
+        for (String pack : resourcePacks) {
+            lines.add("r:" + pack);
+        }
+        for (String pack : shaderPacks) {
+            lines.add("s:" + pack);
+        }
+        Collections.sort(lines);
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String line : lines) {
+                digest.update(line.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
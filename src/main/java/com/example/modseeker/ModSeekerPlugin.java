@@ -16,12 +16,15 @@
  */
 package com.example.modseeker;
 
-import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRegisterChannelEvent;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.plugin.messaging.PluginMessageListener;
 import org.bukkit.scheduler.BukkitRunnable;
@@ -36,29 +39,36 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.Arrays;
 import java.util.stream.Collectors;
 
 public class ModSeekerPlugin extends JavaPlugin implements Listener, TabExecutor {
 
     private static final int MAX_RETRIES = 3;
+    // How long a session opened at pre-login waits for the player to join
+    private static final long PRE_LOGIN_SESSION_TICKS = 30 * 20L;
 
     private int TIMEOUT_SECONDS = 15;
     private int HANDSHAKE_TIMEOUT_SECONDS = 10;
 
-    private final Map<UUID, PlayerDataManager.PlayerModCheckData> seekRequests = new ConcurrentHashMap<>();
-
     private PlayerDataManager playerDataManager;
     private MessageHandler messageHandler;
     private ModListParser modListParser;
     private ConfigManager configManager;
     private BlacklistManager blacklistManager;
+    private ModDictionary modDictionary;
+    private PolicyManager policyManager;
+    private ProfileManager profileManager;
     private WhitelistManager whitelistManager;
     private CommandHandler commandHandler;
     private HandshakeManager handshakeManager;
     private VerificationService verificationService;
     private SecurityManager securityManager;
+    private CryptoWorker cryptoWorker;
+    private TimeoutWheel timeoutWheel;
+    private FingerprintTable fingerprintTable;
+    private ReplayCache replayCache;
+    private final RecentRejections recentRejections = new RecentRejections();
 
     // Simple logging prefix
     private final String logPrefix = "[ModSeeker] ";
@@ -71,7 +81,12 @@ public class ModSeekerPlugin extends JavaPlugin implements Listener, TabExecutor
 
         playerDataManager = new PlayerDataManager();
         configManager = new ConfigManager(getDataFolder());
-        blacklistManager = new BlacklistManager(getDataFolder());
+        modDictionary = new ModDictionary();
+        blacklistManager = new BlacklistManager(getDataFolder(), modDictionary);
+        // Blacklist edits and reloads are compiled off the main thread
+        blacklistManager.setCompiler(task -> getServer().getScheduler().runTaskAsynchronously(this, task));
+        policyManager = new PolicyManager(getDataFolder());
+        profileManager = new ProfileManager(getDataFolder());
         whitelistManager = new WhitelistManager(getDataFolder());
 
         loadConfig();
@@ -80,14 +95,27 @@ public class ModSeekerPlugin extends JavaPlugin implements Listener, TabExecutor
 
         logInfo("⏱️ Timeouts → Handshake: " + HANDSHAKE_TIMEOUT_SECONDS + "s | Modlist: " + TIMEOUT_SECONDS + "s");
 
+        // Single tick task driving every handshake/modlist/seek timeout
+        timeoutWheel = new TimeoutWheel(this);
+        timeoutWheel.start();
+
         // Initialize message handler
         messageHandler = new MessageHandler(this);
 
         // Initialize mod list parser
         modListParser = new ModListParser();
 
+        // Modpacks already received in full, for the digest exchange
+        fingerprintTable = new FingerprintTable(this, getDataFolder(), modListParser);
+        fingerprintTable.startAutoSave();
+
+        // Answered check IDs, so replayed mod lists are dropped before decryption
+        replayCache = new ReplayCache();
+
         // Initialize services
         securityManager = new SecurityManager(this);
+        cryptoWorker = new CryptoWorker(this, configManager.getCryptoWorkerThreads(),
+                configManager.getCryptoQueueDepth());
         verificationService = new VerificationService(this, playerDataManager, messageHandler, modListParser,
                 configManager, blacklistManager, securityManager);
         handshakeManager = new HandshakeManager(this, playerDataManager, messageHandler, modListParser, configManager,
@@ -104,6 +132,8 @@ public class ModSeekerPlugin extends JavaPlugin implements Listener, TabExecutor
         getServer().getMessenger().registerIncomingPluginChannel(this, ProtocolConstants.PLUGIN_CHANNEL,
                 (channel, player, message) -> messageHandler.onPluginMessageReceived(channel, player, message));
         getServer().getMessenger().registerOutgoingPluginChannel(this, ProtocolConstants.PLUGIN_CHANNEL);
+        logInfo("🔐 Crypto worker → Threads: " + configManager.getCryptoWorkerThreads() + " | Queue: "
+                + configManager.getCryptoQueueDepth());
         logInfo("🔌 Messaging → Outgoing: 1 | Incoming: 1");
         logInfo("   ↳ " + ProtocolConstants.PLUGIN_CHANNEL);
 
@@ -119,41 +149,87 @@ public class ModSeekerPlugin extends JavaPlugin implements Listener, TabExecutor
     public void onDisable() {
         logInfo("🛑 ModSeeker " + ProtocolConstants.PLUGIN_VERSION + " disabled");
 
-        // Clean up any ongoing tasks
-        for (PlayerDataManager.PlayerModCheckData checkData : playerDataManager.getPlayerModChecks().values()) {
-            if (checkData.timeoutTaskId != -1) {
-                Bukkit.getScheduler().cancelTask(checkData.timeoutTaskId);
-            }
+        // Clean up all handshake, modlist and seek timeouts
+        if (timeoutWheel != null) {
+            timeoutWheel.stop();
         }
 
-        // Clean up handshake timeout tasks
-        for (PlayerDataManager.HandshakeData handshakeData : playerDataManager.getPlayerHandshakes().values()) {
-            if (handshakeData.timeoutTaskId != -1) {
-                Bukkit.getScheduler().cancelTask(handshakeData.timeoutTaskId);
-            }
-            if (handshakeData.presenceTimeoutTaskId != -1) {
-                Bukkit.getScheduler().cancelTask(handshakeData.presenceTimeoutTaskId);
-            }
+        // Stop the crypto worker stage
+        if (cryptoWorker != null) {
+            cryptoWorker.shutdown();
         }
 
-        // Clean up seek request timeout tasks
-        for (PlayerDataManager.PlayerModCheckData seekData : seekRequests.values()) {
-            if (seekData.timeoutTaskId != -1) {
-                Bukkit.getScheduler().cancelTask(seekData.timeoutTaskId);
-            }
+        // Persist newly seen modpacks
+        if (fingerprintTable != null) {
+            fingerprintTable.shutdown();
         }
         logInfo("🧹 Cleanup complete — all sessions cleared");
         logInfo("✅ Plugin messaging channels closed");
     }
 
+    /**
+     * With pre-login checks enabled, refuse a player whose mods were rejected
+     * moments ago, before they load into the world. Runs before the session is
+     * opened, so a refused login never gets one.
+     */
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onAsyncPreLoginCheck(AsyncPlayerPreLoginEvent event) {
+        if (!configManager.isPreLoginChecks()
+                || event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED
+                || bypassFor(event.getUniqueId()) != PlayerSession.Bypass.NONE) {
+            return;
+        }
+        String kickMessage = recentRejections.lookup(event.getUniqueId(), getRulesVersion());
+        if (kickMessage != null) {
+            logInfo("⛔ " + event.getName() + " refused at pre-login — rejected within the last "
+                    + configManager.getRejectedLoginMemorySeconds() + "s");
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, kickMessage);
+        }
+    }
+
+    /**
+     * With pre-login checks enabled, decide the bypasses and allocate the
+     * session while the login is still on its async thread, so the join only has
+     * to start the handshake. A connection can drop before the login event
+     * without any event removing the session, so it expires unless the player
+     * joins in time.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (!configManager.isPreLoginChecks()
+                || event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        PlayerSession session = openSession(event.getUniqueId(), event.getName());
+        getServer().getScheduler().runTask(this, () -> timeoutWheel.arm(session.playerId, TimeoutWheel.Kind.LOGIN,
+                PRE_LOGIN_SESSION_TICKS, () -> {
+                    if (getServer().getPlayer(session.playerId) == null && playerDataManager.removeSession(session)) {
+                        logInfo("🧹 Session of " + session.playerName + " expired — never joined after pre-login");
+                    }
+                }));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        // Drop a session prepared during pre-login if another plugin refused the login
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            playerDataManager.removeSession(event.getPlayer().getUniqueId());
+        }
+    }
+
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
         UUID playerId = player.getUniqueId();
         String playerName = player.getName();
 
-        // Check if player is whitelisted
-        if (whitelistManager.isWhitelisted(playerId)) {
+        timeoutWheel.cancel(playerId, TimeoutWheel.Kind.LOGIN);
+        PlayerSession session = playerDataManager.getSession(playerId);
+        if (session == null) {
+            session = openSession(playerId, playerName);
+        }
+
+        if (session.bypass == PlayerSession.Bypass.WHITELIST) {
             // Log whitelist scenario
             String playerIP = player.getAddress() != null ? player.getAddress().getAddress().getHostAddress()
                     : "unknown";
@@ -161,9 +237,6 @@ public class ModSeekerPlugin extends JavaPlugin implements Listener, TabExecutor
             logInfo("🛡️ " + playerName + " is whitelisted");
             logInfo("✅ " + playerName + " bypassed all verifications — access granted");
 
-            // Add to approved players
-            playerDataManager.addApprovedPlayer(playerId);
-
             // Send welcome message if enabled
             if (configManager.isEnablePlayerNotifications()) {
                 player.sendMessage(ChatColor.GREEN + configManager.getWelcomeMessage());
@@ -171,30 +244,83 @@ public class ModSeekerPlugin extends JavaPlugin implements Listener, TabExecutor
             return; // Skip all verification for whitelisted players
         }
 
-        // Check for Floodgate / Bedrock players if enabled
-        if (configManager.isAllowFloodgate()) {
-            // Floodgate UUIDs typically have 0 as the most significant bits
-            // This is a zero-dependency check for Floodgate players
-            if (player.getUniqueId().getMostSignificantBits() == 0) {
-                String playerIP = player.getAddress() != null ? player.getAddress().getAddress().getHostAddress()
-                        : "unknown";
-                logInfo("🌊 Floodgate Player Detected: " + playerName + " (UUID: " + playerId.toString() + ", IP: "
-                        + playerIP + ")");
-                logInfo("✅ " + playerName + " bypassed checks (Bedrock/Floodgate)");
-
-                // Add to approved players
-                playerDataManager.addApprovedPlayer(playerId);
-
-                // Send welcome message if enabled
-                if (configManager.isEnablePlayerNotifications()) {
-                    player.sendMessage(ChatColor.GREEN + configManager.getWelcomeMessage());
-                }
-                return;
+        if (session.bypass == PlayerSession.Bypass.FLOODGATE) {
+            String playerIP = player.getAddress() != null ? player.getAddress().getAddress().getHostAddress()
+                    : "unknown";
+            logInfo("🌊 Floodgate Player Detected: " + playerName + " (UUID: " + playerId.toString() + ", IP: "
+                    + playerIP + ")");
+            logInfo("✅ " + playerName + " bypassed checks (Bedrock/Floodgate)");
+
+            // Send welcome message if enabled
+            if (configManager.isEnablePlayerNotifications()) {
+                player.sendMessage(ChatColor.GREEN + configManager.getWelcomeMessage());
             }
+            return;
+        }
+
+        // Start handshake process once the client registers the ModSeeker channel
+        handshakeManager.startWhenChannelRegistered(player, session);
+    }
+
+    @EventHandler
+    public void onPlayerRegisterChannel(PlayerRegisterChannelEvent event) {
+        handshakeManager.handleChannelRegistered(event.getPlayer(), event.getChannel());
+    }
+
+    /**
+     * Create the session for a connecting player, already approved if they
+     * bypass verification. Safe to call from the async pre-login thread.
+     */
+    private PlayerSession openSession(UUID playerId, String playerName) {
+        PlayerSession.Bypass bypass = bypassFor(playerId);
+        if (bypass == PlayerSession.Bypass.NONE) {
+            return playerDataManager.createSession(playerId, playerName, PlayerSession.State.AWAITING_PRESENCE);
+        }
+
+        PlayerSession session = playerDataManager.createSession(playerId, playerName, PlayerSession.State.APPROVED);
+        session.bypass = bypass;
+        return session;
+    }
+
+    /**
+     * Decide whether a player skips verification. Safe to call from the async
+     * pre-login thread.
+     */
+    private PlayerSession.Bypass bypassFor(UUID playerId) {
+        // Check if player is whitelisted
+        if (whitelistManager.isWhitelisted(playerId)) {
+            return PlayerSession.Bypass.WHITELIST;
         }
 
-        // Start handshake process
-        handshakeManager.startHandshake(player);
+        // Check for Floodgate / Bedrock players if enabled
+        // Floodgate UUIDs typically have 0 as the most significant bits
+        // This is a zero-dependency check for Floodgate players
+        if (configManager.isAllowFloodgate() && playerId.getMostSignificantBits() == 0) {
+            return PlayerSession.Bypass.FLOODGATE;
+        }
+
+        return PlayerSession.Bypass.NONE;
+    }
+
+    /**
+     * Remember that a player was rejected for their mods or a missing Hidder, so
+     * a quick reconnect can be refused at pre-login
+     */
+    public void rememberRejection(UUID playerId, String kickMessage) {
+        if (configManager.isPreLoginChecks()) {
+            recentRejections.record(playerId, kickMessage, configManager.getRejectedLoginMemorySeconds() * 1000L,
+                    getRulesVersion());
+        }
+    }
+
+    /**
+     * @return A number that changes whenever the blacklist, policy, profiles or
+     *         config change. Each of those versions only ever increases, so their
+     *         sum does too.
+     */
+    public long getRulesVersion() {
+        return blacklistManager.getVersion() + policyManager.getVersion() + profileManager.getVersion()
+                + configManager.getConfigVersion();
     }
 
     @EventHandler
@@ -203,14 +329,14 @@ public class ModSeekerPlugin extends JavaPlugin implements Listener, TabExecutor
         UUID playerId = player.getUniqueId();
         String playerName = player.getName();
 
-        // Get session info before removing data
-        PlayerDataManager.HandshakeData handshakeData = playerDataManager.getPlayerHandshakes().get(playerId);
+        // Remove the session; anything still in flight for it is dropped
+        PlayerSession session = playerDataManager.removeSession(playerId);
         String sessionId = "unknown";
         String sessionTime = "0s";
 
-        if (handshakeData != null) {
-            sessionId = handshakeData.handshakeId;
-            long sessionDuration = System.currentTimeMillis() - handshakeData.startTime;
+        if (session != null) {
+            sessionId = session.sessionId;
+            long sessionDuration = System.currentTimeMillis() - session.startTime;
             // Convert to seconds
             sessionTime = (sessionDuration / 1000) + "s";
         }
@@ -219,38 +345,34 @@ public class ModSeekerPlugin extends JavaPlugin implements Listener, TabExecutor
         logInfo("🚪 Player Quit: " + playerName + " (Session: " + sessionTime + ")");
         logInfo("🧹 Session cleaned up [ID: " + sessionId + "]");
 
-        // Clean up data via managers
-        handshakeManager.cleanupHandshakeData(playerId);
-        verificationService.cleanupVerificationData(playerId);
+        // Clean up any deadline still armed for the session
+        timeoutWheel.cancelAll(playerId);
 
-        // Clean up seek request data
-        PlayerDataManager.PlayerModCheckData seekData = seekRequests.remove(playerId);
-        if (seekData != null && seekData.timeoutTaskId != -1) {
-            Bukkit.getScheduler().cancelTask(seekData.timeoutTaskId);
-        }
+        // The rate limit state outlives the session, so a reconnect doesn't reset it
+        messageHandler.releaseRateLimits(playerId);
     }
 
     // Method to handle announce presence message - Delegated to HandshakeManager
-    public void handleAnnouncePresence(Player player, String messageJson) {
-        handshakeManager.handleAnnouncePresence(player, messageJson);
+    public void handleAnnouncePresence(Player player, PlayerSession session, String messageJson) {
+        handshakeManager.handleAnnouncePresence(player, session, messageJson);
     }
 
     // Method to handle mod list response - Delegated to VerificationService
-    public void handleModListResponse(Player player, String messageJson) {
-        UUID playerId = player.getUniqueId();
+    // Called on the main thread after the crypto worker has verified the response
+    public void handleModListResponse(Player player, PlayerSession session, ModListResponse response,
+            String securityFailure) {
+        verificationService.handleModListResponse(player, session, response, securityFailure);
+    }
 
-        // First check if this is a seek request
-        PlayerDataManager.PlayerModCheckData seekCheckData = seekRequests.get(playerId);
-        if (seekCheckData != null) {
-            // This is a seek request, handle it separately
-            verificationService.handleSeekModListResponse(player, messageJson, seekCheckData);
-            // Remove the seek request data after handling
-            seekRequests.remove(playerId);
-            return;
-        }
+    // Method to handle a mod list digest - Delegated to VerificationService
+    public void handleModListDigest(Player player, PlayerSession session, ModListDigest digest,
+            String securityFailure) {
+        verificationService.handleModListDigest(player, session, digest, securityFailure);
+    }
 
-        // Otherwise, this is a regular verification request
-        verificationService.handleModListResponse(player, messageJson);
+    // Method to handle a seek mod list response - Delegated to VerificationService
+    public void handleSeekModListResponse(Player player, PlayerSession session, ModListResponse response) {
+        verificationService.handleSeekModListResponse(player, session, response);
     }
 
     // Method to load configuration
@@ -287,10 +409,22 @@ public class ModSeekerPlugin extends JavaPlugin implements Listener, TabExecutor
         return configManager;
     }
 
+    public ModDictionary getModDictionary() {
+        return modDictionary;
+    }
+
     public BlacklistManager getBlacklistManager() {
         return blacklistManager;
     }
 
+    public PolicyManager getPolicyManager() {
+        return policyManager;
+    }
+
+    public ProfileManager getProfileManager() {
+        return profileManager;
+    }
+
     public WhitelistManager getWhitelistManager() {
         return whitelistManager;
     }
@@ -307,8 +441,20 @@ public class ModSeekerPlugin extends JavaPlugin implements Listener, TabExecutor
         return securityManager;
     }
 
-    public Map<UUID, PlayerDataManager.PlayerModCheckData> getSeekRequests() {
-        return seekRequests;
+    public CryptoWorker getCryptoWorker() {
+        return cryptoWorker;
+    }
+
+    public FingerprintTable getFingerprintTable() {
+        return fingerprintTable;
+    }
+
+    public ReplayCache getReplayCache() {
+        return replayCache;
+    }
+
+    public TimeoutWheel getTimeoutWheel() {
+        return timeoutWheel;
     }
 
     public int getTIMEOUT_SECONDS() {
@@ -322,4 +468,4 @@ public class ModSeekerPlugin extends JavaPlugin implements Listener, TabExecutor
     public Map<String, String> getKickMessages() {
         return configManager.getKickMessages();
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
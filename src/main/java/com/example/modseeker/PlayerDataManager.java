@@ -16,10 +16,6 @@
  */
 package com.example.modseeker;
 
-import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.ChatColor;
-
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.UUID;
@@ -29,84 +25,52 @@ import java.util.UUID;
  */
 public class PlayerDataManager {
 
-    // Player tracking with handshake support
-    private final Map<UUID, PlayerModCheckData> playerModChecks = new ConcurrentHashMap<>();
-    private final Map<UUID, HandshakeData> playerHandshakes = new ConcurrentHashMap<>();
-    private final Set<UUID> approvedPlayers = ConcurrentHashMap.newKeySet();
+    // One session per online player, covering handshake, mod check and seek requests
+    private final Map<UUID, PlayerSession> sessions = new ConcurrentHashMap<>();
 
     // Player whitelist
     private Set<String> whitelist = new HashSet<>();
 
     /**
-     * Handshake data for tracking client-server handshake process
+     * Create and register a session for a player who just joined
+     *
+     * @param initialState AWAITING_PRESENCE for verified players, APPROVED for
+     *                     bypassed ones
      */
-    public static class HandshakeData {
-        public final UUID playerId;
-        public final String playerName;
-        public final String handshakeId;
-        public long startTime;
-
-        public boolean presenceAnnounced = false;
-        public boolean acknowledgmentSent = false;
-        public String presenceMessage;
-        public String modVersion;
+    public PlayerSession createSession(UUID playerId, String playerName, PlayerSession.State initialState) {
+        PlayerSession session = new PlayerSession(playerId, playerName, initialState);
+        PlayerSession replaced = sessions.put(playerId, session);
+        if (replaced != null) {
+            replaced.destroyKeys();
+        }
+        return session;
+    }
 
-        // Fields for retry and timeout handling
-        public int retryCount = 0;
-        public int timeoutTaskId = -1; // For sendHandshakeRequest timeout
-        public int presenceTimeoutTaskId = -1; // For startHandshakeTimeoutTimer timeout
+    public PlayerSession getSession(UUID playerId) {
+        return sessions.get(playerId);
+    }
 
-        public HandshakeData(UUID playerId, String playerName) {
-            this.playerId = playerId;
-            this.playerName = playerName;
-            this.handshakeId = "hs-" + UUID.randomUUID().toString().substring(0, 8);
-            this.startTime = System.currentTimeMillis();
+    public PlayerSession removeSession(UUID playerId) {
+        PlayerSession session = sessions.remove(playerId);
+        if (session != null) {
+            session.destroyKeys();
         }
+        return session;
     }
 
     /**
-     * Player mod check data for tracking mod verification process
+     * Remove the session only if it is still the current one for the player
      */
-    public static class PlayerModCheckData {
-        public final UUID playerId;
-        public final String playerName;
-        public final String checkId;
-        public final long startTime;
-
-        public int attemptCount = 0;
-        public int retryCount = 0;
-        public long lastRequestTime = 0;
-        public boolean modListReceived = false;
-        public String modListResponse;
-
-        public boolean handshakeCompleted = false;
-        public HandshakeData handshakeData;
-
-        // Verification results
-        public List<String> detectedMods = new ArrayList<>();
-        public boolean verificationComplete = false;
-        public String verificationResult;
-        public int timeoutTaskId = -1;
-
-        public PlayerModCheckData(UUID playerId, String playerName) {
-            this.playerId = playerId;
-            this.playerName = playerName;
-            this.checkId = "chk-" + UUID.randomUUID().toString().substring(0, 8);
-            this.startTime = System.currentTimeMillis();
+    public boolean removeSession(PlayerSession session) {
+        if (!sessions.remove(session.playerId, session)) {
+            return false;
         }
+        session.destroyKeys();
+        return true;
     }
 
-    // Getters for the maps
-    public Map<UUID, PlayerModCheckData> getPlayerModChecks() {
-        return playerModChecks;
-    }
-
-    public Map<UUID, HandshakeData> getPlayerHandshakes() {
-        return playerHandshakes;
-    }
-
-    public Set<UUID> getApprovedPlayers() {
-        return approvedPlayers;
+    public Map<UUID, PlayerSession> getSessions() {
+        return sessions;
     }
 
     // Whitelist management
@@ -119,15 +83,8 @@ public class PlayerDataManager {
     }
 
     // Player approval methods
-    public void addApprovedPlayer(UUID playerId) {
-        approvedPlayers.add(playerId);
-    }
-
-    public void removeApprovedPlayer(UUID playerId) {
-        approvedPlayers.remove(playerId);
-    }
-
     public boolean isPlayerApproved(UUID playerId) {
-        return approvedPlayers.contains(playerId);
+        PlayerSession session = sessions.get(playerId);
+        return session != null && session.isApproved();
     }
 }
\ No newline at end of file
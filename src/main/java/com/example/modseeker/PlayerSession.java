@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Verification state of a single player, from join until quit.
+ *
+ * The state only moves through {@link #transition(State, State)}, so a
+ * duplicate or late message (or a timeout racing a response) loses the CAS and
+ * is dropped. Unless noted otherwise, the plain fields are only touched on the
+ * main thread.
+ */
+public class PlayerSession {
+
+    /**
+     * Verification state of the session
+     */
+    public enum State {
+        AWAITING_PRESENCE,
+        AWAITING_MODLIST,
+        VERIFYING,
+        APPROVED,
+        REJECTED
+    }
+
+    /**
+     * Why a session skipped verification
+     */
+    public enum Bypass {
+        NONE,
+        WHITELIST,
+        FLOODGATE
+    }
+
+    /**
+     * A single REQUEST_MODLIST exchange, either the join check or an admin seek
+     */
+    public static class ModListRequest {
+        private static final SecureRandom NONCE_RANDOM = new SecureRandom();
+
+        public final String checkId;
+        // Echoed by the client next to the check ID, so a guessed check ID alone is not enough
+        public final String nonce;
+        public final boolean seek;
+        public int attemptCount = 0;
+        public long lastRequestTime = 0;
+        // Set once a full response to this request has been accepted, cleared if it turns out unreadable
+        public boolean answered = false;
+        // Session key ID the last request offered for reuse, or null
+        public String offeredKeyId;
+
+        public ModListRequest(boolean seek) {
+            this.checkId = "chk-" + UUID.randomUUID().toString().substring(0, 8);
+            byte[] nonceBytes = new byte[16];
+            NONCE_RANDOM.nextBytes(nonceBytes);
+            this.nonce = Base64.getUrlEncoder().withoutPadding().encodeToString(nonceBytes);
+            this.seek = seek;
+        }
+    }
+
+    public final UUID playerId;
+    public final String playerName;
+    public final String sessionId;
+    public final long startTime;
+    public final ModListRequest modListRequest = new ModListRequest(false);
+
+    private final AtomicReference<State> state;
+    private final AtomicReference<ModListRequest> seekRequest = new AtomicReference<>();
+    private ModListRequest lastSeek;
+
+    // May be set on the async pre-login thread
+    public volatile Bypass bypass = Bypass.NONE;
+
+    // Handshake progress
+    public int handshakeRetryCount = 0;
+    public String presenceMessage;
+    public String modVersion;
+    public boolean pipelined = false;
+    public boolean digestFirst = false;
+    public boolean echoesNonce = false;
+    public boolean bindsNonce = false;
+    // Set before ACKNOWLEDGE_PRESENCE is sent and never changed afterwards
+    public volatile SecureChannel secureChannel;
+    // AES key of the last RSA-wrapped response, zeroed when the session ends
+    public final SessionKeys sessionKeys = new SessionKeys();
+
+    // Verification results, mods as ModDictionary IDs plus, lowercased, any the
+    // dictionary had no room for
+    public BitSet detectedMods = new BitSet();
+    public List<String> uninternedMods = Collections.emptyList();
+    public List<String> resourcePacks = Collections.emptyList();
+    public List<String> shaderPacks = Collections.emptyList();
+
+    public PlayerSession(UUID playerId, String playerName, State initialState) {
+        this.playerId = playerId;
+        this.playerName = playerName;
+        this.sessionId = "hs-" + UUID.randomUUID().toString().substring(0, 8);
+        this.startTime = System.currentTimeMillis();
+        this.state = new AtomicReference<>(initialState);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Atomically move the session from one state to another
+     *
+     * @return true if the session was in {@code expected} and is now in
+     *         {@code next}
+     */
+    public boolean transition(State expected, State next) {
+        return state.compareAndSet(expected, next);
+    }
+
+    public boolean isApproved() {
+        return state.get() == State.APPROVED;
+    }
+
+    /**
+     * Start a new seek request, replacing any seek still in flight
+     */
+    public ModListRequest beginSeek() {
+        ModListRequest request = new ModListRequest(true);
+        seekRequest.set(request);
+        lastSeek = request;
+        return request;
+    }
+
+    /**
+     * @return The seek request waiting for a response, or null
+     */
+    public ModListRequest getSeekRequest() {
+        return seekRequest.get();
+    }
+
+    /**
+     * Claim a pending seek request, so only the first response for it is handled
+     *
+     * @return true if the request was still pending
+     */
+    public boolean claimSeek(ModListRequest request) {
+        return seekRequest.compareAndSet(request, null);
+    }
+
+    /**
+     * Put a claimed seek request back, e.g. when its response could not be read
+     */
+    public void restoreSeek(ModListRequest request) {
+        seekRequest.compareAndSet(null, request);
+    }
+
+    /**
+     * Whether a response for this check ID was already accepted, for the join
+     * request or the latest seek. Copies of it (answers to retried requests) are
+     * dropped without any crypto work.
+     */
+    public boolean isAnswered(String checkId) {
+        ModListRequest seek = lastSeek;
+        return (modListRequest.answered && modListRequest.checkId.equals(checkId))
+                || (seek != null && seek.answered && seek.checkId.equals(checkId));
+    }
+
+    /**
+     * The request a mod list response or digest is allowed to answer: the join
+     * request while it is awaited, or the pending seek
+     *
+     * @return The request with this check ID, or null if none is outstanding
+     */
+    public ModListRequest findPendingRequest(String checkId) {
+        ModListRequest seek = seekRequest.get();
+        if (seek != null && seek.checkId.equals(checkId)) {
+            return seek;
+        }
+        if (getState() == State.AWAITING_MODLIST && modListRequest.checkId.equals(checkId)) {
+            return modListRequest;
+        }
+        return null;
+    }
+
+    /**
+     * Zero the session's cached AES and channel keys, once the session is gone
+     */
+    public void destroyKeys() {
+        sessionKeys.destroy();
+        SecureChannel channel = secureChannel;
+        if (channel != null) {
+            channel.destroy();
+        }
+    }
+}
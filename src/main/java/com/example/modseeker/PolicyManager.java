@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Loads policy.txt and keeps the compiled {@link PolicyRules} that joins are
+ * checked against.
+ *
+ * The active rules sit behind a volatile reference, like the blacklist
+ * snapshot. A reload only swaps them in if the whole file compiles, so a typo
+ * never leaves the server without its policy.
+ */
+public class PolicyManager {
+
+    private static final String DEFAULT_POLICY = String.join("\n",
+            "# ModSeeker Policy Rules",
+            "# One rule per line: deny \"<kick message>\" when <condition>",
+            "#",
+            "# Conditions:",
+            "#   mod(<pattern>)           - the player has a matching mod",
+            "#   resourcepack(<pattern>)  - the player has a matching resource pack",
+            "#   shader(<pattern>)        - the player has a matching shader pack",
+            "#   count(<condition>, ...)  - how many of the conditions hold, compared",
+            "#                              with < <= > >= == or !=",
+            "#   combined with and, or, not and parentheses",
+            "# Patterns use the blacklist syntax: exact IDs, globs like \"*xray*\" or",
+            "# regexes like \"re:wurst(-plus)?\". Matching is case-insensitive.",
+            "#",
+            "# Examples:",
+            "# deny \"Freecam is only allowed together with Sodium\" when mod(freecam) and not mod(sodium)",
+            "# deny \"Use at most two minimap mods\" when count(mod(xaerominimap), mod(journeymap), mod(voxelmap)) > 2",
+            "# deny \"X-ray resource packs can't be used with shaders\" when resourcepack(\"*xray*\") and shader(*)",
+            "");
+
+    private final File policyFile;
+    private volatile PolicyRules rules = PolicyRules.EMPTY;
+    private volatile long version = 0;
+
+    public PolicyManager(File dataFolder) {
+        this.policyFile = new File(dataFolder, "policy.txt");
+        loadPolicy();
+    }
+
+    /**
+     * Compile policy.txt and make it the active policy
+     *
+     * @return The compile errors, one per invalid rule; if there are any, the
+     *         previous policy stays active
+     */
+    public synchronized List<String> loadPolicy() {
+        List<String> lines;
+        try {
+            if (!policyFile.exists()) {
+                Files.write(policyFile.toPath(), DEFAULT_POLICY.getBytes(StandardCharsets.UTF_8));
+            }
+            lines = Files.readAllLines(policyFile.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            UtilityHelper.logInfo("❌ Policy not updated: could not read policy.txt: " + e.getMessage());
+            return Collections.singletonList("could not read policy.txt: " + e.getMessage());
+        }
+
+        List<String> errors = new ArrayList<>();
+        PolicyRules compiled = PolicyRules.compile(lines, errors);
+        if (compiled == null) {
+            UtilityHelper.logInfo("❌ Policy not updated, policy.txt has " + errors.size() + " invalid rule(s):");
+            for (String error : errors) {
+                UtilityHelper.logInfo("   " + error);
+            }
+            return errors;
+        }
+
+        rules = compiled;
+        version++;
+        if (compiled.getRuleCount() > 0) {
+            UtilityHelper.logInfo("📜 Loaded " + compiled.getRuleCount() + " policy rule(s)");
+        }
+        return errors;
+    }
+
+    public PolicyRules getRules() {
+        return rules;
+    }
+
+    /**
+     * @return A counter bumped each time a new policy is swapped in
+     */
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,414 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Policy rules about combinations of mods and packs, compiled into a tree of
+ * lambdas so a join only runs the compiled predicates.
+ *
+ * One rule per line, {@code #} starts a comment:
+ *
+ * <pre>
+ * deny "Freecam needs Sodium" when mod(freecam) and not mod(sodium)
+ * deny "Only one minimap" when count(mod(xaerominimap), mod(journeymap), mod(voxelmap)) &gt; 1
+ * deny "No x-ray packs with shaders" when resourcepack("*xray*") and shader(*)
+ * </pre>
+ *
+ * Conditions combine {@code mod(p)}, {@code resourcepack(p)} and
+ * {@code shader(p)} with {@code and}, {@code or}, {@code not} and parentheses.
+ * {@code count(c, ...)} is the number of true conditions and can be compared
+ * with {@code < <= > >= == !=}. Patterns use the blacklist syntax (exact,
+ * glob or {@code re:} regex), quoted or bare, and are matched case-insensitively.
+ *
+ * Instances are immutable and safe to share between threads.
+ */
+public final class PolicyRules {
+
+    public static final PolicyRules EMPTY = new PolicyRules(Collections.emptyList());
+
+    /**
+     * What a rule sees of a player: the reported mod IDs and pack names, all
+     * lowercased
+     */
+    public static final class Input {
+        final Set<String> mods;
+        final List<String> resourcePacks;
+        final List<String> shaderPacks;
+
+        public Input(Set<String> mods, List<String> resourcePacks, List<String> shaderPacks) {
+            this.mods = mods;
+            this.resourcePacks = resourcePacks;
+            this.shaderPacks = shaderPacks;
+        }
+    }
+
+    private static final class Rule {
+        final String message;
+        final Predicate<Input> condition;
+
+        Rule(String message, Predicate<Input> condition) {
+            this.message = message;
+            this.condition = condition;
+        }
+    }
+
+    private final List<Rule> rules;
+
+    private PolicyRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Compile a policy file
+     *
+     * @param lines  The lines of the file
+     * @param errors Receives one message per invalid rule
+     * @return The compiled rules, or null if there were errors
+     */
+    public static PolicyRules compile(List<String> lines, List<String> errors) {
+        List<Rule> compiled = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            try {
+                Rule rule = new Parser(line).parseRule();
+                if (rule != null) {
+                    compiled.add(rule);
+                }
+            } catch (IllegalArgumentException e) {
+                errors.add("line " + (i + 1) + ": " + e.getMessage());
+            }
+        }
+        return errors.isEmpty() ? new PolicyRules(List.copyOf(compiled)) : null;
+    }
+
+    /**
+     * Run every rule against a player
+     *
+     * @return The messages of the rules the player breaks, in file order
+     */
+    public List<String> evaluate(Input input) {
+        List<String> violations = null;
+        for (Rule rule : rules) {
+            if (rule.condition.test(input)) {
+                if (violations == null) {
+                    violations = new ArrayList<>();
+                }
+                violations.add(rule.message);
+            }
+        }
+        return violations != null ? violations : Collections.emptyList();
+    }
+
+    public int getRuleCount() {
+        return rules.size();
+    }
+
+    /**
+     * Recursive descent parser for a single line, producing the compiled lambdas
+     * directly
+     */
+    private static final class Parser {
+        private final String text;
+        private int pos = 0;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Rule parseRule() {
+            skipSpace();
+            if (atEnd()) {
+                return null; // Blank or comment line
+            }
+            expectKeyword("deny");
+            String message = readString();
+            expectKeyword("when");
+            Predicate<Input> condition = parseOr();
+            skipSpace();
+            if (!atEnd()) {
+                throw error("unexpected '" + text.charAt(pos) + "'");
+            }
+            return new Rule(message, condition);
+        }
+
+        private Predicate<Input> parseOr() {
+            Predicate<Input> left = parseAnd();
+            while (acceptKeyword("or")) {
+                Predicate<Input> a = left;
+                Predicate<Input> b = parseAnd();
+                left = input -> a.test(input) || b.test(input);
+            }
+            return left;
+        }
+
+        private Predicate<Input> parseAnd() {
+            Predicate<Input> left = parseNot();
+            while (acceptKeyword("and")) {
+                Predicate<Input> a = left;
+                Predicate<Input> b = parseNot();
+                left = input -> a.test(input) && b.test(input);
+            }
+            return left;
+        }
+
+        private Predicate<Input> parseNot() {
+            if (acceptKeyword("not")) {
+                Predicate<Input> operand = parseNot();
+                return input -> !operand.test(input);
+            }
+            return parsePrimary();
+        }
+
+        private Predicate<Input> parsePrimary() {
+            skipSpace();
+            if (accept('(')) {
+                Predicate<Input> inner = parseOr();
+                expect(')');
+                return inner;
+            }
+
+            int start = pos;
+            String word = readWord();
+            switch (word) {
+                case "true":
+                    return input -> true;
+                case "false":
+                    return input -> false;
+                case "mod":
+                    return modCondition(readPatternArgument());
+                case "resourcepack":
+                    return packCondition(readPatternArgument(), true);
+                case "shader":
+                    return packCondition(readPatternArgument(), false);
+                case "count":
+                    return parseComparison(parseCount());
+                default:
+                    pos = start;
+                    throw error(word.isEmpty() ? "expected a condition" : "unknown condition '" + word + "'");
+            }
+        }
+
+        private ToIntFunction<Input> parseCount() {
+            expect('(');
+            List<Predicate<Input>> terms = new ArrayList<>();
+            do {
+                terms.add(parseOr());
+            } while (accept(','));
+            expect(')');
+
+            List<Predicate<Input>> fixedTerms = List.copyOf(terms);
+            return input -> {
+                int count = 0;
+                for (Predicate<Input> term : fixedTerms) {
+                    if (term.test(input)) {
+                        count++;
+                    }
+                }
+                return count;
+            };
+        }
+
+        private Predicate<Input> parseComparison(ToIntFunction<Input> count) {
+            skipSpace();
+            String op;
+            if (text.startsWith("<=", pos) || text.startsWith(">=", pos) || text.startsWith("==", pos)
+                    || text.startsWith("!=", pos)) {
+                op = text.substring(pos, pos + 2);
+                pos += 2;
+            } else if (accept('<')) {
+                op = "<";
+            } else if (accept('>')) {
+                op = ">";
+            } else {
+                throw error("count(...) must be compared with a number");
+            }
+
+            skipSpace();
+            int start = pos;
+            String word = readWord();
+            int limit;
+            try {
+                limit = Integer.parseInt(word);
+            } catch (NumberFormatException e) {
+                pos = start;
+                throw error("expected a number after " + op);
+            }
+
+            switch (op) {
+                case "<":
+                    return input -> count.applyAsInt(input) < limit;
+                case "<=":
+                    return input -> count.applyAsInt(input) <= limit;
+                case ">":
+                    return input -> count.applyAsInt(input) > limit;
+                case ">=":
+                    return input -> count.applyAsInt(input) >= limit;
+                case "==":
+                    return input -> count.applyAsInt(input) == limit;
+                default:
+                    return input -> count.applyAsInt(input) != limit;
+            }
+        }
+
+        private Predicate<Input> modCondition(String pattern) {
+            if (isExact(pattern)) {
+                return input -> input.mods.contains(pattern);
+            }
+            BlacklistMatcher matcher = compilePattern(pattern);
+            return input -> {
+                for (String mod : input.mods) {
+                    if (matcher.matches(mod)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+
+        private Predicate<Input> packCondition(String pattern, boolean resourcePack) {
+            BlacklistMatcher matcher = compilePattern(pattern);
+            return input -> {
+                for (String pack : resourcePack ? input.resourcePacks : input.shaderPacks) {
+                    if (matcher.matches(pack)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+
+        private static boolean isExact(String pattern) {
+            return !pattern.startsWith(BlacklistMatcher.REGEX_PREFIX) && pattern.indexOf('*') < 0
+                    && pattern.indexOf('?') < 0;
+        }
+
+        private BlacklistMatcher compilePattern(String pattern) {
+            try {
+                BlacklistMatcher.validate(pattern);
+                return BlacklistMatcher.compile(List.of(pattern));
+            } catch (IllegalArgumentException e) {
+                throw error("invalid pattern \"" + pattern + "\": " + e.getMessage());
+            }
+        }
+
+        private String readPatternArgument() {
+            expect('(');
+            skipSpace();
+            String pattern = peek() == '"' ? readString() : readBarePattern();
+            if (pattern.isEmpty()) {
+                throw error("expected a pattern");
+            }
+            expect(')');
+            return pattern.toLowerCase();
+        }
+
+        private String readBarePattern() {
+            int start = pos;
+            while (!atEnd() && text.charAt(pos) != ')' && !Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            return text.substring(start, pos);
+        }
+
+        private String readString() {
+            skipSpace();
+            if (!accept('"')) {
+                throw error("expected a quoted string");
+            }
+            StringBuilder value = new StringBuilder();
+            while (!atEnd()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c == '\\' && !atEnd()) {
+                    c = text.charAt(pos++);
+                }
+                value.append(c);
+            }
+            throw error("unterminated string");
+        }
+
+        private String readWord() {
+            skipSpace();
+            int start = pos;
+            while (!atEnd() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+                pos++;
+            }
+            return text.substring(start, pos).toLowerCase();
+        }
+
+        private void expectKeyword(String keyword) {
+            if (!acceptKeyword(keyword)) {
+                throw error("expected '" + keyword + "'");
+            }
+        }
+
+        private boolean acceptKeyword(String keyword) {
+            skipSpace();
+            int start = pos;
+            if (readWord().equals(keyword)) {
+                return true;
+            }
+            pos = start;
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!accept(c)) {
+                throw error("expected '" + c + "'");
+            }
+        }
+
+        private boolean accept(char c) {
+            skipSpace();
+            if (peek() == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private char peek() {
+            return atEnd() ? '\0' : text.charAt(pos);
+        }
+
+        private void skipSpace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            if (pos < text.length() && text.charAt(pos) == '#') {
+                pos = text.length();
+            }
+        }
+
+        private boolean atEnd() {
+            return pos >= text.length();
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("column " + (pos + 1) + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Admin-registered modpack profiles: the exact mod set of a known-good
+ * modpack, stored in profiles.json as a canonical hash plus the sorted mod IDs.
+ *
+ * A mod list whose hash matches a profile is approved with a single map
+ * lookup, without running the blacklist, policy or threshold checks. Lists
+ * that miss can be compared against every profile to report the closest one
+ * and the mods that differ. Only use from the server main thread.
+ */
+public class ProfileManager {
+
+    // Profiles further away than this many mods aren't reported as near-matches
+    public static final int NEAR_MATCH_DISTANCE = 5;
+
+    /**
+     * Data structure for a profile entry
+     */
+    public static class Profile {
+        public String name;
+        public String hash;
+        public List<String> mods;
+        public long createdAt;
+        // Not saved; rebuilt from mods
+        transient Set<String> modSet;
+
+        public Profile(String name, List<String> mods) {
+            this.name = name;
+            this.mods = mods;
+            this.hash = canonicalHash(mods);
+            this.createdAt = System.currentTimeMillis();
+            this.modSet = new HashSet<>(mods);
+        }
+    }
+
+    /**
+     * How a mod list differs from a profile
+     */
+    public static class Diff {
+        public final Profile profile;
+        public final List<String> extraMods;
+        public final List<String> missingMods;
+
+        public Diff(Profile profile, List<String> extraMods, List<String> missingMods) {
+            this.profile = profile;
+            this.extraMods = Collections.unmodifiableList(extraMods);
+            this.missingMods = Collections.unmodifiableList(missingMods);
+        }
+
+        public int size() {
+            return extraMods.size() + missingMods.size();
+        }
+    }
+
+    private final File profilesFile;
+    private final Gson gson;
+    private final Map<String, Profile> profilesByName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final Map<String, Profile> profilesByHash = new HashMap<>();
+    // Also read from the async pre-login thread
+    private volatile long version = 0;
+
+    public ProfileManager(File dataFolder) {
+        this.profilesFile = new File(dataFolder, "profiles.json");
+        this.gson = new GsonBuilder().setPrettyPrinting().create();
+        loadProfiles();
+    }
+
+    public void loadProfiles() {
+        profilesByName.clear();
+        profilesByHash.clear();
+        version++;
+        if (!profilesFile.exists()) {
+            saveProfiles();
+            return;
+        }
+
+        try (Reader reader = new InputStreamReader(new FileInputStream(profilesFile), StandardCharsets.UTF_8)) {
+            Profile[] entries = gson.fromJson(reader, Profile[].class);
+            if (entries != null) {
+                for (Profile entry : entries) {
+                    if (entry.name == null || entry.mods == null) {
+                        continue;
+                    }
+                    // The hash is always recomputed, so hand-edited mod lists stay consistent
+                    index(new Profile(entry.name, canonicalMods(entry.mods)), entry.createdAt);
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void saveProfiles() {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(profilesFile), StandardCharsets.UTF_8)) {
+            gson.toJson(profilesByName.values(), writer);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Register a profile
+     *
+     * @param name The profile name
+     * @param mods The mod IDs of the modpack, in any order and case
+     * @return The new profile, or null if the name or mod set is already registered
+     */
+    public Profile addProfile(String name, Collection<String> mods) {
+        Profile profile = new Profile(name, canonicalMods(mods));
+        if (profilesByName.containsKey(name) || profilesByHash.containsKey(profile.hash)) {
+            return null;
+        }
+        index(profile, profile.createdAt);
+        version++;
+        saveProfiles();
+        return profile;
+    }
+
+    public boolean removeProfile(String name) {
+        Profile profile = profilesByName.remove(name);
+        if (profile == null) {
+            return false;
+        }
+        profilesByHash.remove(profile.hash);
+        version++;
+        saveProfiles();
+        return true;
+    }
+
+    public Profile getProfile(String name) {
+        return profilesByName.get(name);
+    }
+
+    public Collection<Profile> getProfiles() {
+        return Collections.unmodifiableCollection(profilesByName.values());
+    }
+
+    /**
+     * Find the profile with exactly these mods
+     *
+     * @param mods The reported mod IDs, in any order and case
+     * @return The matching profile, or null
+     */
+    public Profile match(Collection<String> mods) {
+        if (profilesByHash.isEmpty()) {
+            return null;
+        }
+        return profilesByHash.get(canonicalHash(canonicalMods(mods)));
+    }
+
+    /**
+     * Find the profile closest to a mod list that matched none exactly
+     *
+     * @param mods The reported mod IDs, lowercased
+     * @return The closest profile within {@link #NEAR_MATCH_DISTANCE} mods, or null
+     */
+    public Diff closest(Set<String> mods) {
+        Diff best = null;
+        for (Profile profile : profilesByName.values()) {
+            // The size difference alone rules most profiles out
+            if (Math.abs(profile.mods.size() - mods.size()) > NEAR_MATCH_DISTANCE) {
+                continue;
+            }
+            int limit = best == null ? NEAR_MATCH_DISTANCE : best.size() - 1;
+            if (countExtra(profile, mods, limit) <= limit) {
+                Diff diff = diff(profile, mods);
+                if (diff.size() <= limit) {
+                    best = diff;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Compare a mod list with a profile
+     *
+     * @param mods The reported mod IDs, lowercased
+     */
+    public static Diff diff(Profile profile, Set<String> mods) {
+        List<String> extra = new ArrayList<>();
+        for (String mod : mods) {
+            if (!profile.modSet.contains(mod)) {
+                extra.add(mod);
+            }
+        }
+        List<String> missing = new ArrayList<>();
+        for (String mod : profile.mods) {
+            if (!mods.contains(mod)) {
+                missing.add(mod);
+            }
+        }
+        Collections.sort(extra);
+        return new Diff(profile, extra, missing);
+    }
+
+    // Mods not in the profile, counting no further than limit + 1
+    private static int countExtra(Profile profile, Set<String> mods, int limit) {
+        int extra = 0;
+        for (String mod : mods) {
+            if (!profile.modSet.contains(mod) && ++extra > limit) {
+                break;
+            }
+        }
+        return extra;
+    }
+
+    /**
+     * @return A counter bumped each time the profiles change
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The mod IDs lowercased, deduplicated and sorted
+     */
+    public static List<String> canonicalMods(Collection<String> mods) {
+        String[] sorted = new String[mods.size()];
+        int i = 0;
+        for (String mod : mods) {
+            sorted[i++] = mod.toLowerCase();
+        }
+        Arrays.sort(sorted);
+        List<String> result = new ArrayList<>(sorted.length);
+        for (String mod : sorted) {
+            if (result.isEmpty() || !result.get(result.size() - 1).equals(mod)) {
+                result.add(mod);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * SHA-256 over the canonical mod IDs, each followed by {@code \n}, Base64
+     * encoded
+     */
+    public static String canonicalHash(List<String> canonicalMods) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String mod : canonicalMods) {
+                digest.update(mod.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private void index(Profile profile, long createdAt) {
+        profile.createdAt = createdAt;
+        profilesByName.put(profile.name, profile);
+        profilesByHash.put(profile.hash, profile);
+    }
+}
@@ -35,6 +35,7 @@ public final class ProtocolConstants {
     public static final String MSG_HANDSHAKE_REQUEST = "HANDSHAKE_REQUEST";
     public static final String MSG_MODLIST_REQUEST = "MODLIST_REQUEST";
     public static final String MSG_ACKNOWLEDGE_PRESENCE = "ACKNOWLEDGE_PRESENCE";
+    public static final String MSG_MODLIST_DIGEST_RESULT = "MODLIST_DIGEST_RESULT";
 
     // JSON Keys
     public static final String KEY_MESSAGE_TYPE = "messageType";
@@ -42,10 +43,33 @@ public final class ProtocolConstants {
     public static final String KEY_NONCE = "nonce";
     public static final String KEY_STATUS = "status";
     public static final String KEY_MOD_ID = "modId";
+    public static final String KEY_CHECK_ID = "checkId";
+    public static final String KEY_REQUEST_MODLIST = "requestModlist";
+    public static final String KEY_DIGEST = "digest";
+    public static final String KEY_DIGEST_FIRST = "digestFirst";
+    public static final String KEY_CHANNEL_KEY = "channelKey";
+    public static final String KEY_KEY_ID = "keyId";
 
     // Status Values
     public static final String STATUS_READY = "ready";
+    public static final String STATUS_KNOWN = "known";
+    public static final String STATUS_UNKNOWN = "unknown";
 
     // Version
     public static final String PLUGIN_VERSION = "1.1";
+
+    // Oldest Hidder version that answers a combined ACKNOWLEDGE_PRESENCE + modlist request
+    public static final String PIPELINED_HANDSHAKE_MIN_VERSION = "1.2";
+
+    // Oldest Hidder version that can answer a modlist request with a digest first
+    public static final String DIGEST_EXCHANGE_MIN_VERSION = "1.3";
+
+    // Oldest Hidder version that can negotiate the X25519 + AES-GCM secure channel
+    public static final String SECURE_CHANNEL_MIN_VERSION = "1.4";
+
+    // Oldest Hidder version that echoes checkId and nonce in the envelope of every mod list response
+    public static final String REPLAY_NONCE_MIN_VERSION = "1.5";
+
+    // Oldest Hidder version that also puts the nonce inside the signed or encrypted payload
+    public static final String BOUND_NONCE_MIN_VERSION = "1.6";
 }
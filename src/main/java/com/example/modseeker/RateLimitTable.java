@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Inbound rate limit state per player UUID: the message token bucket and how
+ * many messages it has rejected. An entry outlives the session for a short
+ * while after quit, so reconnecting doesn't hand a flooding client a full
+ * bucket and a clean violation count.
+ *
+ * Only use from the server main thread.
+ */
+public class RateLimitTable {
+
+    // How long an entry is kept after its player quits
+    private static final long RETAIN_AFTER_QUIT_MILLIS = 60_000;
+    // Released entries are only swept once the map grows past this
+    private static final int SWEEP_THRESHOLD = 256;
+
+    /**
+     * Rate limit state of one player
+     */
+    public static final class Entry {
+        public final TokenBucket messageBudget = new TokenBucket();
+        public int violations = 0;
+        // When the player quit, or 0 while they are online
+        private long releasedAt = 0;
+
+        private boolean isExpired(long now) {
+            return releasedAt != 0 && now - releasedAt >= RETAIN_AFTER_QUIT_MILLIS;
+        }
+    }
+
+    private final Map<UUID, Entry> entries = new HashMap<>();
+
+    /**
+     * @return The player's entry, the one kept from a recent session if there
+     *         is one, or a new one
+     */
+    public Entry get(UUID playerId) {
+        Entry entry = entries.get(playerId);
+        if (entry != null && entry.releasedAt == 0) {
+            return entry;
+        }
+
+        long now = System.currentTimeMillis();
+        if (entry == null || entry.isExpired(now)) {
+            if (entries.size() >= SWEEP_THRESHOLD) {
+                entries.values().removeIf(stale -> stale.isExpired(now));
+            }
+            entry = new Entry();
+            entries.put(playerId, entry);
+        }
+        entry.releasedAt = 0;
+        return entry;
+    }
+
+    /**
+     * Start the expiry of a player's entry once they quit
+     */
+    public void release(UUID playerId) {
+        Entry entry = entries.get(playerId);
+        if (entry != null) {
+            entry.releasedAt = System.currentTimeMillis();
+        }
+    }
+}
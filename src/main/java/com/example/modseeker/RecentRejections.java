@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers, per player UUID, why their last verification failed on their mods
+ * or on a missing Hidder, so a reconnect within a short window can be refused
+ * during the async pre-login, before the player enters the world.
+ *
+ * An entry is ignored once the rules (blacklist, policy, profiles or config)
+ * have changed since it was recorded, since the same mod list might pass now.
+ * Recorded on the main thread and read from the async pre-login thread.
+ */
+public class RecentRejections {
+
+    // Expired entries are only swept once the map grows past this
+    private static final int SWEEP_THRESHOLD = 256;
+
+    private static final class Entry {
+        final String kickMessage;
+        final long expiresAt;
+        final long rulesVersion;
+
+        Entry(String kickMessage, long expiresAt, long rulesVersion) {
+            this.kickMessage = kickMessage;
+            this.expiresAt = expiresAt;
+            this.rulesVersion = rulesVersion;
+        }
+    }
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Remember a rejection
+     *
+     * @param ttlMillis    How long to refuse the player at pre-login; 0 or less
+     *                     records nothing
+     * @param rulesVersion See {@link ModSeekerPlugin#getRulesVersion()}
+     */
+    public void record(UUID playerId, String kickMessage, long ttlMillis, long rulesVersion) {
+        if (ttlMillis <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (entries.size() >= SWEEP_THRESHOLD) {
+            entries.values().removeIf(entry -> entry.expiresAt <= now);
+        }
+        entries.put(playerId, new Entry(kickMessage, now + ttlMillis, rulesVersion));
+    }
+
+    /**
+     * @return The kick message of the player's last rejection, or null if there
+     *         is none still valid for the current rules
+     */
+    public String lookup(UUID playerId, long rulesVersion) {
+        Entry entry = entries.get(playerId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis() || entry.rulesVersion != rulesVersion) {
+            entries.remove(playerId, entry);
+            return null;
+        }
+        return entry.kickMessage;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Check IDs whose mod list has already been received, so a captured or
+ * repeated response is dropped before it reaches the crypto workers.
+ *
+ * Entries live in a few time-bucketed generations of open-addressing tables of
+ * 64-bit fingerprints. Each generation covers a slice of the window; the
+ * oldest one is cleared when a new slice starts, or early when the current one
+ * fills up under a flood. Memory is fixed at
+ * {@code GENERATIONS * TABLE_SIZE * 8} bytes however many players join.
+ * Fingerprints are seeded per server start, so they can't be aimed at
+ * collisions from outside.
+ *
+ * Only use from the server main thread.
+ */
+public class ReplayCache {
+
+    public static final long WINDOW_MILLIS = 10 * 60 * 1000L;
+
+    private static final int GENERATIONS = 4;
+    private static final int TABLE_SIZE = 4096; // Power of two
+    private static final int TABLE_MASK = TABLE_SIZE - 1;
+    private static final int MAX_ENTRIES = TABLE_SIZE / 2; // Keeps probe chains short
+
+    private final long[][] tables = new long[GENERATIONS][TABLE_SIZE];
+    private final int[] counts = new int[GENERATIONS];
+    private final long generationMillis;
+    private final long seed = new SecureRandom().nextLong();
+
+    private int current = 0;
+    private long currentStart = System.currentTimeMillis();
+    private long rejected = 0;
+
+    public ReplayCache() {
+        // The oldest generation still covers the full window when it's cleared
+        this.generationMillis = WINDOW_MILLIS / (GENERATIONS - 1);
+    }
+
+    /**
+     * Remember a check ID as answered
+     */
+    public void add(String checkId) {
+        rotate(System.currentTimeMillis());
+        if (counts[current] >= MAX_ENTRIES) {
+            advance(System.currentTimeMillis());
+        }
+
+        long fingerprint = fingerprint(checkId);
+        long[] table = tables[current];
+        int slot = (int) fingerprint & TABLE_MASK;
+        while (table[slot] != 0) {
+            if (table[slot] == fingerprint) {
+                return;
+            }
+            slot = (slot + 1) & TABLE_MASK;
+        }
+        table[slot] = fingerprint;
+        counts[current]++;
+    }
+
+    /**
+     * Check a check ID against the window, counting it as a rejected replay if
+     * it was already answered
+     *
+     * @return true if the check ID was already answered
+     */
+    public boolean isReplay(String checkId) {
+        rotate(System.currentTimeMillis());
+        long fingerprint = fingerprint(checkId);
+        for (long[] table : tables) {
+            int slot = (int) fingerprint & TABLE_MASK;
+            while (table[slot] != 0) {
+                if (table[slot] == fingerprint) {
+                    rejected++;
+                    return true;
+                }
+                slot = (slot + 1) & TABLE_MASK;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The number of check IDs currently remembered
+     */
+    public int getSize() {
+        int size = 0;
+        for (int count : counts) {
+            size += count;
+        }
+        return size;
+    }
+
+    /**
+     * @return The number of replayed responses rejected since startup
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    private void rotate(long now) {
+        for (int i = 0; i < GENERATIONS && now - currentStart >= generationMillis; i++) {
+            advance(currentStart + generationMillis);
+        }
+        if (now - currentStart >= generationMillis) {
+            currentStart = now; // Idle for longer than the window; everything was cleared
+        }
+    }
+
+    private void advance(long start) {
+        current = (current + 1) % GENERATIONS;
+        Arrays.fill(tables[current], 0L);
+        counts[current] = 0;
+        currentStart = start;
+    }
+
+    /**
+     * Seeded FNV-1a over the check ID, finished with the MurmurHash3 mixer.
+     * Zero marks an empty slot, so it is never returned.
+     */
+    private long fingerprint(String checkId) {
+        long hash = seed ^ 0xcbf29ce484222325L;
+        for (int i = 0; i < checkId.length(); i++) {
+            hash ^= checkId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb93c185ec53bL;
+        hash ^= hash >>> 33;
+        return hash != 0 ? hash : 1;
+    }
+}
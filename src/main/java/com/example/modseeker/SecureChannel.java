@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * The ephemeral X25519 key agreement of one session, for clients that send
+ * their mod lists as RESPONSE_MODLIST_SEALED (AES-256-GCM) instead of
+ * RSA-wrapping an AES-CBC key per message.
+ *
+ * The client puts its ephemeral public key in ANNOUNCE_PRESENCE and the server
+ * answers with its own in ACKNOWLEDGE_PRESENCE. Both sides then derive the AES
+ * key as HKDF-SHA256 over the shared secret, with an empty salt and the info
+ * {@code "modseeker-channel-v1" || clientKey || serverKey}. Public keys travel
+ * as the raw 32-byte X25519 encoding, Base64 encoded.
+ *
+ * The key agreement runs on the crypto workers the first time a sealed
+ * response arrives (see {@link CryptoEngine#deriveChannelKey(SecureChannel)});
+ * the derived key is then kept for the rest of the session and zeroed by
+ * {@link #destroy()}.
+ */
+public final class SecureChannel {
+
+    public static final int KEY_LENGTH = 32;
+    public static final int NONCE_LENGTH = 12;
+    public static final int TAG_BITS = 128;
+
+    // Additional authenticated data of every sealed response
+    static final byte[] AAD = "RESPONSE_MODLIST_SEALED".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] KDF_LABEL = "modseeker-channel-v1".getBytes(StandardCharsets.US_ASCII);
+
+    // X.509 SubjectPublicKeyInfo header for a raw X25519 key (OID 1.3.101.110)
+    private static final byte[] X509_PREFIX = { 0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x6e, 0x03, 0x21,
+            0x00 };
+
+    private static final ThreadLocal<KeyPairGenerator> KEY_PAIR_GENERATOR = ThreadLocal.withInitial(() -> {
+        try {
+            return KeyPairGenerator.getInstance("X25519");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("X25519 unavailable: " + e.getMessage(), e);
+        }
+    });
+
+    final PrivateKey serverPrivateKey;
+    final PublicKey clientPublicKey;
+    final byte[] kdfInfo;
+    private final String serverPublicKey;
+    private byte[] channelKey;
+    private boolean destroyed = false;
+
+    private SecureChannel(PrivateKey serverPrivateKey, PublicKey clientPublicKey, byte[] clientKey,
+            byte[] serverKey) {
+        this.serverPrivateKey = serverPrivateKey;
+        this.clientPublicKey = clientPublicKey;
+        this.serverPublicKey = Base64.getEncoder().encodeToString(serverKey);
+
+        byte[] info = Arrays.copyOf(KDF_LABEL, KDF_LABEL.length + clientKey.length + serverKey.length);
+        System.arraycopy(clientKey, 0, info, KDF_LABEL.length, clientKey.length);
+        System.arraycopy(serverKey, 0, info, KDF_LABEL.length + clientKey.length, serverKey.length);
+        this.kdfInfo = info;
+    }
+
+    /**
+     * Answer a client's ephemeral key with a fresh server key pair
+     *
+     * @param clientKeyBase64 The client's raw X25519 public key, Base64 encoded
+     * @throws GeneralSecurityException if the client key is invalid
+     */
+    public static SecureChannel negotiate(String clientKeyBase64) throws GeneralSecurityException {
+        byte[] clientKey;
+        try {
+            clientKey = Base64.getDecoder().decode(clientKeyBase64);
+        } catch (IllegalArgumentException e) {
+            throw new GeneralSecurityException("Channel key is not valid Base64");
+        }
+        if (clientKey.length != KEY_LENGTH) {
+            throw new GeneralSecurityException("Channel key must be " + KEY_LENGTH + " bytes, got " + clientKey.length);
+        }
+
+        byte[] encoded = Arrays.copyOf(X509_PREFIX, X509_PREFIX.length + KEY_LENGTH);
+        System.arraycopy(clientKey, 0, encoded, X509_PREFIX.length, KEY_LENGTH);
+        PublicKey clientPublicKey = KeyFactory.getInstance("X25519").generatePublic(new X509EncodedKeySpec(encoded));
+
+        KeyPair serverKeyPair = KEY_PAIR_GENERATOR.get().generateKeyPair();
+        byte[] serverEncoded = serverKeyPair.getPublic().getEncoded();
+        byte[] serverKey = Arrays.copyOfRange(serverEncoded, serverEncoded.length - KEY_LENGTH, serverEncoded.length);
+        return new SecureChannel(serverKeyPair.getPrivate(), clientPublicKey, clientKey, serverKey);
+    }
+
+    /**
+     * @return The server's ephemeral public key, raw and Base64 encoded
+     */
+    public String getServerPublicKey() {
+        return serverPublicKey;
+    }
+
+    /**
+     * @return A copy of the channel's AES key, derived on first use
+     * @throws GeneralSecurityException if the channel was already destroyed
+     */
+    synchronized byte[] channelKey(CryptoEngine engine) throws GeneralSecurityException {
+        if (destroyed) {
+            throw new GeneralSecurityException("Channel already closed");
+        }
+        if (channelKey == null) {
+            channelKey = engine.deriveChannelKey(this);
+        }
+        return channelKey.clone();
+    }
+
+    /**
+     * Zero the derived key; later sealed responses on this channel fail
+     */
+    public synchronized void destroy() {
+        destroyed = true;
+        if (channelKey != null) {
+            Arrays.fill(channelKey, (byte) 0);
+            channelKey = null;
+        }
+    }
+}
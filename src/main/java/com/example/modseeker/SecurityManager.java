@@ -16,11 +16,12 @@
  */
 package com.example.modseeker;
 
+import javax.crypto.AEADBadTagException;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyFactory;
 import java.security.PublicKey;
-import java.security.Signature;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
 import java.util.Base64;
 
 /**
@@ -42,10 +43,14 @@ public class SecurityManager {
 
     private java.security.PrivateKey privateKey;
 
+    // Pooled cipher/signature instances bound to the keys above
+    private final CryptoEngine cryptoEngine;
+
     public SecurityManager(ModSeekerPlugin plugin) {
         this.plugin = plugin;
         loadPublicKey();
         loadPrivateKey();
+        this.cryptoEngine = new CryptoEngine(privateKey, publicKey);
     }
 
     private void loadPrivateKey() {
@@ -59,37 +64,54 @@ public class SecurityManager {
         }
     }
 
-    public String decrypt(String ciphertext) {
+    /**
+     * Decrypt an encrypted response: key|iv|data with an RSA-wrapped AES key,
+     * whose key is then kept in the session, or iv|data plus a keyId field
+     * referring to that kept key
+     *
+     * @param payload     The Base64-decoded segments
+     * @param message     The raw message bytes, for the keyId field
+     * @param sessionKeys The keys of the sending session
+     * @return The plaintext, or null if decryption failed
+     */
+    public String decrypt(InboundMessageDecoder.EncryptedPayload payload, byte[] message,
+            SessionKeys sessionKeys) {
+        byte[] aesKey = null;
         try {
-            String[] parts = ciphertext.split("\\|");
+            if (payload.segmentCount == 2) {
+                String keyId = InboundMessageDecoder.peekKeyId(message);
+                aesKey = keyId != null ? sessionKeys.lookup(keyId) : null;
+                if (aesKey == null) {
+                    plugin.logInfo("❌ Security: Unknown or expired session key " + keyId);
+                    return null;
+                }
+                // Same layout as a sealed response: iv|data
+                byte[] decodedData = cryptoEngine.decryptAes(aesKey, payload.buffer, payload.sealedNonceOffset(),
+                        payload.sealedNonceLength(), payload.sealedDataOffset(), payload.sealedDataLength());
+                return new String(decodedData, StandardCharsets.UTF_8);
+            }
 
-            if (parts.length != 3) {
-                plugin.logInfo("❌ Security: Invalid ciphertext format. Expected 3 parts, got " + parts.length);
+            if (payload.segmentCount != 3) {
+                plugin.logInfo("❌ Security: Invalid ciphertext format. Expected 3 parts, got " + payload.segmentCount);
                 return null;
             }
 
-            String encKeyB64 = parts[0];
-            String ivB64 = parts[1];
-            String encDataB64 = parts[2];
-
-            byte[] decodedKeyBytes = Base64.getMimeDecoder().decode(encKeyB64);
-
-            if (decodedKeyBytes.length > 256) {
-                plugin.logInfo("❌ Security: Invalid encrypted key length: " + decodedKeyBytes.length);
+            if (payload.keyLength() > 256) {
+                plugin.logInfo("❌ Security: Invalid encrypted key length: " + payload.keyLength());
                 return null;
             }
 
-            javax.crypto.Cipher rsaCipher = javax.crypto.Cipher.getInstance("RSA/ECB/PKCS1Padding");
-            rsaCipher.init(javax.crypto.Cipher.DECRYPT_MODE, privateKey);
-            byte[] aesKey = rsaCipher.doFinal(decodedKeyBytes);
+            aesKey = cryptoEngine.unwrapKey(payload.buffer, payload.keyOffset(), payload.keyLength());
 
-            javax.crypto.Cipher aesCipher = javax.crypto.Cipher.getInstance("AES/CBC/PKCS5Padding");
-            javax.crypto.spec.SecretKeySpec keySpec = new javax.crypto.spec.SecretKeySpec(aesKey, "AES");
-            javax.crypto.spec.IvParameterSpec ivSpec = new javax.crypto.spec.IvParameterSpec(
-                    Base64.getMimeDecoder().decode(ivB64));
+            byte[] decodedData = cryptoEngine.decryptAes(aesKey, payload.buffer, payload.ivOffset(),
+                    payload.ivLength(), payload.dataOffset(), payload.dataLength());
 
-            aesCipher.init(javax.crypto.Cipher.DECRYPT_MODE, keySpec, ivSpec);
-            byte[] decodedData = aesCipher.doFinal(Base64.getMimeDecoder().decode(encDataB64));
+            // Keep the key, so the next response of this session skips the unwrap
+            long ttlMillis = plugin.getConfigManager().getSessionKeyTtlSeconds() * 1000L;
+            if (ttlMillis > 0) {
+                sessionKeys.store(aesKey, ttlMillis);
+                aesKey = null;
+            }
 
             return new String(decodedData, StandardCharsets.UTF_8);
         } catch (Exception e) {
@@ -97,23 +119,13 @@ public class SecurityManager {
             plugin.logInfo("❌ Security: Error handling encrypted response: " + e.getMessage());
             e.printStackTrace();
             return null;
+        } finally {
+            if (aesKey != null) {
+                Arrays.fill(aesKey, (byte) 0);
+            }
         }
     }
 
-    private String listToJsonArray(String commaSeparated) {
-        if (commaSeparated.isEmpty())
-            return "[]";
-        StringBuilder sb = new StringBuilder("[");
-        String[] items = commaSeparated.split(",");
-        for (int i = 0; i < items.length; i++) {
-            if (i > 0)
-                sb.append(",");
-            sb.append("\"").append(items[i]).append("\"");
-        }
-        sb.append("]");
-        return sb.toString();
-    }
-
     private void loadPublicKey() {
         try {
             String publicKeyStr = DEFAULT_PUBLIC_KEY;
@@ -140,17 +152,13 @@ public class SecurityManager {
             return true;
         }
 
-        if ("ENCRYPTED_CHANNEL".equals(signatureBase64)) {
+        if (ModListResponse.ENCRYPTED_CHANNEL.equals(signatureBase64)) {
             return true;
         }
 
         try {
-            Signature sign = Signature.getInstance("SHA256withRSA");
-            sign.initVerify(publicKey);
-            sign.update(data.getBytes(StandardCharsets.UTF_8));
-
             byte[] signatureBytes = Base64.getDecoder().decode(signatureBase64);
-            return sign.verify(signatureBytes);
+            return cryptoEngine.verify(data.getBytes(StandardCharsets.UTF_8), signatureBytes);
 
         } catch (Exception e) {
             plugin.logInfo("❌ Security: Signature verification error: " + e.getMessage());
@@ -171,113 +179,81 @@ public class SecurityManager {
         return validationEnabled;
     }
 
-    public void handleEncryptedResponse(org.bukkit.entity.Player player, String jsonMessage) {
+    /**
+     * Decrypt an encrypted mod list response into a typed response.
+     * Safe to call from the crypto worker threads.
+     *
+     * @param playerName  The name of the player who sent the message
+     * @param message     The raw encrypted response bytes
+     * @param sessionKeys The keys of the sending session
+     * @return The parsed response, or null if decryption failed
+     */
+    public ModListResponse decryptResponse(String playerName, byte[] message, SessionKeys sessionKeys) {
         try {
-            // Extract ciphertext manually since we don't use a JSON lib
-            String tag = "\"ciphertext\":\"";
-            int start = jsonMessage.indexOf(tag);
-            if (start == -1) {
-                plugin.logInfo("❌ Security: Encrypted response missing ciphertext tag from " + player.getName());
-                return;
-            }
-            start += tag.length();
-            int end = jsonMessage.indexOf("\"", start);
-            if (end == -1) {
-                plugin.logInfo("❌ Security: Malformed ciphertext JSON from " + player.getName());
-                return;
+            // Decode the ciphertext segments straight from the raw bytes
+            InboundMessageDecoder.EncryptedPayload payload = InboundMessageDecoder.decodeEncrypted(message);
+            if (payload == null) {
+                plugin.logInfo("❌ Security: Encrypted response missing or malformed ciphertext from " + playerName);
+                return null;
             }
 
-            String ciphertext = jsonMessage.substring(start, end);
-
             // Now decrypt just the ciphertext
-            String decryptedData = decrypt(ciphertext);
+            String decryptedData = decrypt(payload, message, sessionKeys);
 
             if (decryptedData == null) {
                 plugin.logInfo("❌ Security: Decryption of encrypted response failed.");
-                return;
+                return null;
             }
 
-            // Parse the decrypted data:
+            // Parse the decrypted data straight into the typed response:
             // checkId=...|mods=...|resourcePacks=...|shaderPacks=...
-
-            String checkId = "unknown";
-            String mods = "";
-            String resPacks = "";
-            String shaders = "";
-
-            String[] fields = decryptedData.split("\\|");
-            for (String field : fields) {
-                if (field.startsWith("checkId="))
-                    checkId = field.substring("checkId=".length());
-                else if (field.startsWith("mods="))
-                    mods = field.substring("mods=".length());
-                else if (field.startsWith("resourcePacks="))
-                    resPacks = field.substring("resourcePacks=".length());
-                else if (field.startsWith("shaderPacks="))
-                    shaders = field.substring("shaderPacks=".length());
-            }
-
-            String modsJson = listToJsonArray(mods);
-            String resPacksJson = listToJsonArray(resPacks);
-            String shadersJson = listToJsonArray(shaders);
-
-            long currentTimestamp = System.currentTimeMillis();
-
-            StringBuilder reconstitutedJson = new StringBuilder();
-            reconstitutedJson.append("{\"messageType\":\"RESPONSE_MODLIST\",");
-            reconstitutedJson.append("\"modId\":\"hidder\",");
-            reconstitutedJson.append("\"version\":\"1.21.10\",");
-            reconstitutedJson.append("\"checkId\":\"").append(checkId).append("\",");
-            reconstitutedJson.append("\"mods\":").append(modsJson).append(",");
-            reconstitutedJson.append("\"resourcePacks\":").append(resPacksJson).append(",");
-            reconstitutedJson.append("\"shaderPacks\":").append(shadersJson).append(",");
-
-            reconstitutedJson.append("\"signature\":\"ENCRYPTED_CHANNEL\",");
-            reconstitutedJson.append("\"timestamp\":").append(currentTimestamp);
-
-            reconstitutedJson.append("}");
-
-            plugin.handleModListResponse(player, reconstitutedJson.toString());
+            return plugin.getModListParser().parseDecryptedPayload(decryptedData, System.currentTimeMillis());
 
         } catch (Exception e) {
             plugin.logInfo("❌ Security: Error handling encrypted response: " + e.getMessage());
             e.printStackTrace();
+            return null;
         }
     }
 
-    private String extractJsonValue(String json, String key) {
-        String searchKey = "\"" + key + "\":\"";
-        int startIndex = json.indexOf(searchKey);
-        if (startIndex != -1) {
-            startIndex += searchKey.length();
-            int endIndex = json.indexOf("\"", startIndex);
-            if (endIndex != -1) {
-                return json.substring(startIndex, endIndex);
+    /**
+     * Decrypt a RESPONSE_MODLIST_SEALED message with the session's secure channel
+     * key. AES-GCM authenticates the payload in the same pass, so no separate
+     * signature is needed. Safe to call from the crypto worker threads.
+     *
+     * @param playerName The name of the player who sent the message
+     * @param message    The raw sealed response bytes
+     * @param channel    The channel negotiated during the handshake
+     * @return The parsed response, or null if decryption or authentication failed
+     */
+    public ModListResponse decryptSealedResponse(String playerName, byte[] message, SecureChannel channel) {
+        try {
+            InboundMessageDecoder.EncryptedPayload payload = InboundMessageDecoder.decodeEncrypted(message);
+            if (payload == null || payload.segmentCount != 2
+                    || payload.sealedNonceLength() != SecureChannel.NONCE_LENGTH) {
+                plugin.logInfo("❌ Security: Sealed response missing or malformed ciphertext from " + playerName);
+                return null;
             }
-        }
-        searchKey = "\"" + key + "\":";
-        startIndex = json.indexOf(searchKey);
-        if (startIndex != -1) {
-            startIndex += searchKey.length();
-            int braceCount = 0;
-            int bracketCount = 0;
-            for (int i = startIndex; i < json.length(); i++) {
-                char c = json.charAt(i);
-                if (c == '{')
-                    braceCount++;
-                else if (c == '}')
-                    braceCount--;
-                else if (c == '[')
-                    bracketCount++;
-                else if (c == ']')
-                    bracketCount--;
-
-                if ((c == ',' || c == '}') && braceCount == 0 && bracketCount == 0) {
-                    return json.substring(startIndex, i).trim();
-                }
+
+            byte[] key = channel.channelKey(cryptoEngine);
+            byte[] plaintext;
+            try {
+                plaintext = cryptoEngine.decryptGcm(key, payload.buffer, payload.sealedNonceOffset(),
+                        payload.sealedNonceLength(), payload.sealedDataOffset(), payload.sealedDataLength(),
+                        SecureChannel.AAD);
+            } finally {
+                Arrays.fill(key, (byte) 0);
             }
-            return json.substring(startIndex).trim();
+
+            return plugin.getModListParser().parseDecryptedPayload(new String(plaintext, StandardCharsets.UTF_8),
+                    System.currentTimeMillis());
+        } catch (AEADBadTagException e) {
+            plugin.logInfo("🚫 Security: Sealed response from " + playerName + " failed authentication");
+            return null;
+        } catch (Exception e) {
+            plugin.logInfo("❌ Security: Error handling sealed response: " + e.getMessage());
+            e.printStackTrace();
+            return null;
         }
-        return "";
     }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * The AES key of a session's last RSA-wrapped response, kept so later
+ * responses (seeks, re-requests) can refer to it by key ID and skip the RSA
+ * private-key operation.
+ *
+ * Keys expire a fixed time after they were stored and are zeroed when
+ * replaced, expired or the player quits. Safe to use from the crypto workers.
+ */
+public class SessionKeys {
+
+    private String keyId;
+    private byte[] key;
+    private long expiresAt;
+
+    /**
+     * Keep a freshly unwrapped key, replacing the previous one
+     *
+     * @param aesKey   The raw AES key; the caller must not reuse the array
+     * @param ttlMillis How long the key may be referred to
+     */
+    public synchronized void store(byte[] aesKey, long ttlMillis) {
+        destroy();
+        this.keyId = "key-" + UUID.randomUUID().toString().substring(0, 8);
+        this.key = aesKey;
+        this.expiresAt = System.currentTimeMillis() + ttlMillis;
+    }
+
+    /**
+     * @return A copy of the key with this ID, or null if it's unknown or expired
+     */
+    public synchronized byte[] lookup(String requestedKeyId) {
+        if (!isValid() || !keyId.equals(requestedKeyId)) {
+            return null;
+        }
+        return key.clone();
+    }
+
+    /**
+     * @return The ID of the current key, to offer to the client, or null if
+     *         there is none or it has expired
+     */
+    public synchronized String currentKeyId() {
+        return isValid() ? keyId : null;
+    }
+
+    /**
+     * Zero and forget the key
+     */
+    public synchronized void destroy() {
+        if (key != null) {
+            Arrays.fill(key, (byte) 0);
+        }
+        key = null;
+        keyId = null;
+    }
+
+    private boolean isValid() {
+        if (key == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() >= expiresAt) {
+            destroy();
+            return false;
+        }
+        return true;
+    }
+}
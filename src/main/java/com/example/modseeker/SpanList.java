@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * An unmodifiable list of strings kept as offsets into a raw UTF-8 buffer, as
+ * read by {@link JsonTokenizer}. An element is only decoded into a String when
+ * it is first read, and then cached. Elements are added while parsing, before
+ * the list is handed to anyone else.
+ */
+public final class SpanList extends AbstractList<String> implements RandomAccess {
+
+    private final byte[] data;
+    // start/end offset pairs, one per element
+    private int[] bounds;
+    private String[] values;
+    private int size;
+
+    SpanList(byte[] data, int capacity) {
+        this.data = data;
+        this.bounds = new int[Math.max(capacity, 4) * 2];
+        this.values = new String[Math.max(capacity, 4)];
+    }
+
+    /**
+     * Add a span without escape sequences, to be decoded on first read
+     */
+    void addSpan(int start, int end) {
+        ensureCapacity();
+        bounds[size * 2] = start;
+        bounds[size * 2 + 1] = end;
+        size++;
+    }
+
+    /**
+     * Add an element that has already been decoded
+     */
+    void addDecoded(String value) {
+        ensureCapacity();
+        values[size++] = value;
+    }
+
+    @Override
+    public String get(int index) {
+        Objects.checkIndex(index, size);
+        String value = values[index];
+        if (value == null) {
+            value = JsonTokenizer.decode(data, bounds[index * 2], bounds[index * 2 + 1], false);
+            values[index] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void ensureCapacity() {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            bounds = Arrays.copyOf(bounds, size * 4);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Hashed timing wheel for all per-player handshake, modlist and seek timeouts.
+ * A single repeating task advances the wheel once per server tick; arming and
+ * cancelling a deadline are O(1) and keyed by player session and timeout kind.
+ *
+ * Only use from the server main thread.
+ */
+public class TimeoutWheel {
+
+    /**
+     * The independent deadlines a player session can have armed at once
+     */
+    public enum Kind {
+        LOGIN,
+        CHANNEL_REGISTER,
+        PRESENCE,
+        MODLIST,
+        SEEK
+    }
+
+    private static final int WHEEL_SIZE = 512; // Power of two, ~25s per revolution
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int KIND_COUNT = Kind.values().length;
+
+    /**
+     * A deadline, linked into its wheel bucket so it can be unlinked in O(1)
+     */
+    private static final class Timeout {
+        final UUID sessionId;
+        final Kind kind;
+        final Runnable task;
+        long remainingRounds;
+        int bucket;
+        boolean linked;
+        Timeout prev;
+        Timeout next;
+        Timeout nextDue;
+
+        Timeout(UUID sessionId, Kind kind, Runnable task) {
+            this.sessionId = sessionId;
+            this.kind = kind;
+            this.task = task;
+        }
+    }
+
+    private final ModSeekerPlugin plugin;
+    private final Timeout[] heads = new Timeout[WHEEL_SIZE];
+    private final Timeout[] tails = new Timeout[WHEEL_SIZE];
+    private final Map<UUID, Timeout[]> bySession = new HashMap<>();
+
+    private int cursor = 0;
+    private int pending = 0;
+    private long expired = 0;
+    private BukkitTask tickTask;
+
+    public TimeoutWheel(ModSeekerPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Start the single repeating tick task driving the wheel
+     */
+    public void start() {
+        if (tickTask != null) {
+            return;
+        }
+        tickTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }.runTaskTimer(plugin, 1L, 1L);
+    }
+
+    /**
+     * Stop the tick task and drop every pending deadline without running it
+     */
+    public void stop() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            heads[i] = null;
+            tails[i] = null;
+        }
+        bySession.clear();
+        pending = 0;
+    }
+
+    /**
+     * Arm a deadline for a session, replacing any deadline of the same kind
+     *
+     * @param sessionId  The player UUID
+     * @param kind       The kind of timeout
+     * @param delayTicks Delay in server ticks (minimum 1)
+     * @param task       The task to run when the deadline expires
+     */
+    public void arm(UUID sessionId, Kind kind, long delayTicks, Runnable task) {
+        cancel(sessionId, kind);
+
+        long delay = Math.max(1L, delayTicks);
+        Timeout timeout = new Timeout(sessionId, kind, task);
+        // Full revolutions to skip before the bucket is actually due
+        timeout.remainingRounds = (delay - 1) / WHEEL_SIZE;
+        timeout.bucket = (int) ((cursor + delay) & WHEEL_MASK);
+        link(timeout);
+
+        bySession.computeIfAbsent(sessionId, id -> new Timeout[KIND_COUNT])[kind.ordinal()] = timeout;
+        pending++;
+    }
+
+    /**
+     * Cancel the deadline of the given kind for a session
+     *
+     * @return true if a deadline was pending
+     */
+    public boolean cancel(UUID sessionId, Kind kind) {
+        Timeout[] slots = bySession.get(sessionId);
+        if (slots == null || slots[kind.ordinal()] == null) {
+            return false;
+        }
+        release(slots[kind.ordinal()], slots);
+        return true;
+    }
+
+    /**
+     * Cancel every deadline of a session, e.g. when the player quits
+     */
+    public void cancelAll(UUID sessionId) {
+        Timeout[] slots = bySession.remove(sessionId);
+        if (slots == null) {
+            return;
+        }
+        for (Timeout timeout : slots) {
+            if (timeout != null) {
+                unlink(timeout);
+                pending--;
+            }
+        }
+    }
+
+    public boolean isArmed(UUID sessionId, Kind kind) {
+        Timeout[] slots = bySession.get(sessionId);
+        return slots != null && slots[kind.ordinal()] != null;
+    }
+
+    public int getPendingCount() {
+        return pending;
+    }
+
+    public long getExpiredCount() {
+        return expired;
+    }
+
+    /**
+     * Advance the wheel by one tick and run every deadline that expired
+     */
+    void tick() {
+        cursor = (cursor + 1) & WHEEL_MASK;
+
+        // Detach due deadlines first, so tasks can freely arm or cancel others
+        Timeout dueHead = null;
+        Timeout dueTail = null;
+        Timeout timeout = heads[cursor];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+            } else {
+                unlink(timeout);
+                timeout.nextDue = null;
+                if (dueTail == null) {
+                    dueHead = timeout;
+                } else {
+                    dueTail.nextDue = timeout;
+                }
+                dueTail = timeout;
+            }
+            timeout = next;
+        }
+
+        for (timeout = dueHead; timeout != null; timeout = timeout.nextDue) {
+            Timeout[] slots = bySession.get(timeout.sessionId);
+            if (slots == null || slots[timeout.kind.ordinal()] != timeout) {
+                continue; // Cancelled or replaced by an earlier task this tick
+            }
+            release(timeout, slots);
+            expired++;
+            try {
+                timeout.task.run();
+            } catch (Exception e) {
+                plugin.logInfo("❌ Timeout task failed for " + timeout.sessionId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void release(Timeout timeout, Timeout[] slots) {
+        unlink(timeout);
+        pending--;
+        slots[timeout.kind.ordinal()] = null;
+        for (Timeout other : slots) {
+            if (other != null) {
+                return;
+            }
+        }
+        bySession.remove(timeout.sessionId);
+    }
+
+    private void link(Timeout timeout) {
+        int bucket = timeout.bucket;
+        timeout.prev = tails[bucket];
+        timeout.next = null;
+        if (tails[bucket] != null) {
+            tails[bucket].next = timeout;
+        } else {
+            heads[bucket] = timeout;
+        }
+        tails[bucket] = timeout;
+        timeout.linked = true;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (!timeout.linked) {
+            return;
+        }
+        int bucket = timeout.bucket;
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            heads[bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        } else {
+            tails[bucket] = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.linked = false;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+/**
+ * Token bucket for inbound message limits. The rate and burst are passed on
+ * every call, so a config reload applies to existing buckets at once. A new
+ * bucket starts full.
+ *
+ * Only use from the server main thread.
+ */
+public class TokenBucket {
+
+    private double tokens = Double.MAX_VALUE;
+    private long lastRefill = System.nanoTime();
+
+    /**
+     * Take one token if there is one
+     *
+     * @param perSecond Tokens added per second
+     * @param burst     The most tokens the bucket can hold
+     * @return true if a token was taken, false if the bucket is empty
+     */
+    public boolean tryAcquire(double perSecond, double burst) {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * perSecond / 1_000_000_000.0);
+        lastRefill = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+}
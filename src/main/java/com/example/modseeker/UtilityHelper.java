@@ -38,7 +38,8 @@ public class UtilityHelper {
      * @param ONE_MOD_PER_LINE           Whether to show one mod per line
      * @param HIGHLIGHT_MODS             Whether to highlight mods
      * @param HIGHLIGHT_BLACKLISTED_MODS Whether to highlight blacklisted mods
-     * @param blacklistedMods            The set of blacklisted mods
+     * @param blacklistedMods            The blacklisted mods, as they appear in
+     *                                   {@code mods}
      */
     public static void logModList(String playerName, List<String> mods, boolean SHOW_MOD_LIST, boolean ONE_MOD_PER_LINE,
             boolean HIGHLIGHT_MODS, boolean HIGHLIGHT_BLACKLISTED_MODS, java.util.Set<String> blacklistedMods) {
@@ -51,7 +52,7 @@ public class UtilityHelper {
             for (String mod : mods) {
                 StringBuilder line = new StringBuilder("   ↳ ");
                 // Check if this mod is blacklisted and highlighting is enabled
-                if (HIGHLIGHT_BLACKLISTED_MODS && blacklistedMods.contains(mod.toLowerCase())) {
+                if (HIGHLIGHT_BLACKLISTED_MODS && blacklistedMods.contains(mod)) {
                     line.append(ChatColor.DARK_RED).append(mod).append(ChatColor.RESET);
                 } else if (HIGHLIGHT_MODS) {
                     line.append(ChatColor.YELLOW).append(mod).append(ChatColor.RESET);
@@ -70,7 +71,7 @@ public class UtilityHelper {
                         line.append(", ");
                     // Check if this mod is blacklisted and highlighting is enabled
                     String mod = mods.get(j);
-                    if (HIGHLIGHT_BLACKLISTED_MODS && blacklistedMods.contains(mod.toLowerCase())) {
+                    if (HIGHLIGHT_BLACKLISTED_MODS && blacklistedMods.contains(mod)) {
                         line.append(ChatColor.DARK_RED).append(mod).append(ChatColor.RESET);
                     } else if (HIGHLIGHT_MODS) {
                         line.append(ChatColor.YELLOW).append(mod).append(ChatColor.RESET);
@@ -116,6 +117,93 @@ public class UtilityHelper {
         org.bukkit.Bukkit.getLogger().info(logPrefix + consoleMessage + "\u001B[0m"); // Reset at the end
     }
 
+    /**
+     * Compare two dotted version strings (e.g. "1.10.2" vs "1.9") in semver
+     * order. Build metadata after "+" is ignored, the numeric core is compared
+     * first with missing parts counting as 0, and a "-beta" style pre-release
+     * sorts below the bare release of the same core.
+     * 
+     * @param a The first version
+     * @param b The second version
+     * @return Negative, zero or positive as a is older, equal or newer than b
+     */
+    public static int compareVersions(String a, String b) {
+        String left = stripBuildMetadata(a.trim());
+        String right = stripBuildMetadata(b.trim());
+        int leftDash = left.indexOf('-');
+        int rightDash = right.indexOf('-');
+        String leftCore = leftDash < 0 ? left : left.substring(0, leftDash);
+        String rightCore = rightDash < 0 ? right : right.substring(0, rightDash);
+
+        int result = compareParts(leftCore.split("\\."), rightCore.split("\\."), "0");
+        if (result != 0) {
+            return result;
+        }
+        if (leftDash < 0 || rightDash < 0) {
+            // A release is newer than any of its pre-releases
+            return leftDash < 0 ? (rightDash < 0 ? 0 : 1) : -1;
+        }
+        return compareParts(left.substring(leftDash + 1).split("\\."),
+                right.substring(rightDash + 1).split("\\."), null);
+    }
+
+    private static String stripBuildMetadata(String version) {
+        int plus = version.indexOf('+');
+        return plus < 0 ? version : version.substring(0, plus);
+    }
+
+    /**
+     * Compare dot-separated parts pairwise. A missing part is replaced by
+     * padding, or when padding is null the shorter list is the older one.
+     * Numeric parts compare as numbers and sort below textual ones.
+     */
+    private static int compareParts(String[] left, String[] right, String padding) {
+        int length = Math.max(left.length, right.length);
+        for (int i = 0; i < length; i++) {
+            if (padding == null && (i >= left.length || i >= right.length)) {
+                return i >= left.length ? -1 : 1;
+            }
+            String l = i < left.length && !left[i].isEmpty() ? left[i] : padding;
+            String r = i < right.length && !right[i].isEmpty() ? right[i] : padding;
+            boolean leftNumeric = isNumeric(l);
+            boolean rightNumeric = isNumeric(r);
+            int result;
+            if (leftNumeric && rightNumeric) {
+                result = compareNumeric(l, r);
+            } else if (leftNumeric != rightNumeric) {
+                result = leftNumeric ? -1 : 1;
+            } else {
+                result = l.compareToIgnoreCase(r);
+            }
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isNumeric(String part) {
+        if (part.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < part.length(); i++) {
+            if (!Character.isDigit(part.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int compareNumeric(String l, String r) {
+        // Compare without parsing, so very long version parts can't overflow
+        l = l.replaceFirst("^0+(?=.)", "");
+        r = r.replaceFirst("^0+(?=.)", "");
+        if (l.length() != r.length()) {
+            return l.length() - r.length();
+        }
+        return l.compareTo(r);
+    }
+
     /**
      * Get default kick message based on key
      * 
@@ -138,4 +226,4 @@ public class UtilityHelper {
                 return "Access denied";
         }
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU of rule verdicts keyed by modpack fingerprint (see
+ * {@link ModListResponse#fingerprint()}). Most players run
+ * one of a few modpacks, so their mod lists only need to be filtered and
+ * matched against the rules once.
+ *
+ * The cache is cleared whenever the blacklist, policy, profiles or config
+ * version changes. Only use from the server main thread.
+ */
+public class VerdictCache {
+
+    /**
+     * The outcome of the rule checks for one mod list
+     */
+    public static class Verdict {
+        public final List<String> filteredMods;
+        public final List<String> blacklistedMods;
+        public final List<String> blacklistedResourcePacks;
+        public final List<String> blacklistedShaderPacks;
+        public final List<String> disallowedMods;
+        public final List<String> missingMods;
+        public final List<String> policyViolations;
+        public final boolean modCountExceeded;
+        // Set when the mods are exactly a registered profile; nothing else was checked
+        public final String matchedProfile;
+        // The closest profile when none matched exactly, or null
+        public final ProfileManager.Diff nearestProfile;
+
+        public Verdict(List<String> filteredMods, List<String> blacklistedMods,
+                List<String> blacklistedResourcePacks, List<String> blacklistedShaderPacks,
+                List<String> disallowedMods, List<String> missingMods, List<String> policyViolations,
+                boolean modCountExceeded, String matchedProfile, ProfileManager.Diff nearestProfile) {
+            this.filteredMods = Collections.unmodifiableList(filteredMods);
+            this.blacklistedMods = Collections.unmodifiableList(blacklistedMods);
+            this.blacklistedResourcePacks = Collections.unmodifiableList(blacklistedResourcePacks);
+            this.blacklistedShaderPacks = Collections.unmodifiableList(blacklistedShaderPacks);
+            this.disallowedMods = Collections.unmodifiableList(disallowedMods);
+            this.missingMods = Collections.unmodifiableList(missingMods);
+            this.policyViolations = Collections.unmodifiableList(policyViolations);
+            this.modCountExceeded = modCountExceeded;
+            this.matchedProfile = matchedProfile;
+            this.nearestProfile = nearestProfile;
+        }
+
+        /**
+         * The verdict for a mod list that exactly matches a profile
+         */
+        public static Verdict forProfile(List<String> filteredMods, String profileName) {
+            List<String> none = Collections.emptyList();
+            return new Verdict(filteredMods, none, none, none, none, none, none, false, profileName, null);
+        }
+    }
+
+    private final ConfigManager configManager;
+    private final BlacklistManager blacklistManager;
+    private final PolicyManager policyManager;
+    private final ProfileManager profileManager;
+    private final LinkedHashMap<String, Verdict> verdicts = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Verdict> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    private int maxSize;
+    private long blacklistVersion = -1;
+    private long policyVersion = -1;
+    private long profileVersion = -1;
+    private long configVersion = -1;
+    private long hits = 0;
+    private long misses = 0;
+
+    public VerdictCache(ConfigManager configManager, BlacklistManager blacklistManager,
+            PolicyManager policyManager, ProfileManager profileManager) {
+        this.configManager = configManager;
+        this.blacklistManager = blacklistManager;
+        this.policyManager = policyManager;
+        this.profileManager = profileManager;
+    }
+
+    /**
+     * Look up the verdict for a fingerprint
+     *
+     * @return The cached verdict, or null on a miss
+     */
+    public Verdict get(String fingerprint) {
+        invalidateIfStale();
+        Verdict verdict = maxSize > 0 ? verdicts.get(fingerprint) : null;
+        if (verdict != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return verdict;
+    }
+
+    public void put(String fingerprint, Verdict verdict) {
+        invalidateIfStale();
+        if (maxSize > 0) {
+            verdicts.put(fingerprint, verdict);
+        }
+    }
+
+    public void clear() {
+        verdicts.clear();
+    }
+
+    public int getSize() {
+        return verdicts.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return Hits as a percentage of all lookups, or 0 if there were none
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : hits * 100.0 / lookups;
+    }
+
+    private void invalidateIfStale() {
+        long currentBlacklist = blacklistManager.getVersion();
+        long currentPolicy = policyManager.getVersion();
+        long currentProfiles = profileManager.getVersion();
+        long currentConfig = configManager.getConfigVersion();
+        if (currentBlacklist != blacklistVersion || currentPolicy != policyVersion
+                || currentProfiles != profileVersion || currentConfig != configVersion) {
+            verdicts.clear();
+            maxSize = configManager.getVerdictCacheSize();
+            blacklistVersion = currentBlacklist;
+            policyVersion = currentPolicy;
+            profileVersion = currentProfiles;
+            configVersion = currentConfig;
+        }
+    }
+}
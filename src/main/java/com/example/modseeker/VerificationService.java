@@ -22,8 +22,12 @@ import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Set;
 
 /**
  * Manages the mod verification process, including checking against blacklists
@@ -38,6 +42,7 @@ public class VerificationService {
     private final ConfigManager configManager;
     private final BlacklistManager blacklistManager;
     private final SecurityManager securityManager;
+    private final VerdictCache verdictCache;
 
     public VerificationService(ModSeekerPlugin plugin, PlayerDataManager playerDataManager,
             MessageHandler messageHandler, ModListParser modListParser,
@@ -50,154 +55,473 @@ public class VerificationService {
         this.configManager = configManager;
         this.blacklistManager = blacklistManager;
         this.securityManager = securityManager;
+        this.verdictCache = new VerdictCache(configManager, blacklistManager, plugin.getPolicyManager(),
+                plugin.getProfileManager());
     }
 
     /**
      * Starts the mod check process after a successful handshake.
      */
-    public void startModCheckAfterHandshake(Player player, PlayerDataManager.HandshakeData handshakeData) {
-        PlayerDataManager.PlayerModCheckData checkData = new PlayerDataManager.PlayerModCheckData(player.getUniqueId(),
-                handshakeData.playerName);
-        checkData.handshakeCompleted = true;
-        checkData.handshakeData = handshakeData;
-        playerDataManager.getPlayerModChecks().put(player.getUniqueId(), checkData);
-
+    public void startModCheckAfterHandshake(Player player, PlayerSession session) {
         new BukkitRunnable() {
             @Override
             public void run() {
                 if (player.isOnline()) {
-                    messageHandler.sendModListRequest(player, checkData);
+                    messageHandler.sendModListRequest(player, session, session.modListRequest);
                 }
             }
         }.runTaskLater(plugin, 20L);
     }
 
     /**
-     * Handles the MODLIST_RESPONSE message from the client.
+     * Verifies the signature and timestamp of a mod list response. Runs on the
+     * crypto worker threads, so it must not touch player or session state.
+     *
+     * @param playerName The name of the player who sent the response
+     * @param response   The parsed response
+     * @return The kick message if verification failed, or null if it passed
      */
-    public void handleModListResponse(Player player, String messageJson) {
-        UUID playerId = player.getUniqueId();
-        String playerName = player.getName();
+    public String verifyResponseSignature(String playerName, ModListResponse response) {
+        if (!securityManager.isValidationEnabled()) {
+            return null;
+        }
 
-        PlayerDataManager.PlayerModCheckData checkData = playerDataManager.getPlayerModChecks().get(playerId);
-        if (checkData == null)
-            return;
+        try {
+            String signature = response.signature();
+
+            if (signature == null || !response.hasTimestamp()) {
+                plugin.logInfo("🚫 SECURITY: Missing signature/timestamp from " + playerName);
+                return ChatColor.RED + "Security verification failed: Missing signature.";
+            }
+
+            long timestamp = response.timestamp();
+            String checkId = response.checkId();
+            // Use raw mod list (with versions) for signature verification
+            List<String> modList = response.rawEntries();
 
-        if (checkData.timeoutTaskId != -1) {
-            Bukkit.getScheduler().cancelTask(checkData.timeoutTaskId);
-            checkData.timeoutTaskId = -1;
+            StringBuilder dataToVerify = new StringBuilder();
+            dataToVerify.append(checkId != null ? checkId : "unknown").append("|");
+            if (response.nonce() != null) {
+                // Clients that bind the nonce sign it together with the mods
+                dataToVerify.append(response.nonce()).append("|");
+            }
+            for (int i = 0; i < modList.size(); i++) {
+                if (i > 0)
+                    dataToVerify.append(",");
+                dataToVerify.append(modList.get(i));
+            }
+
+            if (!securityManager.verifySignature(dataToVerify.toString(), signature)) {
+                plugin.logInfo("� SECURITY: Invalid signature from " + playerName);
+                return ChatColor.RED + "Security verification failed.";
+            }
+
+            long currentTime = System.currentTimeMillis();
+            long diff = Math.abs(currentTime - timestamp);
+
+            // Increased tolerance to 1 hour (3600000ms) to handle timezone/clock drift
+            // issues
+            if (diff > 3600000) {
+                plugin.logInfo("🚫 SECURITY: Stale packet from " + playerName + " (Diff: " + diff + "ms)");
+                return ChatColor.RED + "Security verification failed: Packet timestamp out of sync.";
+            }
+            plugin.logInfo("✅ Signature verified for " + playerName);
+        } catch (Exception e) {
+            plugin.logInfo("⚠️ Signature verification error: " + e.getMessage());
         }
+        return null;
+    }
 
-        checkData.modListReceived = true;
-        checkData.modListResponse = messageJson;
+    /**
+     * Verifies the signature and timestamp of a mod list digest. Runs on the
+     * crypto worker threads, so it must not touch player or session state.
+     *
+     * @param playerName The name of the player who sent the digest
+     * @param digest     The parsed digest
+     * @return The kick message if verification failed, or null if it passed
+     */
+    public String verifyDigestSignature(String playerName, ModListDigest digest) {
+        if (!securityManager.isValidationEnabled()) {
+            return null;
+        }
 
-        // Verify Signature
-        if (securityManager.isValidationEnabled()) {
-            try {
-                String signature = extractJsonField(messageJson, "signature");
-                String timestampStr = extractJsonField(messageJson, "timestamp");
+        if (digest.signature() == null || !digest.hasTimestamp()) {
+            plugin.logInfo("🚫 SECURITY: Missing digest signature/timestamp from " + playerName);
+            return ChatColor.RED + "Security verification failed: Missing signature.";
+        }
 
-                if (signature == null || timestampStr == null) {
-                    plugin.logInfo("🚫 SECURITY: Missing signature/timestamp from " + playerName);
-                    player.kickPlayer(ChatColor.RED + "Security verification failed: Missing signature.");
-                    return;
-                }
+        String checkId = digest.checkId() != null ? digest.checkId() : "unknown";
+        String signedData = digest.nonce() != null ? checkId + "|" + digest.nonce() + "|" + digest.digest()
+                : checkId + "|" + digest.digest();
+        if (!securityManager.verifySignature(signedData, digest.signature())) {
+            plugin.logInfo("🚫 SECURITY: Invalid digest signature from " + playerName);
+            return ChatColor.RED + "Security verification failed.";
+        }
 
-                long timestamp = Long.parseLong(timestampStr);
-                String checkId = extractJsonField(messageJson, "checkId");
-                // Use raw mod list (with versions) for signature verification
-                List<String> modList = modListParser.parseRawModList(messageJson);
-
-                StringBuilder dataToVerify = new StringBuilder();
-                dataToVerify.append(checkId != null ? checkId : "unknown").append("|");
-                for (int i = 0; i < modList.size(); i++) {
-                    if (i > 0)
-                        dataToVerify.append(",");
-                    dataToVerify.append(modList.get(i));
-                }
+        long diff = Math.abs(System.currentTimeMillis() - digest.timestamp());
+        // Same tolerance as full responses
+        if (diff > 3600000) {
+            plugin.logInfo("🚫 SECURITY: Stale digest from " + playerName + " (Diff: " + diff + "ms)");
+            return ChatColor.RED + "Security verification failed: Packet timestamp out of sync.";
+        }
+        return null;
+    }
 
-                if (!securityManager.verifySignature(dataToVerify.toString(), signature)) {
-                    plugin.logInfo("� SECURITY: Invalid signature from " + playerName);
-                    player.kickPlayer(ChatColor.RED + "Security verification failed.");
-                    return;
-                }
+    /**
+     * Handles a RESPONSE_MODLIST_DIGEST message. A known digest is verified
+     * from the stored mod list; an unknown one makes the client send the full
+     * list. Called on the main thread once the crypto worker has checked the
+     * signature.
+     *
+     * @param player          The player who sent the digest
+     * @param session         The player's session, in the VERIFYING state
+     * @param digest          The parsed digest
+     * @param securityFailure Kick message from the signature check, or null if
+     *                        it passed
+     */
+    public void handleModListDigest(Player player, PlayerSession session, ModListDigest digest,
+            String securityFailure) {
+        if (session.getState() != PlayerSession.State.VERIFYING)
+            return;
 
-                long currentTime = System.currentTimeMillis();
-                long diff = Math.abs(currentTime - timestamp);
+        if (securityFailure != null) {
+            plugin.getTimeoutWheel().cancel(session.playerId, TimeoutWheel.Kind.MODLIST);
+            reject(player, session, securityFailure);
+            return;
+        }
 
-                // Increased tolerance to 1 hour (3600000ms) to handle timezone/clock drift
-                // issues
-                if (diff > 3600000) {
-                    plugin.logInfo("🚫 SECURITY: Stale packet from " + playerName + " (Diff: " + diff + "ms)");
-                    player.kickPlayer(ChatColor.RED + "Security verification failed: Packet timestamp out of sync.");
-                    return;
-                }
-                plugin.logInfo("✅ Signature verified for " + playerName);
-            } catch (Exception e) {
-                plugin.logInfo("⚠️ Signature verification error: " + e.getMessage());
+        ModListResponse known = plugin.getFingerprintTable().lookup(digest);
+        if (known == null) {
+            plugin.logInfo("🔎 Unknown modpack digest from " + player.getName() + " — requesting the full mod list");
+            // Retries of this request must ask for the full list as well
+            session.digestFirst = false;
+            if (session.transition(PlayerSession.State.VERIFYING, PlayerSession.State.AWAITING_MODLIST)) {
+                messageHandler.sendDigestResult(player, session, false);
             }
+            return;
         }
 
-        List<String> modList = modListParser.parseModList(messageJson);
-        checkData.detectedMods = modList;
+        plugin.logInfo("⚡ Known modpack digest from " + player.getName() + " — full mod list skipped");
+        messageHandler.sendDigestResult(player, session, true);
+        handleModListResponse(player, session, known, null);
+    }
 
-        List<String> filteredModList = new ArrayList<>();
-        for (String mod : modList) {
-            if (!configManager.getModlistFilter().contains(mod)) {
-                filteredModList.add(mod);
-            }
+    /**
+     * Handles the MODLIST_RESPONSE message from the client. Called on the main
+     * thread once the crypto worker has finished with the response.
+     *
+     * @param player          The player who sent the response
+     * @param session         The player's session, in the VERIFYING state
+     * @param response        The parsed (and decrypted) response
+     * @param securityFailure Kick message from the signature check, or null if
+     *                        it passed
+     */
+    public void handleModListResponse(Player player, PlayerSession session, ModListResponse response,
+            String securityFailure) {
+        String playerName = player.getName();
+
+        if (session.getState() != PlayerSession.State.VERIFYING)
+            return;
+
+        plugin.getTimeoutWheel().cancel(session.playerId, TimeoutWheel.Kind.MODLIST);
+
+        if (securityFailure != null) {
+            reject(player, session, securityFailure);
+            return;
         }
 
+        List<String> modList = response.modIds();
+        // Kept as dictionary IDs rather than a list of Strings for every online player
+        int[] modIds = internMods(modList);
+        recordDetectedMods(session, modList, modIds);
+        session.resourcePacks = response.resourcePacks();
+        session.shaderPacks = response.shaderPacks();
+
+        // Players on the same modpack share one verdict
+        String fingerprint = response.fingerprint();
+        // Remember the modpack, so its next digest can skip the full list
+        plugin.getFingerprintTable().record(fingerprint, response);
+        VerdictCache.Verdict verdict = verdictCache.get(fingerprint);
+        if (verdict == null) {
+            verdict = evaluate(response, modIds);
+            verdictCache.put(fingerprint, verdict);
+        }
+        List<String> filteredModList = verdict.filteredMods;
+
         plugin.logInfo("📋 Mod list received: " + filteredModList.size() + " mods verified");
 
+        if (verdict.matchedProfile != null) {
+            plugin.logInfo("📦 Matches modpack profile '" + verdict.matchedProfile + "' — rule checks skipped");
+            approve(player, session);
+            return;
+        }
+        if (verdict.nearestProfile != null) {
+            logProfileDiff(verdict.nearestProfile);
+        }
+
+        List<String> blacklistedDetected = verdict.blacklistedMods;
+
         if (configManager.isSHOW_MOD_LIST() && !filteredModList.isEmpty()) {
+            // Highlight the mods the rules actually matched, exactly as the client sent them
+            Set<String> highlighted = new HashSet<>(blacklistedDetected);
             UtilityHelper.logModList(playerName, filteredModList, configManager.isSHOW_MOD_LIST(),
                     configManager.isONE_MOD_PER_LINE(), configManager.isHIGHLIGHT_MODS(),
-                    configManager.isHIGHLIGHT_BLACKLISTED_MODS(), blacklistManager.getBlacklistedMods());
+                    configManager.isHIGHLIGHT_BLACKLISTED_MODS(), highlighted);
         }
-
-        List<String> blacklistedDetected = blacklistManager.checkForBlacklistedMods(filteredModList);
+        logPacks(playerName, "🎨 Resource packs", response.resourcePacks(), verdict.blacklistedResourcePacks);
+        logPacks(playerName, "🌈 Shader packs", response.shaderPacks(), verdict.blacklistedShaderPacks);
 
         if (!blacklistedDetected.isEmpty()) {
             plugin.logInfo("🚫 Blacklisted mods detected: " + blacklistedDetected.size() + " mods");
             for (String mod : blacklistedDetected) {
                 plugin.logInfo("   ↳ " + mod);
             }
-            String kickMsg = configManager.getKickMessages().getOrDefault("blacklistedMods",
-                    "Blacklisted mods detected");
-            String modsList = String.join(", ", blacklistedDetected);
-            String plural = blacklistedDetected.size() > 1 ? "s" : "";
-            kickMsg = kickMsg.replace("{mods}", modsList).replace("{plural}", plural);
+            String kickMsg = formatModsMessage("blacklistedMods", "Blacklisted mods detected", blacklistedDetected);
 
-            player.kickPlayer(ChatColor.RED + kickMsg);
+            rejectForMods(player, session, ChatColor.RED + kickMsg);
             return;
         }
 
-        if (configManager.isEnableModCountThreshold() && filteredModList.size() > configManager.getMaxModCount()) {
+        if (!verdict.blacklistedResourcePacks.isEmpty() || !verdict.blacklistedShaderPacks.isEmpty()) {
+            List<String> blacklistedPacks = new ArrayList<>(verdict.blacklistedResourcePacks);
+            blacklistedPacks.addAll(verdict.blacklistedShaderPacks);
+            plugin.logInfo("🚫 Blacklisted packs detected: " + String.join(", ", blacklistedPacks));
+            rejectForMods(player, session, ChatColor.RED + formatModsMessage("blacklistedPacks",
+                    "Please Disable {packs} To Join The Server", blacklistedPacks));
+            return;
+        }
+
+        if (!verdict.disallowedMods.isEmpty() || !verdict.missingMods.isEmpty()) {
+            // Name every offending mod at once, so the player can fix everything in one go
+            List<String> kickLines = new ArrayList<>();
+            if (!verdict.disallowedMods.isEmpty()) {
+                plugin.logInfo("🚫 Mods not on the allowlist: " + String.join(", ", verdict.disallowedMods));
+                kickLines.add(ChatColor.RED + formatModsMessage("disallowedMods",
+                        "Mods not allowed on this server: {mods}", verdict.disallowedMods));
+            }
+            if (!verdict.missingMods.isEmpty()) {
+                plugin.logInfo("🚫 Required mods missing: " + String.join(", ", verdict.missingMods));
+                kickLines.add(ChatColor.RED + formatModsMessage("missingRequiredMods",
+                        "Required mods missing: {mods}", verdict.missingMods));
+            }
+            rejectForMods(player, session, String.join("\n", kickLines));
+            return;
+        }
+
+        if (!verdict.policyViolations.isEmpty()) {
+            plugin.logInfo("🚫 Policy rules broken: " + String.join("; ", verdict.policyViolations));
+            List<String> kickLines = new ArrayList<>();
+            for (String violation : verdict.policyViolations) {
+                kickLines.add(ChatColor.RED + violation);
+            }
+            rejectForMods(player, session, String.join("\n", kickLines));
+            return;
+        }
+
+        if (verdict.modCountExceeded) {
             String kickMessage = configManager.getKickMessages().getOrDefault("modCountExceeded", "Too many mods");
-            player.kickPlayer(ChatColor.RED + kickMessage);
+            rejectForMods(player, session, ChatColor.RED + kickMessage);
             return;
         }
 
+        approve(player, session);
+    }
+
+    private void approve(Player player, PlayerSession session) {
+        if (!session.transition(PlayerSession.State.VERIFYING, PlayerSession.State.APPROVED)) {
+            return;
+        }
         plugin.logInfo("🎉 Player verification complete — access granted");
-        playerDataManager.addApprovedPlayer(playerId);
 
         if (configManager.isEnablePlayerNotifications()) {
             player.sendMessage(ChatColor.GREEN + configManager.getWelcomeMessage());
         }
     }
 
-    public void handleSeekModListResponse(Player player, String messageJson,
-            PlayerDataManager.PlayerModCheckData seekCheckData) {
-        if (seekCheckData.timeoutTaskId != -1) {
-            Bukkit.getScheduler().cancelTask(seekCheckData.timeoutTaskId);
-            seekCheckData.timeoutTaskId = -1;
+    private void logProfileDiff(ProfileManager.Diff diff) {
+        StringBuilder line = new StringBuilder("🔎 Closest profile '" + diff.profile.name + "' differs by:");
+        for (String mod : diff.extraMods) {
+            line.append(" +").append(mod);
+        }
+        for (String mod : diff.missingMods) {
+            line.append(" -").append(mod);
+        }
+        plugin.logInfo(line.toString());
+    }
+
+    /**
+     * Run the rule checks on a mod list. Filtering, the allowlist and the
+     * required mods are all settled in a single pass over the list, with one
+     * hash lookup per mod however large the policy is. A mod list that is
+     * exactly a registered profile skips all of it.
+     *
+     * @param modIds The dictionary ID of each mod in the response, by index
+     */
+    private VerdictCache.Verdict evaluate(ModListResponse response, int[] modIds) {
+        List<String> modList = response.modIds();
+        List<String> versions = response.versions();
+
+        ProfileManager profileManager = plugin.getProfileManager();
+        ProfileManager.Profile profile = profileManager.match(modList);
+        if (profile != null) {
+            List<String> filteredModList = new ArrayList<>();
+            for (String mod : modList) {
+                if (!configManager.getModlistFilter().contains(mod.toLowerCase())) {
+                    filteredModList.add(mod);
+                }
+            }
+            return VerdictCache.Verdict.forProfile(filteredModList, profile.name);
+        }
+
+        boolean allowlist = configManager.getEnforcementMode() == ConfigManager.EnforcementMode.ALLOWLIST;
+        Set<String> allowedMods = configManager.getAllowedMods();
+        Set<String> requiredMods = configManager.getRequiredMods();
+        Set<String> requiredFound = new HashSet<>();
+        Set<String> policyMods = new HashSet<>();
+
+        List<String> filteredModList = new ArrayList<>();
+        List<String> filteredVersions = new ArrayList<>();
+        int[] filteredIds = new int[modList.size()];
+        List<String> disallowedMods = new ArrayList<>();
+        for (int i = 0; i < modList.size(); i++) {
+            String mod = modList.get(i);
+            String key = mod.toLowerCase();
+            policyMods.add(key);
+            // Required mods may also be filtered ones, e.g. a specific loader
+            if (requiredMods.contains(key)) {
+                requiredFound.add(key);
+            }
+            if (configManager.getModlistFilter().contains(key)) {
+                continue;
+            }
+            filteredIds[filteredModList.size()] = modIds[i];
+            filteredModList.add(mod);
+            filteredVersions.add(versions.get(i));
+            if (allowlist && !allowedMods.contains(key)) {
+                disallowedMods.add(mod);
+            }
+        }
+
+        List<String> missingMods = new ArrayList<>();
+        if (requiredFound.size() < requiredMods.size()) {
+            for (String required : requiredMods) {
+                if (!requiredFound.contains(required)) {
+                    missingMods.add(required);
+                }
+            }
+        }
+
+        List<String> blacklistedDetected = blacklistManager.checkForBlacklistedMods(filteredModList, filteredVersions,
+                Arrays.copyOf(filteredIds, filteredModList.size()));
+
+        // One pass per pack list, collecting both the blacklist hits and the
+        // lowercased names the policy rules see
+        BlacklistManager.Snapshot blacklist = blacklistManager.getSnapshot();
+        List<String> resourcePacks = new ArrayList<>(response.resourcePacks().size());
+        List<String> blacklistedResourcePacks = new ArrayList<>();
+        for (String pack : response.resourcePacks()) {
+            resourcePacks.add(pack.toLowerCase());
+            if (blacklist.isResourcePackBlacklisted(pack)) {
+                blacklistedResourcePacks.add(pack);
+            }
+        }
+        List<String> shaderPacks = new ArrayList<>(response.shaderPacks().size());
+        List<String> blacklistedShaderPacks = new ArrayList<>();
+        for (String pack : response.shaderPacks()) {
+            shaderPacks.add(pack.toLowerCase());
+            if (blacklist.isShaderPackBlacklisted(pack)) {
+                blacklistedShaderPacks.add(pack);
+            }
+        }
+
+        // Policy rules see every reported mod, filtered or not
+        List<String> policyViolations = plugin.getPolicyManager().getRules()
+                .evaluate(new PolicyRules.Input(policyMods, resourcePacks, shaderPacks));
+        boolean modCountExceeded = configManager.isEnableModCountThreshold()
+                && filteredModList.size() > configManager.getMaxModCount();
+        return new VerdictCache.Verdict(filteredModList, blacklistedDetected, blacklistedResourcePacks,
+                blacklistedShaderPacks, disallowedMods, missingMods, policyViolations, modCountExceeded, null,
+                profileManager.closest(policyMods));
+    }
+
+    private void logPacks(String playerName, String label, List<String> packs, List<String> blacklisted) {
+        if (!configManager.isSHOW_MOD_LIST() || packs.isEmpty()) {
+            return;
+        }
+        plugin.logInfo(label + ": " + packs.size());
+        UtilityHelper.logModList(playerName, packs, true, configManager.isONE_MOD_PER_LINE(),
+                configManager.isHIGHLIGHT_MODS(), configManager.isHIGHLIGHT_BLACKLISTED_MODS(),
+                new HashSet<>(blacklisted));
+    }
+
+    private String formatModsMessage(String key, String defaultMessage, List<String> mods) {
+        String plural = mods.size() > 1 ? "s" : "";
+        String names = String.join(", ", mods);
+        return configManager.getKickMessages().getOrDefault(key, defaultMessage)
+                .replace("{mods}", names).replace("{packs}", names).replace("{plural}", plural);
+    }
+
+    /**
+     * Intern a mod list, compacting a full dictionary down to the mods of online
+     * players first if it's due
+     */
+    private int[] internMods(List<String> modList) {
+        ModDictionary dictionary = plugin.getModDictionary();
+        int[] modIds = dictionary.internAll(modList);
+        if (ModDictionary.containsUninterned(modIds) && dictionary.canCompact()) {
+            Collection<PlayerSession> sessions = plugin.getPlayerDataManager().getSessions().values();
+            List<BitSet> live = new ArrayList<>();
+            for (PlayerSession other : sessions) {
+                live.add(other.detectedMods);
+            }
+            int before = dictionary.size();
+            int[] remap = dictionary.compact(live);
+            for (PlayerSession other : sessions) {
+                other.detectedMods = ModDictionary.remap(other.detectedMods, remap);
+            }
+            plugin.logInfo("🧹 Mod dictionary compacted: " + before + " → " + dictionary.size() + " IDs");
+            modIds = dictionary.internAll(modList);
+        }
+        return modIds;
+    }
+
+    private static void recordDetectedMods(PlayerSession session, List<String> modList, int[] modIds) {
+        session.detectedMods = ModDictionary.toBitSet(modIds);
+        session.uninternedMods = ModDictionary.uninterned(modList, modIds);
+    }
+
+    public VerdictCache getVerdictCache() {
+        return verdictCache;
+    }
+
+    /**
+     * Reject a player because of what they have installed, and remember it so a
+     * quick reconnect with the same mods can be refused at pre-login
+     */
+    private void rejectForMods(Player player, PlayerSession session, String kickMessage) {
+        if (session.getState() == PlayerSession.State.VERIFYING) {
+            plugin.rememberRejection(session.playerId, kickMessage);
         }
+        reject(player, session, kickMessage);
+    }
 
-        List<String> modList = modListParser.parseModList(messageJson);
+    private void reject(Player player, PlayerSession session, String kickMessage) {
+        if (session.transition(PlayerSession.State.VERIFYING, PlayerSession.State.REJECTED)) {
+            player.kickPlayer(kickMessage);
+        }
+    }
+
+    public void handleSeekModListResponse(Player player, PlayerSession session, ModListResponse response) {
+        plugin.getTimeoutWheel().cancel(session.playerId, TimeoutWheel.Kind.SEEK);
+
+        List<String> modList = response.modIds();
+        // Keep the latest list, e.g. for capturing it as a profile
+        recordDetectedMods(session, modList, internMods(modList));
+        session.resourcePacks = response.resourcePacks();
+        session.shaderPacks = response.shaderPacks();
         List<String> filteredModList = new ArrayList<>();
         for (String mod : modList) {
-            if (!configManager.getModlistFilter().contains(mod)) {
+            if (!configManager.getModlistFilter().contains(mod.toLowerCase())) {
                 filteredModList.add(mod);
             }
         }
@@ -206,6 +530,12 @@ public class VerificationService {
         if (!filteredModList.isEmpty()) {
             plugin.logInfo("   ↳ " + String.join(",", filteredModList));
         }
+        if (!response.resourcePacks().isEmpty()) {
+            plugin.logInfo("🎨 Resource packs: " + String.join(",", response.resourcePacks()));
+        }
+        if (!response.shaderPacks().isEmpty()) {
+            plugin.logInfo("🌈 Shader packs: " + String.join(",", response.shaderPacks()));
+        }
 
         String modString = String.join(",", filteredModList);
         for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
@@ -215,42 +545,4 @@ public class VerificationService {
             }
         }
     }
-
-    public void cleanupVerificationData(UUID playerId) {
-        PlayerDataManager.PlayerModCheckData data = playerDataManager.getPlayerModChecks().remove(playerId);
-        if (data != null && data.timeoutTaskId != -1) {
-            Bukkit.getScheduler().cancelTask(data.timeoutTaskId);
-        }
-        playerDataManager.removeApprovedPlayer(playerId);
-    }
-
-    private String extractJsonField(String json, String fieldName) {
-        try {
-            String searchKey = "\"" + fieldName + "\":";
-            int startIndex = json.indexOf(searchKey);
-            if (startIndex == -1)
-                return null;
-
-            startIndex += searchKey.length();
-            while (startIndex < json.length() && Character.isWhitespace(json.charAt(startIndex))) {
-                startIndex++;
-            }
-
-            if (json.charAt(startIndex) == '"') {
-                startIndex++;
-                int endIndex = json.indexOf('"', startIndex);
-                return json.substring(startIndex, endIndex);
-            } else {
-                int endIndex = startIndex;
-                while (endIndex < json.length() &&
-                        (Character.isDigit(json.charAt(endIndex)) || json.charAt(endIndex) == '.'
-                                || json.charAt(endIndex) == '-')) {
-                    endIndex++;
-                }
-                return json.substring(startIndex, endIndex);
-            }
-        } catch (Exception e) {
-            return null;
-        }
-    }
-}
+}
\ No newline at end of file
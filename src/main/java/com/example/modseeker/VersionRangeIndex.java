@@ -0,0 +1,329 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Blacklist rules that only ban some versions of a mod, indexed by mod ID.
+ * Each mod ID maps to its banned version ranges, merged and sorted, so checking
+ * a mod costs one hash lookup plus a binary search.
+ *
+ * Rule syntax ({@code modid@range}, versions compared with
+ * {@link UtilityHelper#compareVersions(String, String)}):
+ * <ul>
+ * <li>{@code freecam@<1.2.0}, {@code freecam@<=1.2.0}, {@code freecam@>2.0},
+ * {@code freecam@>=2.0} — a single bound</li>
+ * <li>{@code freecam@1.1.0} or {@code freecam@=1.1.0} — one exact version</li>
+ * <li>{@code xaerominimap@[24.0,24.3)}, {@code xaerominimap@(,24.3]} — an
+ * interval, where {@code [ ]} include the bound and {@code ( )} exclude it, and
+ * an empty bound is unbounded</li>
+ * </ul>
+ *
+ * A mod that reports no version matches every range rule for its ID, so
+ * stripping the version doesn't get around the rule.
+ *
+ * Instances are immutable and safe to share between threads.
+ */
+public final class VersionRangeIndex {
+
+    public static final char VERSION_SEPARATOR = '@';
+
+    /**
+     * A version interval; a null bound is unbounded
+     */
+    private static final class Range {
+        final String lower;
+        final boolean lowerInclusive;
+        final String upper;
+        final boolean upperInclusive;
+
+        Range(String lower, boolean lowerInclusive, String upper, boolean upperInclusive) {
+            this.lower = lower;
+            this.lowerInclusive = lowerInclusive;
+            this.upper = upper;
+            this.upperInclusive = upperInclusive;
+        }
+
+        boolean admitsFromBelow(String version) {
+            if (lower == null) {
+                return true;
+            }
+            int cmp = UtilityHelper.compareVersions(lower, version);
+            return cmp < 0 || (cmp == 0 && lowerInclusive);
+        }
+
+        boolean admitsFromAbove(String version) {
+            if (upper == null) {
+                return true;
+            }
+            int cmp = UtilityHelper.compareVersions(version, upper);
+            return cmp < 0 || (cmp == 0 && upperInclusive);
+        }
+    }
+
+    // Orders ranges by lower bound, unbounded and inclusive bounds first
+    private static final Comparator<Range> BY_LOWER = (a, b) -> {
+        if (a.lower == null || b.lower == null) {
+            return a.lower == null ? (b.lower == null ? 0 : -1) : 1;
+        }
+        int cmp = UtilityHelper.compareVersions(a.lower, b.lower);
+        if (cmp != 0) {
+            return cmp;
+        }
+        return Boolean.compare(b.lowerInclusive, a.lowerInclusive);
+    };
+
+    private final Map<String, Range[]> rangesByMod;
+
+    private VersionRangeIndex(Map<String, Range[]> rangesByMod) {
+        this.rangesByMod = rangesByMod;
+    }
+
+    /**
+     * @return true if the rule is a version-range rule rather than a plain,
+     *         glob or regex rule
+     */
+    public static boolean isVersionRule(String rule) {
+        return !rule.startsWith(BlacklistMatcher.REGEX_PREFIX) && rule.indexOf(VERSION_SEPARATOR) > 0;
+    }
+
+    /**
+     * Build the index from version-range rules
+     *
+     * @param rules The rules, already lowercased
+     * @throws IllegalArgumentException if a rule is invalid
+     */
+    public static VersionRangeIndex compile(List<String> rules) {
+        Map<String, List<Range>> grouped = new HashMap<>();
+        for (String rule : rules) {
+            int at = rule.indexOf(VERSION_SEPARATOR);
+            String modId = parseModId(rule, at);
+            grouped.computeIfAbsent(modId, id -> new ArrayList<>()).add(parseRange(rule.substring(at + 1)));
+        }
+
+        Map<String, Range[]> index = new HashMap<>();
+        for (Map.Entry<String, List<Range>> entry : grouped.entrySet()) {
+            index.put(entry.getKey(), merge(entry.getValue()));
+        }
+        return new VersionRangeIndex(index);
+    }
+
+    /**
+     * Check that a single version-range rule can be parsed
+     *
+     * @throws IllegalArgumentException with the reason if it can't
+     */
+    public static void validate(String rule) {
+        int at = rule.indexOf(VERSION_SEPARATOR);
+        parseModId(rule, at);
+        parseRange(rule.substring(at + 1));
+    }
+
+    /**
+     * Check whether a version of a mod is banned
+     *
+     * @param modId   The mod ID, in any case
+     * @param version The reported version, or "" if none
+     * @return true if a range rule covers the version
+     */
+    public boolean matches(String modId, String version) {
+        Range[] ranges = rangesByMod.get(modId.toLowerCase());
+        if (ranges == null) {
+            return false;
+        }
+        if (version == null || version.isEmpty()) {
+            return true;
+        }
+
+        // Ranges are disjoint and sorted, so only the last one starting at or
+        // below the version can contain it
+        int low = 0;
+        int high = ranges.length - 1;
+        int candidate = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (ranges[mid].admitsFromBelow(version)) {
+                candidate = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return candidate >= 0 && ranges[candidate].admitsFromAbove(version);
+    }
+
+    /**
+     * @return true if any range rule exists for the mod ID
+     */
+    public boolean hasRules(String modId) {
+        return rangesByMod.containsKey(modId.toLowerCase());
+    }
+
+    public int getModCount() {
+        return rangesByMod.size();
+    }
+
+    private static String parseModId(String rule, int at) {
+        if (at <= 0) {
+            throw new IllegalArgumentException("missing mod ID before '@'");
+        }
+        String modId = rule.substring(0, at).trim();
+        for (int i = 0; i < modId.length(); i++) {
+            char c = modId.charAt(i);
+            if (c == '*' || c == '?' || Character.isWhitespace(c)) {
+                throw new IllegalArgumentException("version rules need an exact mod ID");
+            }
+        }
+        return modId.toLowerCase();
+    }
+
+    private static Range parseRange(String spec) {
+        spec = spec.trim();
+        if (spec.isEmpty()) {
+            throw new IllegalArgumentException("missing version after '@'");
+        }
+
+        char first = spec.charAt(0);
+        if (first == '[' || first == '(') {
+            return parseInterval(spec);
+        }
+        if (spec.startsWith(">=")) {
+            return new Range(requireVersion(spec.substring(2)), true, null, false);
+        }
+        if (spec.startsWith("<=")) {
+            return new Range(null, false, requireVersion(spec.substring(2)), true);
+        }
+        if (first == '>') {
+            return new Range(requireVersion(spec.substring(1)), false, null, false);
+        }
+        if (first == '<') {
+            return new Range(null, false, requireVersion(spec.substring(1)), false);
+        }
+        String exact = requireVersion(first == '=' ? spec.substring(1) : spec);
+        return new Range(exact, true, exact, true);
+    }
+
+    private static Range parseInterval(String spec) {
+        char last = spec.charAt(spec.length() - 1);
+        if (spec.length() < 2 || (last != ']' && last != ')')) {
+            throw new IllegalArgumentException("interval must end with ']' or ')'");
+        }
+        boolean lowerInclusive = spec.charAt(0) == '[';
+        boolean upperInclusive = last == ']';
+        String body = spec.substring(1, spec.length() - 1);
+
+        int comma = body.indexOf(',');
+        if (comma < 0) {
+            // [1.0] pins a single version
+            if (!lowerInclusive || !upperInclusive) {
+                throw new IllegalArgumentException("a single version needs [ ] brackets");
+            }
+            String exact = requireVersion(body);
+            return new Range(exact, true, exact, true);
+        }
+        if (body.indexOf(',', comma + 1) >= 0) {
+            throw new IllegalArgumentException("interval has more than two bounds");
+        }
+
+        String lower = body.substring(0, comma).trim();
+        String upper = body.substring(comma + 1).trim();
+        if (lower.isEmpty() && upper.isEmpty()) {
+            throw new IllegalArgumentException("interval needs at least one bound");
+        }
+        if (lower.isEmpty()) {
+            lower = null;
+            lowerInclusive = false;
+        }
+        if (upper.isEmpty()) {
+            upper = null;
+            upperInclusive = false;
+        }
+        if (lower != null && upper != null) {
+            int cmp = UtilityHelper.compareVersions(lower, upper);
+            if (cmp > 0 || (cmp == 0 && !(lowerInclusive && upperInclusive))) {
+                throw new IllegalArgumentException("interval is empty");
+            }
+        }
+        return new Range(lower, lowerInclusive, upper, upperInclusive);
+    }
+
+    private static String requireVersion(String version) {
+        version = version.trim();
+        if (version.isEmpty()) {
+            throw new IllegalArgumentException("missing version");
+        }
+        for (int i = 0; i < version.length(); i++) {
+            char c = version.charAt(i);
+            if (Character.isWhitespace(c) || ",[]()<>=".indexOf(c) >= 0) {
+                throw new IllegalArgumentException("unexpected '" + c + "' in version " + version);
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Sort ranges and merge the overlapping or touching ones, leaving disjoint
+     * ranges ordered by lower bound
+     */
+    private static Range[] merge(List<Range> ranges) {
+        ranges.sort(BY_LOWER);
+        List<Range> merged = new ArrayList<>();
+        Range current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            Range next = ranges.get(i);
+            if (overlaps(current, next)) {
+                String upper = maxUpper(current, next);
+                boolean inclusive = upper != null && upperInclusive(current, next);
+                current = new Range(current.lower, current.lowerInclusive, upper, inclusive);
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged.toArray(new Range[0]);
+    }
+
+    // next starts at or after current, by BY_LOWER
+    private static boolean overlaps(Range current, Range next) {
+        if (current.upper == null || next.lower == null) {
+            return true;
+        }
+        int cmp = UtilityHelper.compareVersions(next.lower, current.upper);
+        return cmp < 0 || (cmp == 0 && (next.lowerInclusive || current.upperInclusive));
+    }
+
+    private static String maxUpper(Range a, Range b) {
+        if (a.upper == null || b.upper == null) {
+            return null;
+        }
+        return UtilityHelper.compareVersions(a.upper, b.upper) >= 0 ? a.upper : b.upper;
+    }
+
+    private static boolean upperInclusive(Range a, Range b) {
+        int cmp = UtilityHelper.compareVersions(a.upper, b.upper);
+        if (cmp == 0) {
+            return a.upperInclusive || b.upperInclusive;
+        }
+        return cmp > 0 ? a.upperInclusive : b.upperInclusive;
+    }
+}
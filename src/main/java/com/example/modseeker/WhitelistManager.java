@@ -28,13 +28,15 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Manages player whitelisting using UUIDs and Gson
+ * Manages player whitelisting using UUIDs and Gson. Lookups also come from the
+ * async pre-login thread, so a reload builds a new map and swaps it in rather
+ * than clearing the live one.
  */
 public class WhitelistManager {
 
     private final File whitelistFile;
     private final Gson gson;
-    private final Map<UUID, WhitelistEntry> whitelistedPlayers = new ConcurrentHashMap<>();
+    private volatile Map<UUID, WhitelistEntry> whitelistedPlayers = new ConcurrentHashMap<>();
 
     public WhitelistManager(File dataFolder) {
         this.whitelistFile = new File(dataFolder, "whitelist.json");
@@ -58,8 +60,9 @@ public class WhitelistManager {
     }
 
     public void loadWhitelist() {
-        whitelistedPlayers.clear();
+        Map<UUID, WhitelistEntry> loaded = new ConcurrentHashMap<>();
         if (!whitelistFile.exists()) {
+            whitelistedPlayers = loaded;
             saveWhitelist();
             return;
         }
@@ -69,13 +72,14 @@ public class WhitelistManager {
             if (entries != null) {
                 for (WhitelistEntry entry : entries) {
                     if (entry.uuid != null) {
-                        whitelistedPlayers.put(entry.uuid, entry);
+                        loaded.put(entry.uuid, entry);
                     }
                 }
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
+        whitelistedPlayers = loaded;
     }
 
     public void saveWhitelist() {
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlacklistMatcherTest {
+
+    @Test
+    void matchesExactGlobAndRegexRules() {
+        BlacklistMatcher matcher = BlacklistMatcher.compile(List.of("wurst*", "re:(x|z)ray.*", "meteor?client"));
+        assertEquals(0, matcher.match("WurstPlus"));
+        assertEquals(1, matcher.match("zrayy"));
+        assertEquals(2, matcher.match("meteor-client"));
+        assertEquals(-1, matcher.match("meteorclient"));
+        assertEquals(1, matcher.getDfaCount());
+    }
+
+    @Test
+    void rulesTooComplexForOneDfaAreSplit() {
+        List<String> rules = new ArrayList<>(List.of("xray"));
+        for (String name : List.of("aa", "bb", "cc", "dd", "ee", "ff", "gg", "hh", "ii")) {
+            rules.add("*" + name + "*client*");
+        }
+        BlacklistMatcher matcher = BlacklistMatcher.compile(rules);
+        assertTrue(matcher.getDfaCount() > 1);
+        assertEquals(0, matcher.match("xray"));
+        assertEquals(1, matcher.match("fooaabarclient"));
+        assertEquals(9, matcher.match("iiclientz"));
+        assertEquals(-1, matcher.match("sodium"));
+    }
+
+    @Test
+    void ruleTooComplexOnItsOwnIsSimulated() {
+        String rule = "*x??????????????";
+        BlacklistMatcher matcher = BlacklistMatcher.compile(List.of("xray", rule));
+        assertEquals(List.of(rule), matcher.getSimulatedRules());
+        assertEquals(0, matcher.match("xray"));
+        assertEquals(1, matcher.match("abx12345678901234"));
+        assertEquals(-1, matcher.match("abx1234"));
+        assertThrows(IllegalArgumentException.class, () -> BlacklistMatcher.validateComplexity(rule));
+    }
+}
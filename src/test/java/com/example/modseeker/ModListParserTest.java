@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ModListParserTest {
+
+    private final ModListParser parser = new ModListParser();
+
+    private ModListResponse parse(String json) throws JsonTokenizer.MalformedJsonException {
+        return parser.parseResponse(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void splitsEntriesIntoIdsAndVersions() throws Exception {
+        ModListResponse response = parse(
+                "{\"checkId\":\"c1\",\"mods\":[\"fabric-api:0.100.0+1.21\",\"sodium\",\"\",\":orphan\"]}");
+
+        assertEquals("c1", response.checkId());
+        assertEquals(List.of("fabric-api:0.100.0+1.21", "sodium", ":orphan"), response.rawEntries());
+        assertEquals(List.of("fabric-api", "sodium"), response.modIds());
+        assertEquals(List.of("0.100.0+1.21", ""), response.versions());
+    }
+
+    @Test
+    void decodesEscapedAndMultiByteEntries() throws Exception {
+        ModListResponse response = parse("{\"mods\":[\"caf\\u00e9:1.0\",\"modé:2.0\"]}");
+
+        assertEquals(List.of("café", "modé"), response.modIds());
+        assertEquals(List.of("1.0", "2.0"), response.versions());
+    }
+
+    @Test
+    void readsTheNonceFromPlainAndDecryptedPayloads() throws Exception {
+        assertEquals("n1", parse("{\"checkId\":\"c1\",\"nonce\":\"n1\",\"mods\":[]}").nonce());
+
+        ModListResponse bound = parser.parseDecryptedPayload("checkId=c1|nonce=n1|timestamp=42|mods=sodium:1", 7);
+        assertEquals("n1", bound.nonce());
+        assertEquals(42, bound.timestamp());
+
+        ModListResponse legacy = parser.parseDecryptedPayload("checkId=c1|mods=sodium:1", 7);
+        assertNull(legacy.nonce());
+        assertEquals(7, legacy.timestamp());
+    }
+
+    @Test
+    void acceptsNumericAndQuotedTimestamps() throws Exception {
+        assertEquals(1700000000000L, parse("{\"timestamp\":1700000000000}").timestamp());
+        assertEquals(1700000000000L, parse("{\"timestamp\":\"1700000000000\"}").timestamp());
+        assertEquals(-1, parse("{\"mods\":[]}").timestamp());
+    }
+
+    @Test
+    void rejectsNonNumericTimestamps() {
+        assertThrows(JsonTokenizer.MalformedJsonException.class, () -> parse("{\"timestamp\":\"soon\"}"));
+        assertThrows(JsonTokenizer.MalformedJsonException.class, () -> parse("{\"timestamp\":\"12\"3}"));
+    }
+}
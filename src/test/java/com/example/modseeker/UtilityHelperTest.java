@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2025 ModSeeker
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.example.modseeker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UtilityHelperTest {
+
+    private static int compare(String a, String b) {
+        return Integer.signum(UtilityHelper.compareVersions(a, b));
+    }
+
+    @Test
+    void numericPartsCompareAsNumbers() {
+        assertEquals(1, compare("1.10.2", "1.9"));
+        assertEquals(0, compare("1.0", "1"));
+        assertEquals(0, compare("1.02", "1.2"));
+    }
+
+    @Test
+    void buildMetadataIsIgnored() {
+        assertEquals(-1, compare("1.2+mc1.21", "1.2.1"));
+        assertEquals(-1, compare("1.1+build.5", "1.1.3"));
+        assertEquals(0, compare("1.2+mc1.21", "1.2+mc1.20.1"));
+        assertEquals(0, compare("1.2+mc1.21", "1.2"));
+    }
+
+    @Test
+    void preReleaseSortsBelowRelease() {
+        assertEquals(-1, compare("1.2.0-beta", "1.2.0"));
+        assertEquals(1, compare("1.2.0", "1.2.0-beta"));
+        assertEquals(1, compare("1.2.1-beta", "1.2.0"));
+        assertEquals(-1, compare("1.2.0-beta+build.7", "1.2.0"));
+    }
+
+    @Test
+    void preReleasesCompareInSemverOrder() {
+        assertEquals(-1, compare("1.2.0-alpha", "1.2.0-beta"));
+        assertEquals(-1, compare("1.2.0-beta.2", "1.2.0-beta.11"));
+        assertEquals(-1, compare("1.2.0-rc", "1.2.0-rc.1"));
+        assertEquals(-1, compare("1.2.0-1", "1.2.0-alpha"));
+    }
+
+    @Test
+    void rangeRuleBansBuildMetadataAndPreReleaseVersions() {
+        VersionRangeIndex index = VersionRangeIndex.compile(List.of("freecam@<1.2.1", "xaerominimap@>=24.0"));
+
+        assertTrue(index.matches("freecam", "1.2+mc1.21"));
+        assertTrue(index.matches("freecam", "1.2.1-beta"));
+        assertFalse(index.matches("freecam", "1.2.1+mc1.21"));
+        assertFalse(index.matches("xaerominimap", "24.0-beta"));
+        assertTrue(index.matches("xaerominimap", "24.0+fabric"));
+    }
+}